@@ -0,0 +1,83 @@
+package de.kp.works.core;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.functions;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * [Annotations] enriches the results of predictor, feature, recommender
+ * and time stages with the profile (identifier, trustability and type) of
+ * the model that has been used.
+ *
+ * The annotations are a serialized list that is assigned to each row of
+ * the annotation column; CDAP rebuilds the records at each stage boundary,
+ * and the per-row value is the only representation that reaches subsequent
+ * stages. The annotation of the current model is appended to the list of
+ * a previous stage with a column expression, i.e. the previous annotations
+ * are never collected to the driver.
+ */
+public class Annotations {
+
+	private static Type annotationType = new TypeToken<List<Map<String, Object>>>() {
+	}.getType();
+
+	/**
+	 * This method appends the provided model annotation to the list of
+	 * existing annotations and assigns the result to the annotation
+	 * column.
+	 */
+	public static Dataset<Row> annotate(Dataset<Row> dataset, String annotationCol, Map<String, Object> annotation) {
+
+		String item = new Gson().toJson(annotation);
+		Column initial = functions.lit("[" + item + "]");
+
+		if (Arrays.asList(dataset.columns()).contains(annotationCol) == false)
+			return dataset.withColumn(annotationCol, initial);
+		/*
+		 * The serialized list of a previous stage ends with a closing
+		 * bracket, which is replaced by the serialized annotation of
+		 * the current model; missing or empty lists are initialized
+		 */
+		Column previous = functions.trim(functions.col(annotationCol));
+		Column length = functions.length(previous);
+
+		Column appended = functions.concat(previous.substr(functions.lit(1), length.minus(1)),
+				functions.lit("," + item + "]"));
+
+		Column column = functions.when(previous.isNull().or(length.leq(2)), initial).otherwise(appended);
+		return dataset.withColumn(annotationCol, column);
+
+	}
+
+	public static List<Map<String, Object>> fromJson(String annotation) {
+		return new Gson().fromJson(annotation, annotationType);
+	}
+
+}
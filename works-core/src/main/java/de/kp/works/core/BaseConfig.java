@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import org.apache.spark.storage.StorageLevel;
+
 import com.google.common.base.Strings;
 import com.google.gson.Gson;
 
@@ -74,6 +76,18 @@ public class BaseConfig extends PluginConfig {
 
 	}
 	
+	public StorageLevel getStorageLevel(String storageLevel) {
+		/*
+		 * Training data are cached in memory and spilled
+		 * to disk by default
+		 */
+		if (Strings.isNullOrEmpty(storageLevel))
+			return StorageLevel.MEMORY_AND_DISK();
+		
+		return StorageLevel.fromString(storageLevel.trim().toUpperCase());
+		
+	}
+	
 	public Boolean toBoolean(String value) {
 		return value.equals("true") ? true : false;
 	}
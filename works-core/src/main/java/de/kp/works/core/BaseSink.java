@@ -18,8 +18,13 @@ package de.kp.works.core;
  * 
  */
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.storage.StorageLevel;
+
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
@@ -37,6 +42,12 @@ public abstract class BaseSink extends SparkSink<StructuredRecord> {
 
 	protected String BEST_MODEL = "best";
 	protected String LATEST_MODEL = "latest";
+	/*
+	 * The datasets that have been persisted by this sink; they
+	 * are released after the model has been trained, evaluated
+	 * and tracked
+	 */
+	protected transient List<Dataset<Row>> persisted = new ArrayList<>();
 
 	public void validateSchema(Schema inputSchema) {
 	}
@@ -45,6 +56,70 @@ public abstract class BaseSink extends SparkSink<StructuredRecord> {
 		throw new Exception("[ERROR] Not implemented");
 	}
 
+	/**
+	 * A helper method to persist a dataset with the provided storage
+	 * level; the dataset is registered to be released by unpersist()
+	 */
+	protected Dataset<Row> persist(Dataset<Row> dataset, StorageLevel storageLevel) {
+
+		if (storageLevel == null || storageLevel.equals(StorageLevel.NONE()))
+			return dataset;
+
+		if (persisted == null)
+			persisted = new ArrayList<>();
+
+		Dataset<Row> cached = dataset.persist(storageLevel);
+		persisted.add(cached);
+
+		return cached;
+
+	}
+
+	/**
+	 * A helper method to split a (vectorized) dataset into a train and
+	 * test dataset: the dataset is persisted before it is split, and the
+	 * splits are persisted and materialized once. Training algorithms that
+	 * iterate over the train dataset therefore do not re-evaluate the
+	 * upstream lineage of this sink.
+	 */
+	protected Dataset<Row>[] split(Dataset<Row> dataset, double[] splits, StorageLevel storageLevel) {
+
+		Dataset<Row>[] splitted = persist(dataset, storageLevel).randomSplit(splits);
+		if (storageLevel == null || storageLevel.equals(StorageLevel.NONE()))
+			return splitted;
+
+		for (int i = 0; i < splitted.length; i++) {
+
+			splitted[i] = persist(splitted[i], storageLevel);
+			splitted[i].count();
+
+		}
+		/*
+		 * The splits are materialized, and the source
+		 * dataset is no longer needed
+		 */
+		dataset.unpersist(false);
+		return splitted;
+
+	}
+
+	/**
+	 * This method releases all datasets that have been persisted
+	 * by this sink
+	 */
+	protected void unpersist() {
+
+		if (persisted == null)
+			return;
+
+		for (Dataset<Row> dataset : persisted) {
+			dataset.unpersist(false);
+		}
+
+		persisted.clear();
+
+	}
+
 	public static Schema getNonNullIfNullable(Schema schema) {
 		return schema.isNullable() ? schema.getNonNullable() : schema;
 	}
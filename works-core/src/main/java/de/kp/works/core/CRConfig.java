@@ -18,6 +18,10 @@ package de.kp.works.core;
  * 
  */
 
+import javax.annotation.Nullable;
+
+import org.apache.spark.storage.StorageLevel;
+
 import com.google.common.base.Strings;
 
 import io.cdap.cdap.api.annotation.Description;
@@ -47,11 +51,20 @@ public class CRConfig extends BaseConfig {
 	@Description("The split of the dataset into train & test data, e.g. 80:20. Default is 70:30.")
 	@Macro
 	public String dataSplit;
+
+	@Description(Params.STORAGE_LEVEL)
+	@Macro
+	@Nullable
+	public String storageLevel;
 	
 	public double[] getSplits() {
 		return getDataSplits(dataSplit);
 	}
 	
+	public StorageLevel getStorageLevel() {
+		return getStorageLevel(storageLevel);
+	}
+	
 	public void validate() {
 		super.validate();
 
@@ -87,7 +100,7 @@ public class CRConfig extends BaseConfig {
 					"[%s] The input schema must contain the field that defines the feature vector.", this.getClass().getName()));
 		}
 
-		SchemaUtil.isArrayOfNumeric(inputSchema, featuresCol);
+		SchemaUtil.isFeatures(inputSchema, featuresCol);
 
 		/** LABEL COLUMN **/
 
@@ -38,5 +38,7 @@ public class Names {
 	public static final String TIMESTAMP = "timestamp";
 	
 	public static final String LLT_BUCKETS = "LLT-Buckets";
+	public static final String M4_BUCKETS = "M4-Buckets";
+	public static final String MIN_MAX_BUCKETS = "MinMax-Buckets";
 	
 }
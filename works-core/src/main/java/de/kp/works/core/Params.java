@@ -20,16 +20,53 @@ package de.kp.works.core;
 
 public class Params {
 	
+	public static final String CHALLENGERS = "A comma-separated list of challenger models that are scored in addition "
+			+ "to the selected model. Supported values are 'best', 'latest' and a specific model version, e.g. 'M-3'. "
+			+ "Each challenger adds a prediction field '<predictionCol>_<challenger>' and the agreement with the selected "
+			+ "model is specified by '<predictionCol>_agreement' (classifier) or '<predictionCol>_deviation' (regressor).";
+	
 	public static final String CHART_LIMIT = "The maximum number of data points taken into account "
 			+ "to generate charts from. Default value is 1000.";
 	
 	public static final String CHART_SAMPLING = "The sampling method to consistently reduce the number "
-			+ "of data points to generate charts from. Supported values are 'LLT-Buckets'. Default is 'LLT-Buckets'.";
+			+ "of data points to generate charts from. Supported values are 'LLT-Buckets', 'M4-Buckets' and 'MinMax-Buckets'. "
+			+ "Default is 'LLT-Buckets'.";
+	
+	public static final String GROUP_COL = "The name of the optional field that identifies a certain series. "
+			+ "If provided, each series is sampled independently.";
 	
 	public static final String MODEL_OPTION = "An indicator to determine which model variant is used "
 			+ "for predictions. "
 			+ "Supported values are 'best' and 'latest'. Default is 'best'.";
 	
+	public static final String PREDICTOR_MODEL_OPTION = "An indicator to determine which model variant is used "
+			+ "for predictions. "
+			+ "Supported values are 'best', 'latest' and 'leader'. 'leader' selects the leading model of the "
+			+ "last multi-algorithm training run. Default is 'best'.";
+	
+	public static final String NUM_CANDIDATES = "The number of candidate models that are sampled from the search space, "
+			+ "if the search strategy is 'random'. Default is 10.";
+	
+	public static final String PARALLELISM_ALGORITHMS = "The maximum number of algorithms that are trained concurrently. "
+			+ "Default is the number of selected algorithms.";
+	
+	public static final String PARALLELISM = "The maximum number of candidate models that are trained concurrently. Default is 4.";
+	
+	public static final String SEARCH_SPACE = "The search space of the hyper-parameter search as a semicolon separated list "
+			+ "of parameter specifications. A specification either defines a list of values, e.g. 'maxDepth:3,5,7', or "
+			+ "a range of values, e.g. 'minInfoGain:0.0..0.1'. Ranges are supported by the 'random' search strategy only, "
+			+ "and a grid must not exceed 100 candidates.";
+	
+	public static final String SEARCH_STRATEGY = "The strategy of the hyper-parameter search. Supported values are 'grid' "
+			+ "and 'random'. Default is 'grid'.";
+	
+	public static final String STORAGE_LEVEL = "The storage level of the training data that is cached during training "
+			+ "and evaluation. Supported values are 'NONE', 'MEMORY_ONLY', 'MEMORY_ONLY_SER', 'MEMORY_AND_DISK', "
+			+ "'MEMORY_AND_DISK_SER' and 'DISK_ONLY'. Default is 'MEMORY_AND_DISK'.";
+	
+	public static final String VECTOR_FORMAT = "The representation of the transformed features. Supported values are 'dense' "
+			+ "(Array of Double) and 'sparse' (record of size, indices and values). Default is 'dense'.";
+	
 	public static final String TIME_COL = "The name of the field that contains the timestamp.";
 	
 	public static final String TTL = "The Time-to-Live (TTL) property governs how long the time series data will "
@@ -21,6 +21,52 @@ package de.kp.works.core;
 import io.cdap.cdap.api.data.schema.Schema;
 
 public class SchemaUtil {
+	/*
+	 * The record name of the sparse vector representation
+	 * of high-dimensional features
+	 */
+	public static final String SPARSE_VECTOR = "sparse_vector";
+
+	/**
+	 * The schema of a sparse vector: the vector size, and the indices 
+	 * and values of its active (non-zero) elements
+	 */
+	public static Schema getSparseVectorSchema() {
+		return Schema.recordOf(SPARSE_VECTOR, 
+				Schema.Field.of("size", Schema.of(Schema.Type.INT)),
+				Schema.Field.of("indices", Schema.arrayOf(Schema.of(Schema.Type.INT))),
+				Schema.Field.of("values", Schema.arrayOf(Schema.of(Schema.Type.DOUBLE))));
+	}
+
+	public static Boolean isSparseVector(Schema schema) {
+
+		Schema recordSchema = getNonNullIfNullable(schema);
+		if (recordSchema.getType().equals(Schema.Type.RECORD) == false)
+			return false;
+
+		Schema.Field size = recordSchema.getField("size");
+		Schema.Field indices = recordSchema.getField("indices");
+		Schema.Field values = recordSchema.getField("values");
+
+		if (size == null || indices == null || values == null)
+			return false;
+
+		if (getNonNullIfNullable(size.getSchema()).getType().equals(Schema.Type.INT) == false)
+			return false;
+
+		Schema indicesSchema = getNonNullIfNullable(indices.getSchema());
+		if (indicesSchema.getType().equals(Schema.Type.ARRAY) == false
+				|| getNonNullIfNullable(indicesSchema.getComponentSchema()).getType().equals(Schema.Type.INT) == false)
+			return false;
+
+		Schema valuesSchema = getNonNullIfNullable(values.getSchema());
+		if (valuesSchema.getType().equals(Schema.Type.ARRAY) == false
+				|| getNonNullIfNullable(valuesSchema.getComponentSchema()).getType().equals(Schema.Type.DOUBLE) == false)
+			return false;
+
+		return true;
+
+	}
 
 	public static Boolean isNumericType(Schema.Type dataType) {
 		switch (dataType) {
@@ -134,6 +180,20 @@ public class SchemaUtil {
 
 	}
 
+	/**
+	 * Feature fields either are an array of numeric values or
+	 * a sparse vector record
+	 */
+	public static void isFeatures(Schema schema, String fieldName) {
+
+		Schema.Field field = schema.getField(fieldName);
+		if (isSparseVector(field.getSchema()))
+			return;
+
+		isArrayOfNumeric(schema, fieldName);
+
+	}
+
 	public static void isArrayOfString(Schema schema, String fieldName) {
 
 		Schema.Field field = schema.getField(fieldName);
@@ -19,9 +19,12 @@ package de.kp.works.core;
  * 
  */
 
+import java.util.List;
+
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.RecordConverter;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.types.StructType;
@@ -29,13 +32,60 @@ import org.apache.spark.sql.types.StructType;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.spark.sql.DataFrames;
+import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 
 public class SessionHelper {
 
+	/**
+	 * A helper method to determine the schema of the provided
+	 * input without evaluating its upstream lineage: the schema
+	 * is taken from the design time or context input schema. 
+	 * 
+	 * Only if no schema is available, the first record of the
+	 * input is peeked; as the records of a partition are computed 
+	 * lazily, this single job evaluates the lineage until the first 
+	 * record is found.
+	 * 
+	 * @param context
+	 * @param input
+	 * @return the input schema or null, if no schema is available
+	 * and the input is empty
+	 */
+	public static Schema getInputSchema(SparkExecutionPluginContext context, JavaRDD<StructuredRecord> input) {
+
+		Schema inputSchema = context.getInputSchema();
+		if (inputSchema != null)
+			return inputSchema;
+
+		StructuredRecord record = peek(input);
+		return (record == null) ? null : record.getSchema();
+
+	}
+
+	/**
+	 * A helper method to retrieve the first record of the provided
+	 * input with a single job; this replaces the combination of
+	 * input.isEmpty() and input.first()
+	 * 
+	 * @param input
+	 * @return the first record or null, if the input is empty
+	 */
+	public static StructuredRecord peek(JavaRDD<StructuredRecord> input) {
+
+		List<StructuredRecord> records = input.take(1);
+		return records.isEmpty() ? null : records.get(0);
+
+	}
+
 	/**
 	 * A helper method to transform a CDAP specific JavaRDD<StructuredRecord> into
 	 * an Apache Spark Dataset<Row>
 	 * 
+	 * Structured records are written directly into Spark's internal row format
+	 * by a schema specialized [RecordConverter]; the generic DataFrames based
+	 * conversion is used as a fallback for data types that are not supported
+	 * by the converter
+	 * 
 	 * @param input
 	 * @param structType
 	 * @param spark
@@ -43,6 +93,10 @@ public class SessionHelper {
 	 */
 	public static Dataset<Row> toDataset(JavaRDD<StructuredRecord> input, StructType structType, SparkSession spark) {
 
+		if (RecordConverter.isSupported(structType)) {
+			return RecordConverter.toDataset(input.rdd(), structType, spark);
+		}
+
 		JavaRDD<Row> rows = input.map(new RecordToRow(structType));
 		Dataset<Row> dataset = spark.createDataFrame(rows, structType);
 
@@ -60,6 +114,10 @@ public class SessionHelper {
 	 */
 	public static JavaRDD<StructuredRecord> fromDataset(Dataset<Row> output, Schema schema) {
 
+		if (RecordConverter.isSupported(schema, output.schema())) {
+			return RecordConverter.fromDataset(output, schema).toJavaRDD();
+		}
+
 		JavaRDD<StructuredRecord> records = output.javaRDD().map(new RowToRecord(schema));
 		return records;
 
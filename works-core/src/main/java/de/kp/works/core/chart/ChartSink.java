@@ -18,6 +18,9 @@ package de.kp.works.core.chart;
  * 
  */
 
+import java.io.Serializable;
+
+import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.sql.Dataset;
@@ -25,6 +28,8 @@ import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.types.StructType;
 
+import scala.Tuple2;
+
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.dataset.table.Put;
@@ -48,12 +53,17 @@ public class ChartSink extends BaseSink {
 	public void run(SparkExecutionPluginContext context, JavaRDD<StructuredRecord> input) throws Exception {
 
 		JavaSparkContext jsc = context.getSparkContext();
-		if (input.isEmpty())
-			return;
-
+		/*
+		 * Writing an empty input is a no-operation; therefore the
+		 * input is not checked upfront, and the upstream lineage is
+		 * only evaluated, if no input schema is available
+		 */
 		if (inputSchema == null) {
 			
-			inputSchema = input.first().getSchema();
+			inputSchema = SessionHelper.getInputSchema(context, input);
+			if (inputSchema == null)
+				return;
+
 			validateSchema(inputSchema);
 		}
 
@@ -66,32 +76,90 @@ public class ChartSink extends BaseSink {
 
 	}
 	
+	/**
+	 * The driver-side write path: the dataset is collected and each row
+	 * is written to the table from the driver; this path is restricted
+	 * to small samples
+	 */
 	public void writeDataset(Table table, String timeCol, String valueCol, Dataset<Row> dataset) {
+		writeDataset(table, timeCol, valueCol, null, dataset);
+	}
+	
+	/**
+	 * A helper method to persist the samples of multiple series; the row key
+	 * is composed of the series identifier and the timestamp
+	 */
+	public void writeDataset(Table table, String timeCol, String valueCol, String groupCol, Dataset<Row> dataset) {
 		
 		StructType schema = dataset.schema();
 		
 		Field timeField = new Field(schema.fieldIndex(timeCol), timeCol);
 		Field valueField = new Field(schema.fieldIndex(valueCol), valueCol);
+
+		Field groupField = (groupCol == null) ? null : new Field(schema.fieldIndex(groupCol), groupCol);
 		
 		for (Row row : dataset.collectAsList()) {
-			
-			/* Key & timestamp */
-			Long ts = row.getLong(timeField.index);			
-			byte[] key = Bytes.toBytes(ts);
-			
-			Put put = new Put(key);
-			put.add(timeField.name, ts);
+			table.put(toPut(row, timeField, valueField, groupField));
+		}
+		
+	}
+	
+	/**
+	 * The executor-side write path: each partition transforms its rows
+	 * into table puts, which are saved through the dataset API by the
+	 * executors. The dataset output buffers the puts of a task and flushes
+	 * them in batches, i.e. the throughput scales with the partitions
+	 */
+	public void writeDataset(SparkExecutionPluginContext context, String tableName, String timeCol, String valueCol,
+			String groupCol, Dataset<Row> dataset) throws Exception {
+		
+		StructType schema = dataset.schema();
+		
+		Field timeField = new Field(schema.fieldIndex(timeCol), timeCol);
+		Field valueField = new Field(schema.fieldIndex(valueCol), valueCol);
+
+		Field groupField = (groupCol == null) ? null : new Field(schema.fieldIndex(groupCol), groupCol);
+
+		JavaPairRDD<byte[], Put> puts = dataset.toJavaRDD().mapToPair(row -> {
 
-			/* Value field */
-			put.add(valueField.name, row.getDouble(valueField.index));
+			Put put = toPut(row, timeField, valueField, groupField);
+			return new Tuple2<>(put.getRow(), put);
 			
-			table.put(put);
+		});
+		
+		context.saveAsDataset(puts, tableName);
+		
+	}
+	
+	private static Put toPut(Row row, Field timeField, Field valueField, Field groupField) {
+		
+		/* Key & timestamp */
+		Long ts = ((Number) row.get(timeField.index)).longValue();
+		byte[] key = Bytes.toBytes(ts);
+		
+		String group = null;
+		if (groupField != null) {
+			
+			group = String.valueOf(row.get(groupField.index));
+			key = Bytes.add(Bytes.toBytes(group), new byte[] { 0 }, key);
 			
 		}
 		
+		Put put = new Put(key);
+		put.add(timeField.name, ts);
+		
+		if (group != null)
+			put.add(groupField.name, group);
+
+		/* Value field */
+		put.add(valueField.name, ((Number) row.get(valueField.index)).doubleValue());
+		return put;
+		
 	}
 	
-	public static class Field {
+	public static class Field implements Serializable {
+		
+		private static final long serialVersionUID = 3127405768371845320L;
 		
 		public Integer index;
 		public String name;
@@ -18,6 +18,8 @@ package de.kp.works.core.chart;
  * 
  */
 
+import javax.annotation.Nullable;
+
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 
@@ -40,6 +42,9 @@ import de.kp.works.core.Names;
 import de.kp.works.core.Params;
 import de.kp.works.core.SchemaUtil;
 import de.kp.works.core.ml.sampling.LTTBuckets;
+import de.kp.works.core.ml.sampling.AggregateBuckets;
+import de.kp.works.core.ml.sampling.M4Buckets;
+import de.kp.works.core.ml.sampling.MinMaxBuckets;
 /*
  * This class is intended to be used as a base sink for plotting purposes;
  * it writes records to a Table with one record field mapping to the Table 
@@ -55,6 +60,11 @@ public class TimeChart extends ChartSink {
 
 	private TimeChartConfig config;
 	private Table table;
+	/*
+	 * The maximum number of samples that are written
+	 * to the time series table from the driver
+	 */
+	private static final int DRIVER_WRITE_LIMIT = 10000;
 	
 	@Override
 	public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
@@ -101,6 +111,11 @@ public class TimeChart extends ChartSink {
 	public void compute(SparkExecutionPluginContext context, Dataset<Row> source) throws Exception {
 		
 		Dataset<Row> sampled = null;
+		/*
+		 * Aggregating samplers persist the points of the dataset,
+		 * which are released after the samples have been written
+		 */
+		AggregateBuckets aggregator = null;
 		/*
 		 * STEP #1: Downsample the dataset for support proper visualization; 
 		 * this stage also casts the value column
@@ -109,30 +124,81 @@ public class TimeChart extends ChartSink {
 		case Names.LLT_BUCKETS : {
 			/*
 			 * Largest Triangle Three Buckets sampling is an efficient
-			 * sampling method, that cannot be used with huge datasets
-			 * as sampling must be performed on the master node.
-			 * 
-			 * It is provided as a final sampling stage for time series
-			 * visualization that may be used in combination with other
-			 * sampling stages prior to this SparkSink.
+			 * sampling method; the dataset is range partitioned by time
+			 * and each partition is downsampled on its executor, i.e. the
+			 * time series is not collected to the master node.
 			 */
 			LTTBuckets sampler = new LTTBuckets();
 			sampler.setXCol(config.timeCol);
 			sampler.setYCol(config.valueCol);
 			
+			if (Strings.isNullOrEmpty(config.groupCol) == false)
+				sampler.setGroupCol(config.groupCol);
+			
+			sampler.setSampleSize(config.limit);
+			sampled = sampler.transform(source);
+			
+			break;
+		}
+		case Names.M4_BUCKETS : {
+			/*
+			 * M4 sampling selects the first, last, minimum and maximum
+			 * point of each time bucket; it is a pure aggregation that is
+			 * computed as a single groupBy over the dataset
+			 */
+			M4Buckets sampler = new M4Buckets();
+			sampler.setXCol(config.timeCol);
+			sampler.setYCol(config.valueCol);
+			
+			if (Strings.isNullOrEmpty(config.groupCol) == false)
+				sampler.setGroupCol(config.groupCol);
+			
+			sampler.setSampleSize(config.limit);
+			sampled = sampler.transform(source);
+			
+			aggregator = sampler;
+			break;
+		}
+		case Names.MIN_MAX_BUCKETS : {
+			/*
+			 * Min/max sampling selects the minimum and maximum point
+			 * of each time bucket as a single groupBy over the dataset
+			 */
+			MinMaxBuckets sampler = new MinMaxBuckets();
+			sampler.setXCol(config.timeCol);
+			sampler.setYCol(config.valueCol);
+			
+			if (Strings.isNullOrEmpty(config.groupCol) == false)
+				sampler.setGroupCol(config.groupCol);
+			
 			sampler.setSampleSize(config.limit);
 			sampled = sampler.transform(source);
 			
+			aggregator = sampler;
 			break;
 		}
 			default:
-				throw new IllegalArgumentException(String.format("Sampling method '$s' is not supported.", config.sampling));
+				throw new IllegalArgumentException(String.format("Sampling method '%s' is not supported.", config.sampling));
 		}
 		/*
 		 * STEP #2: After downsampling, the time series data (time, value)
-		 * is persisted leveraging CDAP's Table API
+		 * is persisted leveraging CDAP's Table API; small samples of a 
+		 * single series are written from the driver, all others from the
+		 * executors
 		 */
-		writeDataset(table, config.timeCol, config.valueCol, sampled);
+		try {
+
+			if (Strings.isNullOrEmpty(config.groupCol) && config.limit <= DRIVER_WRITE_LIMIT)
+				writeDataset(table, config.timeCol, config.valueCol, sampled);
+		
+			else
+				writeDataset(context, config.tableName, config.timeCol, config.valueCol,
+						Strings.emptyToNull(config.groupCol), sampled);
+
+		} finally {
+			if (aggregator != null)
+				aggregator.release();
+		}
 		
 	}
 
@@ -161,6 +227,11 @@ public class TimeChart extends ChartSink {
 		@Macro
 		public String valueCol;
 		
+		@Description(Params.GROUP_COL)
+		@Macro
+		@Nullable
+		public String groupCol;
+		
 		@Description(Params.CHART_LIMIT)
 		@Macro
 		public Integer limit;
@@ -232,6 +303,13 @@ public class TimeChart extends ChartSink {
 				throw new IllegalArgumentException(String.format("The data type of the field '%s' must be MUMERIC.", valueCol));
 			}
 
+			/** GROUP COLUMN **/
+
+			if (Strings.isNullOrEmpty(groupCol) == false && inputSchema.getField(groupCol) == null) {
+				throw new IllegalArgumentException(String
+						.format("[%s] The input schema must contain the specified field: %s.", this.getClass().getName(), groupCol));
+			}
+
 		}
 		
 	}
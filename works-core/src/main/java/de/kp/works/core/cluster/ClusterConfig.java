@@ -66,7 +66,7 @@ public class ClusterConfig extends BaseConfig {
 					"[%s] The input schema must contain the field that defines the feature vector.", this.getClass().getName()));
 		}
 
-		SchemaUtil.isArrayOfNumeric(inputSchema, featuresCol);
+		SchemaUtil.isFeatures(inputSchema, featuresCol);
 
 	}
 
@@ -53,17 +53,22 @@ public class ClusterSink extends BaseSink {
 
 		JavaSparkContext jsc = context.getSparkContext();
 		/*
-		 * In case of an empty input immediately return 
-		 * without any further processing
+		 * The emptiness check and the schema resolution share a
+		 * single job that peeks the first record of the input;
+		 * in case of an empty input immediately return without
+		 * any further processing
 		 */
-		if (input.isEmpty())
+		StructuredRecord first = SessionHelper.peek(input);
+		if (first == null)
 			return;
 
 		if (inputSchema == null) {
+			
+			inputSchema = context.getInputSchema();
+			if (inputSchema == null)
+				inputSchema = first.getSchema();
 
-			inputSchema = input.first().getSchema();
 			validateSchema(inputSchema);
-
 		}
 
 		SparkSession session = new SparkSession(jsc.sc());
@@ -44,7 +44,7 @@ public class LDARecorder extends ClusterRecorder {
 		 * Leverage Apache Spark mechanism to read the LDA clustering model from a model
 		 * specific file set
 		 */
-		return DistributedLDAModel.load(modelPath);
+		return loadModel(modelPath, true, () -> DistributedLDAModel.load(modelPath));
 
 	}
 
@@ -75,7 +75,7 @@ public class PredictorConfig extends BaseConfig {
 		}
 
 		/** FEATURES COLUMN **/
-		SchemaUtil.isArrayOfNumeric(inputSchema, featuresCol);
+		SchemaUtil.isFeatures(inputSchema, featuresCol);
 
 	}
 
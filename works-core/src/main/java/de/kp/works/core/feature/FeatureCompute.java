@@ -18,7 +18,6 @@ package de.kp.works.core.feature;
  * 
  */
 
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -27,20 +26,16 @@ import java.util.Map;
 
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
-import org.apache.spark.sql.functions;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
 import io.cdap.cdap.api.data.schema.Schema;
+import de.kp.works.core.Annotations;
 import de.kp.works.core.BaseCompute;
+import de.kp.works.core.SchemaUtil;
 import de.kp.works.core.model.ModelProfile;
 
 public class FeatureCompute extends BaseCompute {
 
 	private static final long serialVersionUID = -852876404206487204L;
 
-	protected Type annotationType = new TypeToken<List<Map<String, Object>>>() {
-	}.getType();
 	/*
 	 * The annotation type supported by this feature stage
 	 */
@@ -98,42 +93,38 @@ public class FeatureCompute extends BaseCompute {
 
 	}	
 	
+	/**
+	 * A helper method to compute the output schema in that use cases 
+	 * where an input schema is explicitly provided; the input schema
+	 * is enriched by either an Array[Double] or a sparse vector field
+	 * and an internal annotation field
+	 */
+	protected Schema getVectorOutputSchema(Schema inputSchema, String outputField, Boolean sparse) {
+
+		if (sparse == false)
+			return getArrayOutputSchema(inputSchema, outputField, Schema.Type.DOUBLE);
+
+		List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields());		
+		fields.add(Schema.Field.of(outputField, SchemaUtil.getSparseVectorSchema()));		
+
+		if (inputSchema.getField(ANNOTATION_COL) == null)
+			fields.add(Schema.Field.of(ANNOTATION_COL, Schema.of(Schema.Type.STRING)));
+		
+		return Schema.recordOf(inputSchema.getRecordName() + ".transformed", fields);
+
+	}	
+	
 	/**
 	 * A helper method to enrich a feature result
 	 * with model profile metadata
 	 */
 	protected Dataset<Row> annotate(Dataset<Row> dataset, String annonType) {
-		
-		List<Map<String, Object>> annonItems = new ArrayList<>();
-		/*
-		 * STEP #1: The annotation column is an internal column
-		 * with a pre-defined internal column name. A feature
-		 * stage may not be the first (or last) stage to enrich
-		 * a certain result with model specific information
-		 */
-		if (hasColumn(dataset, ANNOTATION_COL)) {
-			/*
-			 * The current implementation enriches each row
-			 * with the same annotation; we therefore extract
-			 * them from the fist column
-			 */
-			Integer index = dataset.schema().fieldIndex(ANNOTATION_COL);
-
-			String annotation = dataset.first().getString(index);			
-			annonItems.addAll(annonToList(annotation));
-			
-		}
-		/*
-		 * STEP #2: Compute annotation for the current model
-		 * and add to the list of existing annotations
-		 */
-		annonItems.add(annotateProfile(annonType));
 		/*
-		 * STEP #3: Serialize annotation and enrich each row
-		 * with specified annotations
+		 * The profile of the current model is appended to the
+		 * annotations of previous stages per row, without an
+		 * extra Spark job
 		 */
-		String annotation = new Gson().toJson(annonItems);		
-		return dataset.withColumn(ANNOTATION_COL, functions.lit(annotation));
+		return Annotations.annotate(dataset, ANNOTATION_COL, annotateProfile(annonType));
 
 	}
 	
@@ -149,10 +140,6 @@ public class FeatureCompute extends BaseCompute {
 
 	}
 	
-	protected List<Map<String,Object>> annonToList(String annotation) {
-		return new Gson().fromJson(annotation, annotationType);
-	}
-	
 	/*
 	 * The current implementation is restricted to
 	 * annotate the unique model identifier and the
@@ -26,10 +26,14 @@ import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.data.schema.Schema;
 import de.kp.works.core.BaseConfig;
+import de.kp.works.core.Params;
 
 public class FeatureConfig extends BaseConfig {
 
 	private static final long serialVersionUID = -1568798398931701098L;
+
+	public static final String DENSE_FORMAT = "dense";
+	public static final String SPARSE_FORMAT = "sparse";
 	/*
 	 * Two different feature stages exist: one stage type is model based,
 	 * and the other is not. These stage types are managed with the same
@@ -54,10 +58,23 @@ public class FeatureConfig extends BaseConfig {
 	@Macro
 	public String outputCol;
 
+	@Description(Params.VECTOR_FORMAT)
+	@Macro
+	@Nullable
+	public String vectorFormat;
+
 	public FeatureConfig() {
 		modelStage = "experiment";
 	}
 
+	/**
+	 * High-dimensional feature stages may represent their output
+	 * as sparse vector record instead of an Array[Double]
+	 */
+	public Boolean isSparse() {
+		return SPARSE_FORMAT.equals(vectorFormat);
+	}
+
 	public void validate() {
 		super.validate();
 
@@ -73,6 +90,15 @@ public class FeatureConfig extends BaseConfig {
 					this.getClass().getName()));
 		}
 
+		/** VECTOR FORMAT **/
+		if (!containsMacro("vectorFormat") && Strings.isNullOrEmpty(vectorFormat) == false
+				&& DENSE_FORMAT.equals(vectorFormat) == false
+				&& SPARSE_FORMAT.equals(vectorFormat) == false) {
+			throw new IllegalArgumentException(
+					String.format("[%s] The vector format must be either 'dense' or 'sparse'.",
+							this.getClass().getName()));
+		}
+
 	}
 
 	public void validateSchema(Schema inputSchema) {
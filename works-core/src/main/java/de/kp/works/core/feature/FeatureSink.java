@@ -52,15 +52,21 @@ public class FeatureSink extends BaseSink {
 
 		JavaSparkContext jsc = context.getSparkContext();
 		/*
-		 * In case of an empty input immediately return 
-		 * without any further processing
+		 * The emptiness check and the schema resolution share a
+		 * single job that peeks the first record of the input;
+		 * in case of an empty input immediately return without
+		 * any further processing
 		 */
-		if (input.isEmpty())
+		StructuredRecord first = SessionHelper.peek(input);
+		if (first == null)
 			return;
 
 		if (inputSchema == null) {
 			
-			inputSchema = input.first().getSchema();
+			inputSchema = context.getInputSchema();
+			if (inputSchema == null)
+				inputSchema = first.getSchema();
+
 			validateSchema(inputSchema);
 		}
 
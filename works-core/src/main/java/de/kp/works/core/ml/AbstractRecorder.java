@@ -21,10 +21,12 @@ package de.kp.works.core.ml;
 import java.lang.reflect.Type;
 import java.security.MessageDigest;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
+import io.cdap.cdap.api.dataset.lib.FileSet;
 import io.cdap.cdap.api.dataset.table.Put;
 
 /*
@@ -49,21 +51,82 @@ import io.cdap.cdap.api.dataset.table.Put;
 import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Scanner;
 import io.cdap.cdap.api.dataset.table.Table;
+import io.cdap.cdap.etl.api.StageContext;
+import io.cdap.cdap.etl.api.StageMetrics;
+import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 import de.kp.works.core.Names;
+import de.kp.works.core.model.Leaderboard;
+import de.kp.works.core.model.ModelKey;
 import de.kp.works.core.model.ModelProfile;
 
 public class AbstractRecorder {
 
 	protected ModelProfile profile;
+	/*
+	 * The registry lookup (fileset, algorithm, name, stage
+	 * and option) that resolved the current model profile
+	 */
+	protected String pointer;
+	/*
+	 * The metrics of the stage that uses this recorder;
+	 * model cache hits, misses and evictions are reported
+	 */
+	protected StageMetrics metrics;
 
 	public ModelProfile getProfile() {
 		return profile;
 	}
 
+	/*
+	 * This method resolves the fileset path of the current model 
+	 * profile and registers the lookup that determined this profile
+	 */
+	protected String resolveModelPath(StageContext context, FileSet fs, String algorithmName, String modelName, String modelStage, String modelOption) {
+
+		metrics = context.getMetrics();
+		if (profile == null || profile.fsPath == null)
+			return null;
+
+		String basePath = fs.getBaseLocation().toURI().getPath();
+		pointer = String.join("|", basePath, algorithmName, modelName, modelStage, modelOption);
+
+		return fs.getBaseLocation().append(profile.fsPath).toURI().getPath();
+
+	}
+
+	/*
+	 * Models are loaded through the JVM-wide [ModelCache]; repeated reads 
+	 * of the same model (e.g. from several stages or short schedules) are
+	 * served from the cache, until the registry pointer changes
+	 */
+	protected <T> T loadModel(String modelPath, Callable<T> loader) throws Exception {
+		return loadModel(modelPath, false, loader);
+	}
+
+	/*
+	 * Models that are backed by datasets are bound to the Spark
+	 * context that loaded them, and are cached per Spark context
+	 */
+	protected <T> T loadModel(String modelPath, boolean sessionBound, Callable<T> loader) throws Exception {
+
+		String modelId = (profile == null) ? null : profile.id;
+		return ModelCache.getOrLoad(pointer, modelPath, modelId, sessionBound, metrics, loader);
+
+	}
+
 	/*
 	 * Metadata schemata for different ML model share common fields; this method is
-	 * used to populate this shared fields
+	 * used to populate this shared fields. The row key is a composite key that is
+	 * built from algorithm, name, stage, namespace and the (reverse) timestamp
 	 */
+	public Put buildRow(Long timestamp, String namespace, String name, String version, String fsName, String fsPath,
+			String pack, String stage, String algorithm, String params) {
+
+		byte[] key = ModelKey.build(algorithm, name, stage, namespace, timestamp);
+		return buildRow(key, timestamp, namespace, name, version, fsName, fsPath, pack, stage, algorithm, params);
+
+	}
+
 	public Put buildRow(byte[] key, Long timestamp, String namespace, String name, String version, String fsName, String fsPath,
 			String pack, String stage, String algorithm, String params) {
 		/*
@@ -93,62 +156,82 @@ public class AbstractRecorder {
 
 	public Object getModelParam(Table table, String algorithmName, String modelName, String paramName) {
 
-		String strParams = null;
-		Row row;
+		Map<String, Object> params = getModelParams(table, algorithmName, modelName);
+		if (params == null)
+			return null;
+
+		return params.get(paramName);
+
+	}
+
+	public Map<String, Object> getModelParams(Table table, String algorithmName, String modelName) {
 		/*
-		 * Scan through all baseline models and determine the latest params of the model
-		 * with the same name
+		 * Determine the latest params of the model with the same name
+		 * from a prefix scan over all models of this algorithm & name
 		 */
-		Scanner rows = table.scan(null, null);
-		while ((row = rows.next()) != null) {
+		Row row = ModelKey.latest(table, ModelKey.prefix(algorithmName, modelName));
+		if (row == null)
+			return null;
 
-			String algorithm = row.getString("algorithm");
-			String name = row.getString("name");
+		return getModelParams(row);
+
+	}
+
+	public Map<String, Object> getModelParams(Table table, String algorithmName, String modelName, String modelStage,
+			String modelId) {
+		/*
+		 * Determine the params of the model with the provided identifier
+		 * from a prefix scan over all models of this algorithm, name and
+		 * stage; this is the model that has been loaded for this profile
+		 */
+		Scanner rows = ModelKey.scan(table, ModelKey.prefix(algorithmName, modelName, modelStage));
+		try {
+
+			Row row;
+			while ((row = rows.next()) != null) {
+
+				if (modelId.equals(row.getString("id")))
+					return getModelParams(row);
 
-			if (algorithm.equals(algorithmName) && name.equals(modelName)) {
-				strParams = row.getString("params");
 			}
+
+		} finally {
+			rows.close();
 		}
 
+		return null;
+
+	}
+
+	private Map<String, Object> getModelParams(Row row) {
+
+		String strParams = row.getString("params");
 		if (strParams == null)
 			return null;
 
 		Type paramsType = new TypeToken<Map<String, Object>>() {
 		}.getType();
-		Map<String, Object> params = new Gson().fromJson(strParams, paramsType);
-
-		return params.get(paramName);
+		return new Gson().fromJson(strParams, paramsType);
 
 	}
 
 	public String getLatestModelVersion(Table table, String algorithmName, String modelNamespace, String modelName, String modelStage) {
-
-		String strVersion = null;
-
-		Row row;
 		/*
-		 * Scan through all baseline models and determine the latest version of the
-		 * model with the same name
+		 * Determine the latest version of the model with the same name from
+		 * a prefix scan; the reverse timestamp of the row key ensures that
+		 * the first row of this scan is the latest one
 		 */
-		Scanner rows = table.scan(null, null);
-		while ((row = rows.next()) != null) {
-
-			String algorithm = row.getString("algorithm");
-			if (algorithm.equals(algorithmName)) {
+		String strVersion = null;
 
-				String name = row.getString("name");
-				if (name.equals(modelName)) {
+		Scanner rows = ModelKey.scan(table, ModelKey.prefix(algorithmName, modelName, modelStage, modelNamespace));
+		try {
 
-					String namespace = row.getString("namespace");
-					if (namespace.equals(modelNamespace)) {
-	
-						String stage = row.getString("stage");
-						if (stage.equals(modelStage))
-							strVersion = row.getString("version");
+			Row row = rows.next();
+			if (row != null)
+				strVersion = row.getString("version");
 
-					}
-				}
-			}
+		} finally {
+			rows.close();
 		}
 
 		if (strVersion == null) {
@@ -156,41 +239,99 @@ public class AbstractRecorder {
 
 		} else {
 
-			String[] tokens = strVersion.split("-");
-			int numVersion = Integer.parseInt(tokens[1]) + 1;
+			int numVersion = Integer.parseInt(getVersionNumber(strVersion)) + 1;
+			return "M-" + numVersion;
 
-			return Integer.toString(numVersion);
 		}
 
 	}
 
-	public ModelProfile getLatestModelProfile(Table table, String algorithmName, String modelName, String modelStage) {
-
-		ModelProfile profile = null;
+	/*
+	 * Model versions are specified as 'M-<number>'; earlier versions
+	 * may have been registered with the plain number
+	 */
+	protected String getVersionNumber(String version) {
+		return version.startsWith("M-") ? version.substring(2) : version;
+	}
 
-		Row row;
+	public ModelProfile getVersionModelProfile(Table table, String algorithmName, String modelName, String modelStage, String modelVersion) {
 		/*
-		 * Scan through all baseline models and determine the latest fileset path
+		 * Determine the fileset path of a specific model version from a
+		 * prefix scan over all models of this algorithm, name and stage;
+		 * the first matching row is the latest one with this version
 		 */
-		Scanner rows = table.scan(null, null);
-		while ((row = rows.next()) != null) {
+		String number = getVersionNumber(modelVersion);
 
-			String algorithm = row.getString("algorithm");
-			if (algorithm.equals(algorithmName)) {
+		Scanner rows = ModelKey.scan(table, ModelKey.prefix(algorithmName, modelName, modelStage));
+		try {
 
-				String name = row.getString("name");
-				if (name.equals(modelName)) {
+			Row row;
+			while ((row = rows.next()) != null) {
 
-					String stage = row.getString("stage");
-					if (stage.equals(modelStage))
-						profile = new ModelProfile().setId(row.getString("id")).setPath(row.getString("fsPath"));
+				String version = row.getString("version");
+				if (version != null && getVersionNumber(version).equals(number))
+					return new ModelProfile().setId(row.getString("id")).setPath(row.getString("fsPath"));
 
-				}
 			}
 
+		} finally {
+			rows.close();
 		}
 
-		return profile;
+		return null;
+
+	}
+
+	/*
+	 * This method determines the profile of a model that has just been
+	 * registered with the provided row key; it is used to reference the
+	 * tracked model, e.g. from a leaderboard
+	 */
+	protected ModelProfile getRegisteredProfile(Table table, byte[] key) {
+
+		Row row = table.get(key);
+		return new ModelProfile().setId(row.getString("id")).setPath(row.getString(Names.FS_PATH))
+				.setVersion(row.getString("version"));
+
+	}
+
+	public ModelProfile getLeaderModelProfile(SparkExecutionPluginContext context, String task, String algorithmName,
+			String modelName, String modelStage) {
+		/*
+		 * The leaderboard table is created by the first multi-algorithm
+		 * training stage; without this table, no leader exists
+		 */
+		Table table;
+		try {
+			table = SparkMLManager.getLeaderboardTable(context);
+
+		} catch (Exception e) {
+			return null;
+		}
+
+		Leaderboard.Entry leader = Leaderboard.leader(table, task, modelName, modelStage);
+		if (leader == null || leader.fsPath == null)
+			return null;
+
+		if (leader.algorithm.equals(algorithmName) == false)
+			throw new IllegalArgumentException(
+					String.format("The leading model '%s' is trained with algorithm '%s' and cannot be used with algorithm '%s'.",
+							modelName, leader.algorithm, algorithmName));
+
+		return leader.getProfile();
+
+	}
+
+	public ModelProfile getLatestModelProfile(Table table, String algorithmName, String modelName, String modelStage) {
+		/*
+		 * Determine the latest fileset path from a prefix scan over 
+		 * all models of this algorithm, name and stage
+		 */
+		Row row = ModelKey.latest(table, ModelKey.prefix(algorithmName, modelName, modelStage));
+		if (row == null)
+			return null;
+
+		return new ModelProfile().setId(row.getString("id")).setPath(row.getString("fsPath"));
 
 	}
 }
@@ -19,12 +19,12 @@ import java.util.Map;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
-import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.FileSet;
 import io.cdap.cdap.api.dataset.table.Put;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 import de.kp.works.core.Names;
+import de.kp.works.core.model.BestModel;
 import de.kp.works.core.model.ModelProfile;
 import de.kp.works.core.model.ModelScanner;
 
@@ -47,12 +47,23 @@ public class ClassifierRecorder extends AbstractRecorder {
 			profile = getLatestModelProfile(table, algorithmName, modelName, modelStage);
 			break;
 		}
+		case "leader" : {
+			/*
+			 * The leading model of the last multi-algorithm
+			 * training run of this model name and stage
+			 */
+			profile = getLeaderModelProfile(context, SparkMLManager.CLASSIFICATION_TABLE, algorithmName, modelName, modelStage);
+			break;
+		}
 		default:
-			throw new Exception(String.format("Model option '%s' is not supported yet.", modelOption));
+			/*
+			 * Any other model option specifies a certain 
+			 * model version, e.g. 'M-3'
+			 */
+			profile = getVersionModelProfile(table, algorithmName, modelName, modelStage, modelOption);
 		}
 
-		if (profile.fsPath == null) return null;
-		return fs.getBaseLocation().append(profile.fsPath).toURI().getPath();
+		return resolveModelPath(context, fs, algorithmName, modelName, modelStage, modelOption);
 		
 	}
 	
@@ -74,8 +85,7 @@ public class ClassifierRecorder extends AbstractRecorder {
 		String fsName = SparkMLManager.CLASSIFICATION_FS;
 		String modelVersion = getLatestModelVersion(table, algorithmName, namespace, modelName, modelStage);
 
-		byte[] key = Bytes.toBytes(ts);
-		Put row = buildRow(key, ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
+		Put row = buildRow(ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
 				modelParams);
 
 		/*
@@ -95,6 +105,14 @@ public class ClassifierRecorder extends AbstractRecorder {
 				.add(Names.WEIGHTED_PRECISION, weightedPrecision).add(Names.WEIGHTED_RECALL, weightedRecall)
 				.add(Names.WEIGHTED_FALSE_POSITIVE, weightedFalsePositiveRate)
 				.add(Names.WEIGHTED_TRUE_POSITIVE, weightedTruePositiveRate));
+		/*
+		 * Update the materialized best model pointer
+		 */
+		BestModel.CLASSIFIER.update(table, row.getRow());
+		/*
+		 * Expose the profile of the registered model
+		 */
+		profile = getRegisteredProfile(table, row.getRow());
 
 	}
 
@@ -19,13 +19,13 @@ import java.util.Map;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
-import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.FileSet;
 import io.cdap.cdap.api.dataset.table.Put;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 
 import de.kp.works.core.Names;
+import de.kp.works.core.model.BestModel;
 import de.kp.works.core.model.ModelProfile;
 import de.kp.works.core.model.ModelScanner;
 
@@ -52,8 +52,7 @@ public class ClusterRecorder extends AbstractRecorder {
 			throw new Exception(String.format("Model option '%s' is not supported yet.", modelOption));
 		}
 
-		if (profile.fsPath == null) return null;
-		return fs.getBaseLocation().append(profile.fsPath).toURI().getPath();
+		return resolveModelPath(context, fs, algorithmName, modelName, modelStage, modelOption);
 
 	}
 
@@ -75,8 +74,7 @@ public class ClusterRecorder extends AbstractRecorder {
 		String fsName = SparkMLManager.CLUSTERING_FS;
 		String modelVersion = getLatestModelVersion(table, algorithmName, namespace, modelName, modelStage);
 
-		byte[] key = Bytes.toBytes(ts);
-		Put row = buildRow(key, ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
+		Put row = buildRow(ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
 				modelParams);
 
 		/*
@@ -91,6 +89,12 @@ public class ClusterRecorder extends AbstractRecorder {
 
 		table.put(row.add(Names.SILHOUETTE_EUCLDIAN, silhouette_euclidean).add(Names.SILHOUETTE_COSINE, silhouette_cosine)
 				.add(Names.PERPLEXITY, perplexity).add(Names.LIKELIHOOD, likelihood));
+		/*
+		 * Update the materialized best model pointer
+		 */
+		BestModel bestModel = BestModel.forCluster(algorithmName);
+		if (bestModel != null)
+			bestModel.update(table, row.getRow());
 
 	}
 
@@ -13,7 +13,6 @@ package de.kp.works.core.ml;
  * 
  */
 
-import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.FileSet;
 import io.cdap.cdap.api.dataset.table.Put;
 import io.cdap.cdap.api.dataset.table.Table;
@@ -42,8 +41,7 @@ public class FeatureRecorder extends AbstractRecorder {
 			throw new Exception(String.format("Model option '%s' is not supported yet.", modelOption));
 		}
 
-		if (profile.fsPath == null)return null;
-		return fs.getBaseLocation().append(profile.fsPath).toURI().getPath();
+		return resolveModelPath(context, fs, algorithmName, modelName, modelStage, modelOption);
 
 	}
 
@@ -65,8 +63,7 @@ public class FeatureRecorder extends AbstractRecorder {
 		String fsName = SparkMLManager.FEATURE_FS;
 		String modelVersion = getLatestModelVersion(table, algorithmName, namespace, modelName, modelStage);
 
-		byte[] key = Bytes.toBytes(ts);
-		Put row = buildRow(key, ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
+		Put row = buildRow(ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
 				modelParams);
 
 		table.put(row.add("metrics", modelMetrics));
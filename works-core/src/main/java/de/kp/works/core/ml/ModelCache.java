@@ -0,0 +1,332 @@
+package de.kp.works.core.ml;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.SparkContext;
+import org.apache.spark.ml.param.ParamMap;
+import org.apache.spark.ml.param.Params;
+
+import io.cdap.cdap.etl.api.StageMetrics;
+
+/**
+ * [ModelCache] is a JVM-wide, size-aware LRU cache of the models that
+ * have been loaded by the recorders. Models are cached by their fileset
+ * path and model identifier; the size of a model is approximated by the
+ * size of its persisted artifacts. Models whose size cannot be determined
+ * are not cached, as they would not count towards the capacity.
+ *
+ * The cache also tracks the model that is currently referenced by a certain
+ * registry lookup (algorithm, name, stage and option): if the 'best' or
+ * 'latest' pointer of this lookup changes, the previously referenced model
+ * is invalidated.
+ *
+ * Models that are backed by datasets (e.g. the factors of an ALS model) are
+ * bound to the Spark context that loaded them; they are cached per Spark
+ * application, and are released as soon as their Spark context is stopped.
+ * Hits, misses and evictions are reported to the metrics of the requesting
+ * stage.
+ */
+public class ModelCache {
+	/*
+	 * The default capacity of the cache is restricted to a quarter
+	 * of the maximum memory of the JVM
+	 */
+	private static long maxBytes = Runtime.getRuntime().maxMemory() / 4;
+	private static long curBytes = 0L;
+
+	private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private static final Map<String, String> pointers = new HashMap<>();
+	/*
+	 * Cache metrics
+	 */
+	private static long hits = 0L;
+	private static long misses = 0L;
+	private static long evictions = 0L;
+
+	/*
+	 * The names of the stage metrics
+	 */
+	private static final String HITS = "model.cache.hits";
+	private static final String MISSES = "model.cache.misses";
+	private static final String EVICTIONS = "model.cache.evictions";
+
+	private static class Entry {
+
+		Object model;
+		long size;
+		/*
+		 * The Spark context of a dataset backed
+		 * model, and null for all other models
+		 */
+		SparkContext context;
+
+		Entry(Object model, long size, SparkContext context) {
+			this.model = model;
+			this.size = size;
+			this.context = context;
+		}
+
+	}
+
+	/**
+	 * This method either returns the cached model that refers to the
+	 * provided path and identifier, or loads the model and registers
+	 * it with the cache
+	 *
+	 * @param pointer The registry lookup that resolved the model
+	 * @param modelPath The fileset path of the model
+	 * @param modelId The unique model identifier
+	 * @param sessionBound Indicator to determine whether the model is
+	 *        backed by datasets of the current Spark context
+	 * @param metrics The (optional) metrics of the requesting stage
+	 * @param loader The function to load the model from the fileset
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T getOrLoad(String pointer, String modelPath, String modelId, boolean sessionBound,
+			StageMetrics metrics, Callable<T> loader) throws Exception {
+
+		String key = modelPath + "|" + modelId;
+
+		SparkContext context = null;
+		if (sessionBound) {
+
+			context = SparkContext.getOrCreate();
+			key = key + "|" + context.applicationId();
+
+		}
+
+		synchronized (ModelCache.class) {
+			/*
+			 * Release the dataset backed models of
+			 * Spark contexts that have been stopped
+			 */
+			removeStopped();
+			/*
+			 * Invalidate the model that has been referenced by the
+			 * provided lookup before, if the pointer has changed
+			 */
+			if (pointer != null) {
+
+				String previous = pointers.put(pointer, key);
+				if (previous != null && previous.equals(key) == false)
+					remove(previous);
+
+			}
+
+			Entry entry = entries.get(key);
+			if (entry != null) {
+
+				hits += 1;
+				count(metrics, HITS, 1);
+
+				return (T) copyOf(entry.model);
+
+			}
+
+			misses += 1;
+			count(metrics, MISSES, 1);
+
+		}
+		/*
+		 * The model is loaded outside the lock, as loading
+		 * large models from the fileset is expensive
+		 */
+		T model = loader.call();
+		if (model == null) return null;
+
+		long size = sizeOf(modelPath);
+		synchronized (ModelCache.class) {
+			/*
+			 * Models of unknown size or that exceed the
+			 * capacity of the cache are not cached at all
+			 */
+			if (size <= 0L || size > maxBytes) return model;
+
+			Entry previous = entries.put(key, new Entry(model, size, context));
+			if (previous != null) curBytes -= previous.size;
+
+			curBytes += size;
+			count(metrics, EVICTIONS, evict());
+
+		}
+
+		return (T) copyOf(model);
+
+	}
+
+	public static synchronized void invalidate(String modelPath) {
+
+		Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+		while (iter.hasNext()) {
+
+			Map.Entry<String, Entry> entry = iter.next();
+			if (entry.getKey().startsWith(modelPath + "|")) {
+
+				curBytes -= entry.getValue().size;
+				iter.remove();
+
+			}
+		}
+
+	}
+
+	public static synchronized void invalidateAll() {
+
+		entries.clear();
+		pointers.clear();
+
+		curBytes = 0L;
+
+	}
+
+	public static synchronized void setMaxBytes(long bytes) {
+
+		maxBytes = bytes;
+		evict();
+
+	}
+
+	private static void count(StageMetrics metrics, String name, int delta) {
+
+		if (metrics != null && delta > 0)
+			metrics.count(name, delta);
+
+	}
+
+	public static synchronized long getHits() {
+		return hits;
+	}
+
+	public static synchronized long getMisses() {
+		return misses;
+	}
+
+	public static synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public static synchronized long getSize() {
+		return curBytes;
+	}
+
+	public static synchronized int getCount() {
+		return entries.size();
+	}
+
+	private static void remove(String key) {
+
+		Entry entry = entries.remove(key);
+		if (entry != null) curBytes -= entry.size;
+
+	}
+
+	private static void removeStopped() {
+
+		Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+		while (iter.hasNext()) {
+
+			Entry entry = iter.next().getValue();
+			if (entry.context != null && entry.context.isStopped()) {
+
+				curBytes -= entry.size;
+				iter.remove();
+
+			}
+		}
+
+	}
+
+	/*
+	 * Returns the number of evicted entries
+	 */
+	private static int evict() {
+		/*
+		 * The iteration order of an access ordered map
+		 * starts with the least recently used entry
+		 */
+		int count = 0;
+
+		Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+		while (curBytes > maxBytes && iter.hasNext()) {
+
+			Map.Entry<String, Entry> entry = iter.next();
+
+			curBytes -= entry.getValue().size;
+			iter.remove();
+
+			evictions += 1;
+			count += 1;
+
+		}
+
+		return count;
+
+	}
+
+	/*
+	 * Stages that share a cached model assign their own column
+	 * params; therefore each stage receives a shallow copy of the
+	 * model that shares the (immutable) model data
+	 */
+	private static Object copyOf(Object model) {
+
+		if (model instanceof Params) {
+
+			try {
+				return ((Params) model).copy(ParamMap.empty());
+
+			} catch (Exception e) {
+				return model;
+			}
+
+		}
+
+		return model;
+
+	}
+
+	/*
+	 * The model path does not specify a scheme; it is resolved with the
+	 * Hadoop configuration of the Spark context, as Apache Spark does when
+	 * loading the model from this path. An unknown size is returned as -1
+	 */
+	private static long sizeOf(String modelPath) {
+
+		try {
+
+			Path path = new Path(modelPath);
+			FileSystem fs = path.getFileSystem(SparkContext.getOrCreate().hadoopConfiguration());
+
+			return fs.getContentSummary(path).getLength();
+
+		} catch (Exception e) {
+			return -1L;
+		}
+
+	}
+
+}
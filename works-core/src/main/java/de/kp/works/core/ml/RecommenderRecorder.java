@@ -51,8 +51,7 @@ public class RecommenderRecorder extends AbstractRecorder {
 			throw new Exception(String.format("Model option '%s' is not supported yet.", modelOption));
 		}
 
-		if (profile.fsPath == null)return null;
-		return fs.getBaseLocation().append(profile.fsPath).toURI().getPath();
+		return resolveModelPath(context, fs, algorithmName, modelName, modelStage, modelOption);
 
 	}
 
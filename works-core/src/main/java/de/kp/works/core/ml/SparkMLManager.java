@@ -25,6 +25,7 @@ import io.cdap.cdap.api.dataset.table.TableProperties;
 import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 import io.cdap.cdap.etl.api.batch.SparkPluginContext;
 import de.kp.works.core.Names;
+import de.kp.works.core.model.ModelKey;
 
 /**
  * [SparkMLManager] defines the entry point for Apache Spark based model
@@ -90,6 +91,11 @@ public class SparkMLManager {
 	 * be interpreted as an absolute path in the file system
 	 */
 	public static String FEATURE_FS_BASE = "models/feature/";
+	/*
+	 * The name of the internal dataset that is used to persist the ranking
+	 * of models that have been trained by multi-algorithm stages
+	 */
+	public static String LEADERBOARD_TABLE = "Leaderboards";
 	/*
 	 * The model of the internal dataset that is used to persist metadata for
 	 * recommendation models.
@@ -189,8 +195,7 @@ public class SparkMLManager {
 	public static Table getClassificationTable(SparkExecutionPluginContext context)
 			throws DatasetManagementException, Exception {
 
-		Table table = context.getDataset(CLASSIFICATION_TABLE);
-		return table;
+		return getRegistryTable(context, CLASSIFICATION_TABLE);
 
 	}
 
@@ -224,6 +229,14 @@ public class SparkMLManager {
 
 			context.createDataset(CLASSIFICATION_TABLE, Table.class.getName(), builder.build());
 
+		} else {
+			/*
+			 * The metadata table exists already; make sure that its timestamp
+			 * based row keys are migrated to composite row keys
+			 */
+			Table table = context.getDataset(CLASSIFICATION_TABLE);
+			ModelKey.migrate(table);
+
 		}
 		
 
@@ -262,8 +275,7 @@ public class SparkMLManager {
 	public static Table getClusteringTable(SparkExecutionPluginContext context)
 			throws DatasetManagementException, Exception {
 
-		Table table = context.getDataset(CLUSTERING_TABLE);
-		return table;
+		return getRegistryTable(context, CLUSTERING_TABLE);
 
 	}
 
@@ -297,6 +309,14 @@ public class SparkMLManager {
 
 			context.createDataset(CLUSTERING_TABLE, Table.class.getName(), builder.build());
 
+		} else {
+			/*
+			 * The metadata table exists already; make sure that its timestamp
+			 * based row keys are migrated to composite row keys
+			 */
+			Table table = context.getDataset(CLUSTERING_TABLE);
+			ModelKey.migrate(table);
+
 		}
 		
 
@@ -335,8 +355,7 @@ public class SparkMLManager {
 	public static Table getFeatureTable(SparkExecutionPluginContext context)
 			throws DatasetManagementException, Exception {
 
-		Table table = context.getDataset(FEATURE_TABLE);
-		return table;
+		return getRegistryTable(context, FEATURE_TABLE);
 
 	}
 
@@ -370,11 +389,43 @@ public class SparkMLManager {
 
 			context.createDataset(FEATURE_TABLE, Table.class.getName(), builder.build());
 
+		} else {
+			/*
+			 * The metadata table exists already; make sure that its timestamp
+			 * based row keys are migrated to composite row keys
+			 */
+			Table table = context.getDataset(FEATURE_TABLE);
+			ModelKey.migrate(table);
+
 		}
 		
 
 	}
 
+	/***** LEADERBOARD *****/
+
+	public static Table getLeaderboardTable(SparkExecutionPluginContext context)
+			throws DatasetManagementException, Exception {
+
+		Table table = context.getDataset(LEADERBOARD_TABLE);
+		return table;
+
+	}
+
+	public static void createLeaderboardIfNotExists(SparkPluginContext context) throws DatasetManagementException {
+
+		if (context.datasetExists(LEADERBOARD_TABLE) == false) {
+
+			TableProperties.Builder builder = TableProperties.builder();
+			builder.setDescription(
+					"This table contains the ranking of ML models that have been trained by multi-algorithm stages.");
+
+			context.createDataset(LEADERBOARD_TABLE, Table.class.getName(), builder.build());
+
+		}
+
+	}
+
 	/***** RECOMMENDATION *****/
 
 	public static FileSet getRecommendationFS(SparkPluginContext context) throws DatasetManagementException, Exception {
@@ -408,8 +459,7 @@ public class SparkMLManager {
 	public static Table getRecommendationTable(SparkExecutionPluginContext context)
 			throws DatasetManagementException, Exception {
 
-		Table table = context.getDataset(RECOMMENDATION_TABLE);
-		return table;
+		return getRegistryTable(context, RECOMMENDATION_TABLE);
 
 	}
 
@@ -444,6 +494,14 @@ public class SparkMLManager {
 
 			context.createDataset(RECOMMENDATION_TABLE, Table.class.getName(), builder.build());
 
+		} else {
+			/*
+			 * The metadata table exists already; make sure that its timestamp
+			 * based row keys are migrated to composite row keys
+			 */
+			Table table = context.getDataset(RECOMMENDATION_TABLE);
+			ModelKey.migrate(table);
+
 		}
 		
 
@@ -482,8 +540,7 @@ public class SparkMLManager {
 	public static Table getRegressionTable(SparkExecutionPluginContext context)
 			throws DatasetManagementException, Exception {
 
-		Table table = context.getDataset(REGRESSION_TABLE);
-		return table;
+		return getRegistryTable(context, REGRESSION_TABLE);
 
 	}
 
@@ -517,6 +574,14 @@ public class SparkMLManager {
 
 			context.createDataset(REGRESSION_TABLE, Table.class.getName(), builder.build());
 
+		} else {
+			/*
+			 * The metadata table exists already; make sure that its timestamp
+			 * based row keys are migrated to composite row keys
+			 */
+			Table table = context.getDataset(REGRESSION_TABLE);
+			ModelKey.migrate(table);
+
 		}
 		
 
@@ -555,8 +620,7 @@ public class SparkMLManager {
 	public static Table getTextTable(SparkExecutionPluginContext context)
 			throws DatasetManagementException, Exception {
 
-		Table table = context.getDataset(TEXTANALYSIS_TABLE);
-		return table;
+		return getRegistryTable(context, TEXTANALYSIS_TABLE);
 
 	}
 
@@ -590,6 +654,14 @@ public class SparkMLManager {
 
 			context.createDataset(TEXTANALYSIS_TABLE, Table.class.getName(), builder.build());
 
+		} else {
+			/*
+			 * The metadata table exists already; make sure that its timestamp
+			 * based row keys are migrated to composite row keys
+			 */
+			Table table = context.getDataset(TEXTANALYSIS_TABLE);
+			ModelKey.migrate(table);
+
 		}
 		
 
@@ -628,8 +700,7 @@ public class SparkMLManager {
 	public static Table getTimesTable(SparkExecutionPluginContext context)
 			throws DatasetManagementException, Exception {
 
-		Table table = context.getDataset(TIMESERIES_TABLE);
-		return table;
+		return getRegistryTable(context, TIMESERIES_TABLE);
 
 	}
 
@@ -663,6 +734,14 @@ public class SparkMLManager {
 
 			context.createDataset(TIMESERIES_TABLE, Table.class.getName(), builder.build());
 
+		} else {
+			/*
+			 * The metadata table exists already; make sure that its timestamp
+			 * based row keys are migrated to composite row keys
+			 */
+			Table table = context.getDataset(TIMESERIES_TABLE);
+			ModelKey.migrate(table);
+
 		}
 
 	}
@@ -855,4 +934,19 @@ public class SparkMLManager {
 
 	}
 
+	/*
+	 * Predictors may read a registry table that has not been written by
+	 * a training stage since the introduction of composite row keys; the
+	 * (one-time) migration of this table therefore also runs when it is
+	 * read
+	 */
+	private static Table getRegistryTable(SparkExecutionPluginContext context, String tableName) {
+
+		Table table = context.getDataset(tableName);
+		ModelKey.migrate(table);
+
+		return table;
+
+	}
+
 }
@@ -19,13 +19,13 @@ import java.util.Map;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
-import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.FileSet;
 import io.cdap.cdap.api.dataset.table.Put;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 import io.cdap.cdap.etl.api.batch.SparkPluginContext;
 import de.kp.works.core.Algorithms;
+import de.kp.works.core.model.BestModel;
 import de.kp.works.core.model.ModelProfile;
 import de.kp.works.core.model.ModelScanner;
 
@@ -53,8 +53,7 @@ public class TextRecorder extends AbstractRecorder {
 			throw new Exception(String.format("Model option '%s' is not supported yet.", modelOption));
 		}
 
-		if (profile.fsPath == null)return null;
-		return fs.getBaseLocation().append(profile.fsPath).toURI().getPath();
+		return resolveModelPath(context, fs, algorithmName, modelName, modelStage, modelOption);
 
 	}
 	
@@ -77,8 +76,7 @@ public class TextRecorder extends AbstractRecorder {
 			throw new Exception(String.format("Model option '%s' is not supported yet.", modelOption));
 		}
 
-		if (profile.fsPath == null)return null;
-		return fs.getBaseLocation().append(profile.fsPath).toURI().getPath();
+		return resolveModelPath(context, fs, algorithmName, modelName, modelStage, modelOption);
 
 	}
 
@@ -100,8 +98,7 @@ public class TextRecorder extends AbstractRecorder {
 		String fsName = SparkMLManager.TEXTANALYSIS_FS;
 		String modelVersion = getLatestModelVersion(table, algorithmName, namespace, modelName, modelStage);
 
-		byte[] key = Bytes.toBytes(ts);
-		Put row = buildRow(key, ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
+		Put row = buildRow(ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
 				modelParams);
 
 		if (algorithmName.equals(Algorithms.VIVEKN_SENTIMENT)) {
@@ -116,6 +113,10 @@ public class TextRecorder extends AbstractRecorder {
 			Double r2 = (Double) metrics.get("r2");
 
 			table.put(row.add("rsme", rsme).add("mse", mse).add("mae", mae).add("r2", r2));
+			/*
+			 * Update the materialized best model pointer
+			 */
+			BestModel.REGRESSOR.update(table, row.getRow());
 			
 		} else {
 			table.put(row.add("metrics", modelMetrics));
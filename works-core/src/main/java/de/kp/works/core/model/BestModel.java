@@ -0,0 +1,433 @@
+package de.kp.works.core.model;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import io.cdap.cdap.api.dataset.table.Put;
+import io.cdap.cdap.api.dataset.table.Row;
+import io.cdap.cdap.api.dataset.table.Scanner;
+import io.cdap.cdap.api.dataset.table.Table;
+import de.kp.works.core.Algorithms;
+import de.kp.works.core.Names;
+
+/**
+ * [BestModel] maintains a materialized 'best model' pointer for each
+ * algorithm, name and stage of a model registry. The pointer is updated
+ * whenever a new model is tracked, and 'best' model lookups are a single
+ * row read.
+ *
+ * The best model is determined as in [ModelFinder]: each metric value is
+ * compared with the respective best (minimum or maximum) value and scaled
+ * with the maximum; the model with the smallest sum of scaled deviations
+ * is the best one.
+ *
+ * As long as a new model does not change the minimum or maximum value of
+ * a metric, the scaled deviations of all other models remain unchanged, and
+ * the pointer is updated incrementally. Otherwise, the pointer is recomputed
+ * from a prefix scan over all models of the same algorithm, name and stage;
+ * this recomputation is also available as a repair command. Read paths that
+ * do not find a pointer use the read-only recomputation, and never modify
+ * the registry.
+ */
+public class BestModel {
+	/*
+	 * All classifiers are evaluated leveraging the same evaluator; the
+	 * weighted true positive rate is equivalent to the weighted recall
+	 * and must not be counted twice
+	 */
+	public static final BestModel CLASSIFIER = new BestModel(new String[] { Names.ACCURACY, Names.F1,
+			Names.WEIGHTED_FMEASURE, Names.WEIGHTED_PRECISION, Names.WEIGHTED_RECALL, Names.WEIGHTED_FALSE_POSITIVE },
+			true);
+
+	public static final BestModel CLUSTER = new BestModel(
+			new String[] { Names.SILHOUETTE_COSINE, Names.SILHOUETTE_EUCLDIAN }, true);
+
+	public static final BestModel LDA = new BestModel(new String[] { Names.LIKELIHOOD, Names.PERPLEXITY }, false);
+
+	public static final BestModel REGRESSOR = new BestModel(new String[] { Names.RSME, Names.MAE, Names.MSE, Names.R2 },
+			false);
+
+	private static final String BEST_ERR = "bestErr";
+	private static final String WORST_ERR = "worstErr";
+	private static final String TRUSTABILITY = "trustability";
+
+	private final String[] metricNames;
+	/*
+	 * Indicates whether the scaled deviations refer to the
+	 * maximum (true) or minimum (false) metric value
+	 */
+	private final boolean fromMax;
+
+	private BestModel(String[] metricNames, boolean fromMax) {
+		this.metricNames = metricNames;
+		this.fromMax = fromMax;
+	}
+
+	public static BestModel forCluster(String algorithmName) {
+
+		switch (algorithmName) {
+		case Algorithms.BISECTING_KMEANS:
+		case Algorithms.GAUSSIAN_MIXTURE:
+		case Algorithms.KMEANS: {
+			return CLUSTER;
+		}
+		case Algorithms.LATENT_DIRICHLET_ALLOCATION: {
+			return LDA;
+		}
+		default:
+			return null;
+		}
+
+	}
+
+	/**
+	 * This method resolves the best model of a certain algorithm,
+	 * name and stage with a single row read; null is returned, if
+	 * no pointer exists.
+	 */
+	public ModelProfile read(Table table, String algorithmName, String modelName, String modelStage) {
+
+		Row pointer = table.get(ModelKey.pointer(algorithmName, modelName, modelStage));
+		if (pointer.isEmpty())
+			return null;
+
+		return new ModelProfile().setId(pointer.getString(Names.ID)).setPath(pointer.getString(Names.FS_PATH))
+				.setTrustability(pointer.getDouble(TRUSTABILITY));
+
+	}
+
+	/**
+	 * This method updates the best model pointer with the model that
+	 * has just been tracked with the provided row key.
+	 */
+	public void update(Table table, byte[] key) {
+
+		Row model = table.get(key);
+
+		String algorithmName = model.getString("algorithm");
+		String modelName = model.getString("name");
+		String modelStage = model.getString("stage");
+
+		double[] values = getValues(model);
+		if (values == null)
+			return;
+
+		Row pointer = table.get(ModelKey.pointer(algorithmName, modelName, modelStage));
+		if (pointer.isEmpty()) {
+			repair(table, algorithmName, modelName, modelStage);
+			return;
+		}
+
+		double[] mins = new double[metricNames.length];
+		double[] maxs = new double[metricNames.length];
+
+		for (int i = 0; i < metricNames.length; i++) {
+
+			mins[i] = pointer.getDouble("min_" + metricNames[i]);
+			maxs[i] = pointer.getDouble("max_" + metricNames[i]);
+			/*
+			 * A new minimum or maximum value changes the scaled
+			 * deviations of all models; therefore the pointer is
+			 * recomputed from all models
+			 */
+			if (values[i] < mins[i] || values[i] > maxs[i]) {
+				repair(table, algorithmName, modelName, modelStage);
+				return;
+			}
+
+		}
+
+		double err = getErr(values, mins, maxs);
+
+		double bestErr = pointer.getDouble(BEST_ERR);
+		double worstErr = Math.max(pointer.getDouble(WORST_ERR), err);
+
+		String id = pointer.getString(Names.ID);
+		String fsPath = pointer.getString(Names.FS_PATH);
+
+		if (err < bestErr) {
+
+			bestErr = err;
+
+			id = model.getString(Names.ID);
+			fsPath = model.getString(Names.FS_PATH);
+
+		}
+
+		table.put(buildPointer(algorithmName, modelName, modelStage, id, fsPath, bestErr, worstErr, mins, maxs));
+
+	}
+
+	/**
+	 * This method recomputes the best model pointer from all models of the
+	 * provided algorithm, name and stage and writes it to the registry; it
+	 * is used, if the normalization of the metric values has changed, and
+	 * as a repair command.
+	 */
+	public ModelProfile repair(Table table, String algorithmName, String modelName, String modelStage) {
+
+		Pointer pointer = compute(table, algorithmName, modelName, modelStage);
+		if (pointer == null) {
+
+			table.delete(ModelKey.pointer(algorithmName, modelName, modelStage));
+			return null;
+
+		}
+
+		table.put(buildPointer(algorithmName, modelName, modelStage, pointer.id, pointer.fsPath, pointer.bestErr,
+				pointer.worstErr, pointer.mins, pointer.maxs));
+
+		return pointer.getProfile();
+
+	}
+
+	/**
+	 * This method determines the best model from all models of the provided
+	 * algorithm, name and stage without writing the pointer; it is used by
+	 * read paths (e.g. predictors) that do not find a materialized pointer.
+	 */
+	public ModelProfile recompute(Table table, String algorithmName, String modelName, String modelStage) {
+
+		Pointer pointer = compute(table, algorithmName, modelName, modelStage);
+		return (pointer == null) ? null : pointer.getProfile();
+
+	}
+
+	private Pointer compute(Table table, String algorithmName, String modelName, String modelStage) {
+
+		List<double[]> values = new ArrayList<>();
+		List<String[]> models = new ArrayList<>();
+
+		Scanner rows = ModelKey.scan(table, ModelKey.prefix(algorithmName, modelName, modelStage));
+		try {
+
+			Row row;
+			while ((row = rows.next()) != null) {
+
+				double[] modelValues = getValues(row);
+				if (modelValues == null)
+					continue;
+
+				values.add(modelValues);
+				models.add(new String[] { row.getString(Names.ID), row.getString(Names.FS_PATH) });
+
+			}
+
+		} finally {
+			rows.close();
+		}
+
+		if (values.isEmpty())
+			return null;
+
+		double[] mins = new double[metricNames.length];
+		double[] maxs = new double[metricNames.length];
+
+		for (int i = 0; i < metricNames.length; i++) {
+
+			mins[i] = Double.MAX_VALUE;
+			maxs[i] = -Double.MAX_VALUE;
+
+			for (double[] modelValues : values) {
+
+				mins[i] = Math.min(mins[i], modelValues[i]);
+				maxs[i] = Math.max(maxs[i], modelValues[i]);
+
+			}
+		}
+		/*
+		 * Within a namespace, the prefix scan returns the models from the
+		 * latest to the oldest one; the reverse iteration resolves ties in
+		 * favor of the older model, as the pointer update does
+		 */
+		int best = -1;
+
+		double bestErr = Double.MAX_VALUE;
+		double worstErr = 0D;
+
+		for (int j = values.size() - 1; j >= 0; j--) {
+
+			double err = getErr(values.get(j), mins, maxs);
+			if (best == -1 || err < bestErr) {
+
+				best = j;
+				bestErr = err;
+
+			}
+
+			worstErr = Math.max(worstErr, err);
+
+		}
+
+		Pointer pointer = new Pointer();
+
+		pointer.id = models.get(best)[0];
+		pointer.fsPath = models.get(best)[1];
+
+		pointer.bestErr = bestErr;
+		pointer.worstErr = worstErr;
+
+		pointer.mins = mins;
+		pointer.maxs = maxs;
+
+		return pointer;
+
+	}
+
+	private class Pointer {
+
+		String id;
+		String fsPath;
+
+		double bestErr;
+		double worstErr;
+
+		double[] mins;
+		double[] maxs;
+
+		ModelProfile getProfile() {
+			return new ModelProfile().setId(id).setPath(fsPath).setTrustability(getTrust(bestErr, worstErr));
+		}
+
+	}
+
+	/**
+	 * This method scores the metric values of models that have been
+	 * evaluated on the same test data with the scaled deviations of the
+	 * best model pointer; smaller scores are better, and models that do
+	 * not provide all metric values receive the maximum score.
+	 */
+	public double[] score(List<Map<String, Object>> metrics) {
+
+		List<double[]> values = new ArrayList<>();
+		for (Map<String, Object> modelMetrics : metrics) {
+			values.add(getValues(modelMetrics));
+		}
+
+		double[] mins = new double[metricNames.length];
+		double[] maxs = new double[metricNames.length];
+
+		for (int i = 0; i < metricNames.length; i++) {
+
+			mins[i] = Double.MAX_VALUE;
+			maxs[i] = -Double.MAX_VALUE;
+
+			for (double[] modelValues : values) {
+
+				if (modelValues == null)
+					continue;
+
+				mins[i] = Math.min(mins[i], modelValues[i]);
+				maxs[i] = Math.max(maxs[i], modelValues[i]);
+
+			}
+		}
+
+		double[] scores = new double[values.size()];
+		for (int j = 0; j < values.size(); j++) {
+			scores[j] = (values.get(j) == null) ? Double.MAX_VALUE : getErr(values.get(j), mins, maxs);
+		}
+
+		return scores;
+
+	}
+
+	private Put buildPointer(String algorithmName, String modelName, String modelStage, String id, String fsPath,
+			double bestErr, double worstErr, double[] mins, double[] maxs) {
+
+		Put pointer = new Put(ModelKey.pointer(algorithmName, modelName, modelStage))
+				.add(Names.TIMESTAMP, System.currentTimeMillis()).add("algorithm", algorithmName).add("name", modelName)
+				.add("stage", modelStage).add(Names.ID, id).add(Names.FS_PATH, fsPath).add(BEST_ERR, bestErr)
+				.add(WORST_ERR, worstErr).add(TRUSTABILITY, getTrust(bestErr, worstErr));
+
+		for (int i = 0; i < metricNames.length; i++) {
+			pointer.add("min_" + metricNames[i], mins[i]).add("max_" + metricNames[i], maxs[i]);
+		}
+
+		return pointer;
+
+	}
+
+	/*
+	 * Models that do not provide all metric values of this
+	 * evaluation are not taken into account
+	 */
+	private double[] getValues(Row row) {
+
+		double[] values = new double[metricNames.length];
+		for (int i = 0; i < metricNames.length; i++) {
+
+			Double value = row.getDouble(metricNames[i]);
+			if (value == null)
+				return null;
+
+			values[i] = value;
+
+		}
+
+		return values;
+
+	}
+
+	private double[] getValues(Map<String, Object> metrics) {
+
+		double[] values = new double[metricNames.length];
+		for (int i = 0; i < metricNames.length; i++) {
+
+			Object value = metrics.get(metricNames[i]);
+			if (value instanceof Number == false)
+				return null;
+
+			values[i] = ((Number) value).doubleValue();
+
+		}
+
+		return values;
+
+	}
+
+	private double getErr(double[] values, double[] mins, double[] maxs) {
+
+		double err = 0D;
+		for (int i = 0; i < values.length; i++) {
+
+			if (maxs[i] == 0D)
+				continue;
+
+			double reference = fromMax ? maxs[i] : mins[i];
+			err += Math.abs((reference - values[i]) / maxs[i]);
+
+		}
+
+		return err;
+
+	}
+
+	/*
+	 * Each model is described by a 'trustability' value
+	 * that normalizes the aggregated metric value
+	 */
+	private double getTrust(double bestErr, double worstErr) {
+		return (worstErr == 0D) ? 1D : (1 - bestErr / worstErr);
+	}
+
+}
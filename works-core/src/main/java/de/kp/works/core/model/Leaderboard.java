@@ -0,0 +1,228 @@
+package de.kp.works.core.model;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.table.Put;
+import io.cdap.cdap.api.dataset.table.Row;
+import io.cdap.cdap.api.dataset.table.Scanner;
+import io.cdap.cdap.api.dataset.table.Table;
+import de.kp.works.core.Names;
+
+/**
+ * [Leaderboard] ranks the models of different algorithms that have been
+ * trained and evaluated on the same data within a single pipeline run.
+ * The ranking uses the scaled metric deviations of [BestModel].
+ *
+ * Each leaderboard is identified by task (e.g. the registry table name),
+ * model name and stage, and is replaced by every run. Its entries specify
+ * the algorithm and the registered model (identifier, fileset path and
+ * version) of each model; predictors resolve the leading model with the
+ * model option 'leader'.
+ */
+public class Leaderboard {
+
+	private static final String PARAMS = "params";
+	private static final String METRICS = "metrics";
+
+	private static final String RANK = "rank";
+	private static final String SCORE = "score";
+
+	private static final String MODEL_ID = "id";
+	private static final String MODEL_VERSION = "version";
+
+	private static Type metricsType = new TypeToken<Map<String, Object>>() {
+	}.getType();
+
+	public static class Entry {
+
+		public String algorithm;
+
+		public String modelParams;
+		public String modelMetrics;
+		/*
+		 * The registered model of this entry
+		 */
+		public String modelId;
+		public String fsPath;
+		public String modelVersion;
+
+		public Integer rank;
+		public Double score;
+
+		public Entry(String algorithm, String modelParams, String modelMetrics) {
+
+			this.algorithm = algorithm;
+
+			this.modelParams = modelParams;
+			this.modelMetrics = modelMetrics;
+
+		}
+
+		public Entry setProfile(ModelProfile profile) {
+
+			if (profile != null) {
+
+				modelId = profile.id;
+				fsPath = profile.fsPath;
+				modelVersion = profile.version;
+
+			}
+
+			return this;
+
+		}
+
+		public ModelProfile getProfile() {
+			return new ModelProfile().setId(modelId).setPath(fsPath).setVersion(modelVersion);
+		}
+
+	}
+
+	/**
+	 * This method assigns rank and score to the provided entries
+	 * and returns them in the order of their rank
+	 */
+	public static List<Entry> rank(BestModel evaluation, List<Entry> entries) {
+
+		List<Map<String, Object>> metrics = new ArrayList<>();
+		for (Entry entry : entries) {
+			metrics.add(new Gson().fromJson(entry.modelMetrics, metricsType));
+		}
+
+		double[] scores = evaluation.score(metrics);
+		for (int i = 0; i < scores.length; i++) {
+			entries.get(i).score = scores[i];
+		}
+
+		List<Entry> ranked = new ArrayList<>(entries);
+		ranked.sort(Comparator.comparingDouble(entry -> entry.score));
+
+		for (int i = 0; i < ranked.size(); i++) {
+			ranked.get(i).rank = i + 1;
+		}
+
+		return ranked;
+
+	}
+
+	/**
+	 * This method replaces the leaderboard of the provided task,
+	 * model name and stage with the provided ranked entries
+	 */
+	public static void write(Table table, String task, String modelName, String modelStage, List<Entry> ranked) {
+
+		byte[] prefix = ModelKey.prefix(task, modelName, modelStage);
+		/*
+		 * Remove the entries of a previous run, as the set
+		 * of algorithms may differ from run to run
+		 */
+		List<byte[]> keys = new ArrayList<>();
+
+		Scanner rows = ModelKey.scan(table, prefix);
+		try {
+
+			Row row;
+			while ((row = rows.next()) != null) {
+				keys.add(row.getRow());
+			}
+
+		} finally {
+			rows.close();
+		}
+
+		for (byte[] key : keys) {
+			table.delete(key);
+		}
+
+		Long ts = System.currentTimeMillis();
+		for (Entry entry : ranked) {
+
+			Put put = new Put(Bytes.add(prefix, Bytes.toBytes(entry.algorithm))).add(Names.TIMESTAMP, ts)
+					.add("task", task).add("name", modelName).add("stage", modelStage).add("algorithm", entry.algorithm)
+					.add(RANK, entry.rank).add(SCORE, entry.score).add(PARAMS, entry.modelParams)
+					.add(METRICS, entry.modelMetrics);
+
+			if (entry.fsPath != null)
+				put.add(MODEL_ID, entry.modelId).add(Names.FS_PATH, entry.fsPath).add(MODEL_VERSION, entry.modelVersion);
+
+			table.put(put);
+
+		}
+
+	}
+
+	/**
+	 * This method retrieves the leaderboard of the provided task,
+	 * model name and stage in the order of the rank
+	 */
+	public static List<Entry> read(Table table, String task, String modelName, String modelStage) {
+
+		List<Entry> entries = new ArrayList<>();
+
+		Scanner rows = ModelKey.scan(table, ModelKey.prefix(task, modelName, modelStage));
+		try {
+
+			Row row;
+			while ((row = rows.next()) != null) {
+
+				Entry entry = new Entry(row.getString("algorithm"), row.getString(PARAMS), row.getString(METRICS));
+
+				entry.modelId = row.getString(MODEL_ID);
+				entry.fsPath = row.getString(Names.FS_PATH);
+				entry.modelVersion = row.getString(MODEL_VERSION);
+
+				entry.rank = row.getInt(RANK);
+				entry.score = row.getDouble(SCORE);
+
+				entries.add(entry);
+
+			}
+
+		} finally {
+			rows.close();
+		}
+
+		entries.sort(Comparator.comparingInt(entry -> entry.rank));
+		return entries;
+
+	}
+
+	/**
+	 * This method retrieves the leading entry of the leaderboard of
+	 * the provided task, model name and stage; null is returned, if
+	 * no leaderboard exists
+	 */
+	public static Entry leader(Table table, String task, String modelName, String modelStage) {
+
+		List<Entry> entries = read(table, task, modelName, modelStage);
+		return entries.isEmpty() ? null : entries.get(0);
+
+	}
+
+}
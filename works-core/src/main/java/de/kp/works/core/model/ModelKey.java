@@ -0,0 +1,189 @@
+package de.kp.works.core.model;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.table.Put;
+import io.cdap.cdap.api.dataset.table.Row;
+import io.cdap.cdap.api.dataset.table.Scanner;
+import io.cdap.cdap.api.dataset.table.Table;
+import de.kp.works.core.Names;
+
+/**
+ * [ModelKey] defines the composite row keys of the model registry
+ * tables (Classifiers, Regressors, TimeModels etc.):
+ *
+ * algorithm | name | stage | namespace | reverse timestamp
+ *
+ * All registry lookups specify algorithm, name and (mostly) stage;
+ * these lookups therefore are bounded prefix scans instead of full
+ * table scans. The namespace follows the stage, as model profile
+ * lookups do not specify a namespace. The reverse timestamp orders
+ * the models of the same prefix from the latest to the oldest one.
+ */
+public class ModelKey {
+	/*
+	 * The separator between the key components; a zero byte
+	 * ensures that the prefix of a certain model name does not
+	 * match models with a longer name
+	 */
+	private static final byte[] SEPARATOR = new byte[] { 0 };
+	/*
+	 * The marker row that indicates that a registry table has
+	 * been migrated from timestamp based to composite row keys
+	 */
+	private static final byte[] MIGRATION_KEY = Bytes.toBytes("__composite_keys");
+	/*
+	 * The leading byte of the best model pointer rows; it ensures that
+	 * these rows are not part of the prefix scans over registered models
+	 */
+	private static final byte[] POINTER = new byte[] { 1 };
+
+	public static byte[] build(String algorithm, String name, String stage, String namespace, Long timestamp) {
+		return Bytes.add(prefix(algorithm, name, stage, namespace), Bytes.toBytes(Long.MAX_VALUE - timestamp));
+	}
+
+	public static byte[] prefix(String algorithm, String name) {
+		return join(algorithm, name);
+	}
+
+	public static byte[] prefix(String algorithm, String name, String stage) {
+		return join(algorithm, name, stage);
+	}
+
+	public static byte[] prefix(String algorithm, String name, String stage, String namespace) {
+		return join(algorithm, name, stage, namespace);
+	}
+
+	/**
+	 * The row key of the best model pointer of a certain
+	 * algorithm, name and stage
+	 */
+	public static byte[] pointer(String algorithm, String name, String stage) {
+		return Bytes.add(POINTER, prefix(algorithm, name, stage));
+	}
+
+	/**
+	 * A helper method to scan all registry rows that share
+	 * the provided key prefix
+	 */
+	public static Scanner scan(Table table, byte[] prefix) {
+		return table.scan(prefix, Bytes.stopKeyForPrefix(prefix));
+	}
+
+	/**
+	 * A helper method to retrieve the registry row with the latest
+	 * timestamp from all rows that share the provided key prefix
+	 */
+	public static Row latest(Table table, byte[] prefix) {
+
+		Row latest = null;
+		Row row;
+
+		Scanner rows = scan(table, prefix);
+		try {
+
+			while ((row = rows.next()) != null) {
+
+				if (latest == null || row.getLong(Names.TIMESTAMP) > latest.getLong(Names.TIMESTAMP))
+					latest = row;
+
+			}
+
+		} finally {
+			rows.close();
+		}
+
+		return latest;
+
+	}
+
+	/**
+	 * Registry tables that have been created before the introduction of
+	 * composite row keys are keyed by timestamp; this method backfills
+	 * composite keys for these rows and removes the timestamp keyed ones.
+	 *
+	 * A marker row restricts this full table scan to the first invocation
+	 * for a certain registry table.
+	 */
+	public static int migrate(Table table) {
+
+		if (table.get(MIGRATION_KEY).isEmpty() == false)
+			return 0;
+
+		List<Row> legacy = new ArrayList<>();
+		Row row;
+
+		Scanner rows = table.scan(null, null);
+		try {
+
+			while ((row = rows.next()) != null) {
+				/*
+				 * Timestamp based row keys are the only
+				 * keys of the size of a single long value
+				 */
+				if (row.getRow().length == Bytes.SIZEOF_LONG)
+					legacy.add(row);
+
+			}
+
+		} finally {
+			rows.close();
+		}
+
+		for (Row legacyRow : legacy) {
+
+			Long timestamp = legacyRow.getLong(Names.TIMESTAMP);
+			if (timestamp == null)
+				timestamp = Bytes.toLong(legacyRow.getRow());
+
+			byte[] key = build(legacyRow.getString("algorithm"), legacyRow.getString("name"),
+					legacyRow.getString("stage"), legacyRow.getString("namespace"), timestamp);
+
+			Put put = new Put(key);
+			for (Map.Entry<byte[], byte[]> column : legacyRow.getColumns().entrySet()) {
+				put.add(column.getKey(), column.getValue());
+			}
+
+			table.put(put);
+			table.delete(legacyRow.getRow());
+
+		}
+
+		table.put(new Put(MIGRATION_KEY).add(Names.TIMESTAMP, System.currentTimeMillis()));
+		return legacy.size();
+
+	}
+
+	private static byte[] join(String... parts) {
+
+		byte[] key = new byte[0];
+		for (String part : parts) {
+			key = Bytes.add(key, Bytes.toBytes(part == null ? "" : part), SEPARATOR);
+		}
+
+		return key;
+
+	}
+
+}
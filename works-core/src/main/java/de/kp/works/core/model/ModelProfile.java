@@ -22,6 +22,11 @@ public class ModelProfile {
 
 	public String fsPath;
 	public String id;
+	/*
+	 * The registered version of the model, e.g. 'M-3';
+	 * it is only available for tracked models
+	 */
+	public String version;
 	/*
 	 * This is a factor between [0, 1] with is best value at 1.
 	 * It is derived from the normalized sum metric:
@@ -50,6 +55,12 @@ public class ModelProfile {
 		this.fsPath = fsPath;
 		return this;
 	}
+
+	public ModelProfile setVersion(String version) {
+		this.version = version;
+		return this;
+	}
+
 	public ModelProfile setTrustability(Double trustability) {
 
 		this.trustability = trustability;
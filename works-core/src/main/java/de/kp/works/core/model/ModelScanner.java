@@ -18,82 +18,23 @@ package de.kp.works.core.model;
  * 
  */
 
-import java.util.ArrayList;
-import java.util.List;
-
-import io.cdap.cdap.api.dataset.table.Row;
-import io.cdap.cdap.api.dataset.table.Scanner;
 import io.cdap.cdap.api.dataset.table.Table;
 import de.kp.works.core.Algorithms;
 
 public class ModelScanner {
 
 	public ModelProfile bestClassifier(Table table, String algoName, String modelName, String modelStage) {
-		/*
-		 * All classifiers are evaluated leveraging the same evaluator, i.e. no
-		 * distinction between different algorithms is requied
-		 */
-		List<ClassifierMetric> metrics = new ArrayList<>();
-		Row row;
-
-		Scanner rows = table.scan(null, null);
-		while ((row = rows.next()) != null) {
-
-			String algorithm = row.getString("algorithm");
-			if (algorithm.equals(algoName)) {
-
-				String name = row.getString("name");
-				if (name.equals(modelName)) {
-
-					String stage = row.getString("stage");
-					if (stage.equals(modelStage)) {
-
-						ClassifierMetric metric = new ClassifierMetric();
-						metric.fromRow(row);
-
-						metrics.add(metric);
-
-					}
-				}
-			}
-
-		}
-
-		return ModelFinder.findClassifier(algoName, metrics);
-
+		return best(BestModel.CLASSIFIER, table, algoName, modelName, modelStage);
 	}
 
 	public ModelProfile bestCluster(Table table, String algoName, String modelName, String modelStage) {
 
-		List<ClusterMetric> metrics = new ArrayList<>();
-		Row row;
-
-		Scanner rows = table.scan(null, null);
-		while ((row = rows.next()) != null) {
-
-			String algorithm = row.getString("algorithm");
-			if (algorithm.equals(algoName)) {
-
-				String name = row.getString("name");
-				if (name.equals(modelName)) {
-
-					String stage = row.getString("stage");
-					if (stage.equals(modelStage)) {
-
-						ClusterMetric metric = new ClusterMetric();
-						metric.fromRow(row);
-
-						metrics.add(metric);
-
-					}
-				}
+		BestModel bestModel = BestModel.forCluster(algoName);
+		if (bestModel == null)
+			return null;
 
-			}
+		return best(bestModel, table, algoName, modelName, modelStage);
 
-		}
-		
-		return ModelFinder.findCluster(algoName, metrics);
-		
 	}
 
 	public ModelProfile bestFeature(Table table, String algoName, String modelName, String modelStage) {
@@ -113,40 +54,7 @@ public class ModelScanner {
 	}
 
 	public ModelProfile bestRegressor(Table table, String algoName, String modelName, String modelStage) {
-
-		/*
-		 * All regressors are evaluated leveraging the same evaluator, i.e. no
-		 * distinction between different algorithms is requied
-		 */
-		List<RegressorMetric> metrics = new ArrayList<>();
-		Row row;
-
-		Scanner rows = table.scan(null, null);
-		while ((row = rows.next()) != null) {
-
-			String algorithm = row.getString("algorithm");
-			if (algorithm.equals(algoName)) {
-
-				String name = row.getString("name");
-				if (name.equals(modelName)) {
-
-					String stage = row.getString("stage");
-					if (stage.equals(modelStage)) {
-
-						RegressorMetric metric = new RegressorMetric();
-						metric.fromRow(row);
-
-						metrics.add(metric);
-
-					}
-				}
-
-			}
-
-		}
-		
-		return ModelFinder.findRegressor(algoName, metrics);
-		
+		return best(BestModel.REGRESSOR, table, algoName, modelName, modelStage);
 	}
 
 	public ModelProfile bestText(Table table, String algoName, String modelName, String modelStage) {
@@ -186,4 +94,22 @@ public class ModelScanner {
 		}
 
 	}
+
+	/*
+	 * The best model is resolved from the materialized pointer that is
+	 * maintained at training time; a missing pointer (e.g. for registries
+	 * that were populated before) is recomputed from all registered models
+	 * without writing it, as this is a read path, and the pointer is only
+	 * written by training stages or an explicit repair
+	 */
+	private ModelProfile best(BestModel bestModel, Table table, String algoName, String modelName, String modelStage) {
+
+		ModelProfile profile = bestModel.read(table, algoName, modelName, modelStage);
+		if (profile == null)
+			profile = bestModel.recompute(table, algoName, modelName, modelStage);
+
+		return profile;
+
+	}
+
 }
@@ -18,21 +18,21 @@ package de.kp.works.core.predictor;
  * 
  */
 
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.spark.ml.PredictionModel;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.functions;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
 import io.cdap.cdap.api.data.schema.Schema;
+import de.kp.works.core.Annotations;
 import de.kp.works.core.BaseCompute;
 import de.kp.works.core.model.ModelProfile;
 
@@ -40,8 +40,6 @@ public class PredictorCompute extends BaseCompute {
 
 	private static final long serialVersionUID = -3397323077600081423L;
 
-	protected Type annotationType = new TypeToken<List<Map<String, Object>>>() {
-	}.getType();
 	/*
 	 * The annotation type supported by this predictor stage
 	 */
@@ -55,6 +53,12 @@ public class PredictorCompute extends BaseCompute {
 	 * used to assign the unique model identifier to each prediction result
 	 */
 	protected ModelProfile profile;
+	/*
+	 * The profiles of the challenger models, ordered by their model
+	 * selector (best, latest or version); challengers are scored in
+	 * the same pass as the selected model
+	 */
+	protected Map<String, ModelProfile> challengers = new LinkedHashMap<>();
 
 	/**
 	 * A helper method to compute the output schema in that use cases when an input
@@ -66,10 +70,27 @@ public class PredictorCompute extends BaseCompute {
 	 * used.
 	 */
 	protected Schema getOutputSchema(Schema inputSchema, String predictionField) {
+		return getOutputSchema(inputSchema, predictionField, new ArrayList<>(), null);
+	}
+
+	/**
+	 * A helper method to compute the output schema of a predictor that
+	 * also scores challenger models: each challenger adds a prediction
+	 * field, and an extra field specifies the agreement of all challengers
+	 * with the selected model
+	 */
+	protected Schema getOutputSchema(Schema inputSchema, String predictionField, List<String> selectors, String annonType) {
 
 		List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields());
 		fields.add(Schema.Field.of(predictionField, Schema.of(Schema.Type.DOUBLE)));
 		
+		for (String selector : selectors) {
+			fields.add(Schema.Field.of(getChallengerCol(predictionField, selector), Schema.of(Schema.Type.DOUBLE)));
+		}
+
+		if (selectors.isEmpty() == false)
+			fields.add(Schema.Field.of(getAgreementCol(predictionField, annonType), Schema.of(Schema.Type.DOUBLE)));
+
 		/* 
 		 * Check whether the input schema already has an 
 		 * annotation field defined; the predictor stage
@@ -82,42 +103,93 @@ public class PredictorCompute extends BaseCompute {
 		return Schema.recordOf(inputSchema.getRecordName() + ".predicted", fields);
 
 	}
+
+	/**
+	 * A helper method to compute the output schema of a cluster predictor:
+	 * the prediction field is followed by the distance to the nearest
+	 * cluster center
+	 */
+	protected Schema getClusterSchema(Schema inputSchema, String predictionField, String distanceField) {
+
+		Schema schema = getOutputSchema(inputSchema, predictionField);
+
+		List<Schema.Field> fields = new ArrayList<>(schema.getFields());
+		fields.add(fields.indexOf(schema.getField(predictionField)) + 1,
+				Schema.Field.of(distanceField, Schema.of(Schema.Type.DOUBLE)));
+
+		return Schema.recordOf(schema.getRecordName(), fields);
+
+	}
+
+	protected String getChallengerCol(String predictionCol, String selector) {
+		return predictionCol + "_" + selector.replace("-", "_");
+	}
+
+	protected String getAgreementCol(String predictionCol, String annonType) {
+		return CLASSIFIER_TYPE.equals(annonType) ? predictionCol + "_agreement" : predictionCol + "_deviation";
+	}
+
+	/**
+	 * A helper method to add the predictions of a trained model; auxiliary
+	 * output columns (e.g. raw predictions or probabilities) are removed, as
+	 * they are not part of the output schema and would collide with those of
+	 * other (challenger) models
+	 */
+	protected Dataset<Row> predict(PredictionModel<?, ?> model, Dataset<Row> dataset, String vectorCol, String predictionCol) {
+
+		model.setFeaturesCol(vectorCol);
+		model.setPredictionCol(predictionCol);
+
+		List<Column> columns = new ArrayList<>();
+		for (String column : dataset.columns()) {
+			columns.add(functions.col(column));
+		}
+
+		columns.add(functions.col(predictionCol));
+		return model.transform(dataset).select(columns.toArray(new Column[0]));
+
+	}
+
+	/**
+	 * A helper method to compare the predictions of the challenger models
+	 * with those of the selected model: for classifiers, the share of the
+	 * challengers that predict the same label, and for regressors, the mean
+	 * absolute deviation of the challengers
+	 */
+	protected Dataset<Row> agree(Dataset<Row> predictions, String predictionCol, String annonType) {
+
+		if (challengers.isEmpty())
+			return predictions;
+
+		Column champion = functions.col(predictionCol);
+		Column total = functions.lit(0.0);
+
+		for (String selector : challengers.keySet()) {
+
+			Column challenger = functions.col(getChallengerCol(predictionCol, selector));
+			if (CLASSIFIER_TYPE.equals(annonType))
+				total = total.plus(functions.when(challenger.equalTo(champion), 1.0).otherwise(0.0));
+
+			else
+				total = total.plus(functions.abs(challenger.minus(champion)));
+
+		}
+
+		return predictions.withColumn(getAgreementCol(predictionCol, annonType), total.divide(challengers.size()));
+
+	}
+
 	/**
 	 * A helper method to enrich a prediction result
 	 * with model profile metadata
 	 */
 	protected Dataset<Row> annotate(Dataset<Row> predictions, String annonType) {
-		
-		List<Map<String, Object>> annonItems = new ArrayList<>();
 		/*
-		 * STEP #1: The annotation column is an internal column
-		 * with a pre-defined internal column name. A predictor
-		 * stage may not be the first (or last) stage to enrich
-		 * a certain result with model specific information
+		 * The profile of the current model is appended to the
+		 * annotations of previous stages per row, without an
+		 * extra Spark job
 		 */
-		if (hasColumn(predictions, ANNOTATION_COL)) {
-			/*
-			 * The current implementation enriches each row
-			 * with the same annotation; we therefore extract
-			 * them from the fist column
-			 */
-			Integer index = predictions.schema().fieldIndex(ANNOTATION_COL);
-
-			String annotation = predictions.first().getString(index);			
-			annonItems.addAll(annonToList(annotation));
-			
-		}
-		/*
-		 * STEP #2: Compute annotation for the current model
-		 * and add to the list of existing annotations
-		 */
-		annonItems.add(annotateProfile(annonType));
-		/*
-		 * STEP #3: Serialize annotation and enrich each row
-		 * with specified annotations
-		 */
-		String annotation = new Gson().toJson(annonItems);		
-		return predictions.withColumn(ANNOTATION_COL, functions.lit(annotation));
+		return Annotations.annotate(predictions, ANNOTATION_COL, annotateProfile(annonType));
 
 	}
 	
@@ -133,10 +205,6 @@ public class PredictorCompute extends BaseCompute {
 
 	}
 	
-	protected List<Map<String,Object>> annonToList(String annotation) {
-		return new Gson().fromJson(annotation, annotationType);
-	}
-	
 	/*
 	 * The current implementation is restricted to
 	 * annotate the unique model identifier and the
@@ -158,6 +226,27 @@ public class PredictorCompute extends BaseCompute {
 
 		Map<String, Object> annotation = new HashMap<>();
 		annotation.put("model", model);
+		/*
+		 * The challenger models are annotated with their selector
+		 * to trace each challenger prediction field to its model
+		 */
+		if (challengers.isEmpty() == false) {
+
+			List<Map<String, Object>> challengerModels = new ArrayList<>();
+			for (Map.Entry<String, ModelProfile> challenger : challengers.entrySet()) {
+
+				Map<String, Object> challengerModel = new HashMap<>();
+				challengerModel.put("selector", challenger.getKey());
+				challengerModel.put("id", challenger.getValue().id);
+				challengerModel.put("trust", challenger.getValue().trustability);
+
+				challengerModels.add(challengerModel);
+
+			}
+
+			annotation.put("challengers", challengerModels);
+
+		}
 
 	    return annotation;
 
@@ -18,6 +18,9 @@ package de.kp.works.core.predictor;
  * 
  */
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.annotation.Nullable;
 
 import com.google.common.base.Strings;
@@ -46,10 +49,15 @@ public class PredictorConfig extends BaseConfig {
 	@Nullable
 	public String modelType;
 
-	@Description(Params.MODEL_OPTION)
+	@Description(Params.PREDICTOR_MODEL_OPTION)
 	@Macro
 	public String modelOption;
 
+	@Description(Params.CHALLENGERS)
+	@Macro
+	@Nullable
+	public String challengers;
+
 	@Description("The name of the field in the input schema that contains the feature vector.")
 	@Macro
 	public String featuresCol;
@@ -63,6 +71,31 @@ public class PredictorConfig extends BaseConfig {
 		modelStage = "experiment";
 	}
 	
+	/**
+	 * The model selectors of the challenger models, i.e. 'best',
+	 * 'latest' or a model version; the selected (champion) model
+	 * is excluded
+	 */
+	public List<String> getChallengers() {
+
+		List<String> selectors = new ArrayList<>();
+		if (Strings.isNullOrEmpty(challengers))
+			return selectors;
+
+		for (String selector : challengers.split(",")) {
+
+			String trimmed = selector.trim();
+			if (trimmed.isEmpty() || trimmed.equals(modelOption) || selectors.contains(trimmed))
+				continue;
+
+			selectors.add(trimmed);
+
+		}
+
+		return selectors;
+
+	}
+
 	public void validate() {
 
 		if (Strings.isNullOrEmpty(referenceName)) {
@@ -86,6 +119,16 @@ public class PredictorConfig extends BaseConfig {
 					this.getClass().getName()));
 		}
 
+		/** CHALLENGERS **/
+		for (String selector : getChallengers()) {
+			if (selector.equals(BEST_MODEL) == false && selector.equals(LATEST_MODEL) == false
+					&& selector.matches("(M-)?[0-9]+") == false) {
+				throw new IllegalArgumentException(String.format(
+						"[%s] The challenger '%s' is not supported. Use 'best', 'latest' or a model version like 'M-3'.",
+						this.getClass().getName(), selector));
+			}
+		}
+
 	}
 
 	public void validateSchema(Schema inputSchema) {
@@ -100,7 +143,7 @@ public class PredictorConfig extends BaseConfig {
 		}
 
 		/** FEATURES COLUMN **/
-		SchemaUtil.isArrayOfNumeric(inputSchema, featuresCol);
+		SchemaUtil.isFeatures(inputSchema, featuresCol);
 
 	}
 
@@ -18,7 +18,6 @@ package de.kp.works.core.recommender;
  * 
  */
 
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -27,12 +26,9 @@ import java.util.Map;
 
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
-import org.apache.spark.sql.functions;
-
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
 import io.cdap.cdap.api.data.schema.Schema;
+import de.kp.works.core.Annotations;
 import de.kp.works.core.BaseCompute;
 import de.kp.works.core.model.ModelProfile;
 
@@ -40,9 +36,6 @@ public class RecommenderCompute extends BaseCompute {
 
 	private static final long serialVersionUID = 1944699231227314308L;
 
-	protected Type annotationType = new TypeToken<List<Map<String, Object>>>() {
-	}.getType();
-
 	protected static final String RECOMMENDER_TYPE = "recommender";
 	
 	/*
@@ -77,37 +70,12 @@ public class RecommenderCompute extends BaseCompute {
 	 * with model profile metadata
 	 */
 	protected Dataset<Row> annotate(Dataset<Row> predictions, String annonType) {
-		
-		List<Map<String, Object>> annonItems = new ArrayList<>();
-		/*
-		 * STEP #1: The annotation column is an internal column
-		 * with a pre-defined internal column name. A predictor
-		 * stage may not be the first (or last) stage to enrich
-		 * a certain result with model specific information
-		 */
-		if (hasColumn(predictions, ANNOTATION_COL)) {
-			/*
-			 * The current implementation enriches each row
-			 * with the same annotation; we therefore extract
-			 * them from the fist column
-			 */
-			Integer index = predictions.schema().fieldIndex(ANNOTATION_COL);
-
-			String annotation = predictions.first().getString(index);			
-			annonItems.addAll(annonToList(annotation));
-			
-		}
-		/*
-		 * STEP #2: Compute annotation for the current model
-		 * and add to the list of existing annotations
-		 */
-		annonItems.add(annotateProfile(annonType));
 		/*
-		 * STEP #3: Serialize annotation and enrich each row
-		 * with specified annotations
+		 * The profile of the current model is appended to the
+		 * annotations of previous stages per row, without an
+		 * extra Spark job
 		 */
-		String annotation = new Gson().toJson(annonItems);		
-		return predictions.withColumn(ANNOTATION_COL, functions.lit(annotation));
+		return Annotations.annotate(predictions, ANNOTATION_COL, annotateProfile(annonType));
 
 	}
 	
@@ -123,10 +91,6 @@ public class RecommenderCompute extends BaseCompute {
 
 	}
 	
-	protected List<Map<String,Object>> annonToList(String annotation) {
-		return new Gson().fromJson(annotation, annotationType);
-	}
-	
 	/*
 	 * The current implementation is restricted to
 	 * annotate the unique model identifier and the
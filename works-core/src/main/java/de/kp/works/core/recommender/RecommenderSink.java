@@ -53,15 +53,21 @@ public class RecommenderSink extends BaseSink {
 
 		JavaSparkContext jsc = context.getSparkContext();
 		/*
-		 * In case of an empty input immediately return 
-		 * without any further processing
+		 * The emptiness check and the schema resolution share a
+		 * single job that peeks the first record of the input;
+		 * in case of an empty input immediately return without
+		 * any further processing
 		 */
-		if (input.isEmpty())
+		StructuredRecord first = SessionHelper.peek(input);
+		if (first == null)
 			return;
 
 		if (inputSchema == null) {
 			
-			inputSchema = input.first().getSchema();
+			inputSchema = context.getInputSchema();
+			if (inputSchema == null)
+				inputSchema = first.getSchema();
+
 			validateSchema(inputSchema);
 		}
 
@@ -74,9 +80,15 @@ public class RecommenderSink extends BaseSink {
 		Dataset<Row> rows = SessionHelper.toDataset(input, structType, session);
 		/*
 		 * STEP #2: Compute data model from 'rows' leveraging the underlying Scala
-		 * library of Predictive Works
+		 * library of Predictive Works; the datasets that are persisted for
+		 * training and evaluation are released after the model is tracked
 		 */
-		compute(context, rows);
+		try {
+			compute(context, rows);
+
+		} finally {
+			unpersist();
+		}
 
 	}
 
@@ -41,7 +41,7 @@ public class RFRRecorder extends RegressorRecorder {
 		 * Leverage Apache Spark mechanism to read the RandomForestRegression model
 		 * from a model specific file set
 		 */
-		return RandomForestRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> RandomForestRegressionModel.load(modelPath));
 		
 	}
 
@@ -18,8 +18,6 @@ package de.kp.works.core.time;
  * 
  */
 
-import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -27,12 +25,9 @@ import java.util.Map;
 
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
-import org.apache.spark.sql.functions;
-
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
 import io.cdap.cdap.api.data.schema.Schema;
+import de.kp.works.core.Annotations;
 import de.kp.works.core.BaseCompute;
 import de.kp.works.core.model.ModelProfile;
 
@@ -45,8 +40,6 @@ public class TimeCompute extends BaseCompute {
 	protected static final String REGRESSOR_TYPE = "regressor";
 	protected static final String TIME_TYPE = "time";
 
-	protected Type annotationType = new TypeToken<List<Map<String, Object>>>() {
-	}.getType();
 	/*
 	 * Retrieving the time model that matches the user-defined model options
 	 * (either best or latest) also determines the model profile; this profile 
@@ -66,37 +59,12 @@ public class TimeCompute extends BaseCompute {
 	 */
 	
 	protected Dataset<Row> annotate(Dataset<Row> predictions, String annonType) {
-		
-		List<Map<String, Object>> annonItems = new ArrayList<>();
-		/*
-		 * STEP #1: The annotation column is an internal column
-		 * with a pre-defined internal column name. A predictor
-		 * stage may not be the first (or last) stage to enrich
-		 * a certain result with model specific information
-		 */
-		if (hasColumn(predictions, ANNOTATION_COL)) {
-			/*
-			 * The current implementation enriches each row
-			 * with the same annotation; we therefore extract
-			 * them from the fist column
-			 */
-			Integer index = predictions.schema().fieldIndex(ANNOTATION_COL);
-
-			String annotation = predictions.first().getString(index);			
-			annonItems.addAll(annonToList(annotation));
-			
-		}
-		/*
-		 * STEP #2: Compute annotation for the current model
-		 * and add to the list of existing annotations
-		 */
-		annonItems.add(annotateProfile(annonType));
 		/*
-		 * STEP #3: Serialize annotation and enrich each row
-		 * with specified annotations
+		 * The profile of the current model is appended to the
+		 * annotations of previous stages per row, without an
+		 * extra Spark job
 		 */
-		String annotation = new Gson().toJson(annonItems);		
-		return predictions.withColumn(ANNOTATION_COL, functions.lit(annotation));
+		return Annotations.annotate(predictions, ANNOTATION_COL, annotateProfile(annonType));
 
 	}
 	
@@ -112,10 +80,6 @@ public class TimeCompute extends BaseCompute {
 
 	}
 	
-	protected List<Map<String,Object>> annonToList(String annotation) {
-		return new Gson().fromJson(annotation, annotationType);
-	}
-	
 	/*
 	 * The current implementation is restricted to
 	 * annotate the unique model identifier and the
@@ -20,6 +20,7 @@ package de.kp.works.core.ml
 
 import org.apache.spark.ml.linalg.{Vector, Vectors}
 import org.apache.spark.sql._
+import org.apache.spark.sql.VectorConverter
 import org.apache.spark.sql.functions._
 import org.apache.spark.sql.types._
 import scala.collection.mutable.WrappedArray
@@ -38,17 +39,30 @@ object MLUtils {
     /*
      * The dataset contains an Array of Double value (from CDAP structured
      * record) and the classifier, clustering or regression trainer expects
-     * a Vector representation
+     * a Vector representation; a features column that already is a Vector
+     * (e.g. the output of a previous Spark ML transformation within the 
+     * same stage) is used as is
      */
-    val vector_udf = udf {features:WrappedArray[Double] => {
-      Vectors.dense(features.toArray)
-    }}
+    val dataType = dataset.schema(featuresCol).dataType
+    if (VectorConverter.isVector(dataType))
+      return dataset.withColumn(vectorCol, col(featuresCol))
+    /*
+     * A sparse vector record (size, indices, values) is 
+     * transformed into a sparse Vector representation
+     */
+    if (VectorConverter.isSparse(dataType))
+      return dataset.withColumn(vectorCol, VectorConverter.fromSparse(col(featuresCol)))
 
-    if (cast == true) {
-      dataset.withColumn(vectorCol, vector_udf(col(featuresCol).cast(ArrayType(DoubleType))))
+    /*
+     * The conversion copies the primitive values of an Array[Double]; 
+     * other numeric arrays are casted, independent of the cast flag
+     */
+    val features = dataType match {
+      case ArrayType(DoubleType, _) => col(featuresCol)
+      case _ => col(featuresCol).cast(ArrayType(DoubleType))
+    }
     
-    } else
-      dataset.withColumn(vectorCol, vector_udf(col(featuresCol)))
+    dataset.withColumn(vectorCol, VectorConverter.toVector(features))
     
   }
   
@@ -57,11 +71,26 @@ object MLUtils {
      * The dataset contains an Apache Spark Vector and must be transformed
      * into an Array of Double value (to CDAP Structured Record)
      */
-    val devector_udf = udf {vector:Vector => {
-      vector.toArray
-    }}
+    if (VectorConverter.isVector(dataset.schema(vectorCol).dataType) == false)
+      return dataset.withColumn(featureCol, col(vectorCol))
+
+    dataset.withColumn(featureCol, VectorConverter.toArray(col(vectorCol)))
+    
+  }
+  
+  def devectorize(dataset:Dataset[Row], vectorCol:String, featureCol:String, sparse:Boolean): Dataset[Row] = {
+    /*
+     * High-dimensional feature vectors (e.g. hashed terms) are transformed 
+     * into a sparse vector record (size, indices, values) to avoid a dense 
+     * Array of Double value with mostly zero values
+     */
+    if (sparse == false)
+      return devectorize(dataset, vectorCol, featureCol)
 
-    dataset.withColumn(featureCol, devector_udf(col(vectorCol)))
+    if (VectorConverter.isVector(dataset.schema(vectorCol).dataType) == false)
+      return dataset.withColumn(featureCol, col(vectorCol))
+
+    dataset.withColumn(featureCol, VectorConverter.toSparse(col(vectorCol)))
     
   }
 	/*
@@ -87,6 +116,54 @@ object MLUtils {
   
 }
 
+/**
+ * A micro benchmark that compares the vectorization round trip of
+ * the (former) user defined functions with the internal conversion
+ */
+object MLUtilsBenchmark {
+  
+  def main(args:Array[String]) {
+    
+    val session = SparkSession.builder
+      .appName("MLUtilsBenchmark")
+      .master("local[*]")
+      .getOrCreate()
+
+    val numRows = if (args.length > 0) args(0).toInt else 1000000
+    val numFeatures = if (args.length > 1) args(1).toInt else 100
+    
+    val features_udf = udf {seed:Long => Array.tabulate(numFeatures)(i => (seed * 31 + i).toDouble)}
+    val dataset = session.range(numRows).withColumn("features", features_udf(col("id"))).cache
+    
+    dataset.count
+    
+    val vector_udf = udf {features:WrappedArray[Double] => Vectors.dense(features.toArray)}
+    val devector_udf = udf {vector:Vector => vector.toArray}
+    
+    def measure(name:String, roundtrip:Dataset[Row]):Unit = {
+      
+      val start = System.currentTimeMillis
+      roundtrip.agg(sum(size(col("_features")))).collect
+      
+      println(s"$name: ${System.currentTimeMillis - start} ms")
+      
+    }
+    
+    /* Warm up */
+    MLUtils.devectorize(MLUtils.vectorize(dataset, "features", "_vector"), "_vector", "_features").count
+
+    measure("udf", dataset
+      .withColumn("_vector", vector_udf(col("features")))
+      .withColumn("_features", devector_udf(col("_vector"))))
+
+    measure("internal", MLUtils.devectorize(
+      MLUtils.vectorize(dataset, "features", "_vector"), "_vector", "_features"))
+    
+    session.stop
+    
+  }
+}
+
 object MLUtilsTest {
   
   def main(args:Array[String]) {
@@ -20,15 +20,14 @@ package de.kp.works.core.ml
 
 import java.util.{ HashMap => JHashMap }
 import com.google.gson.Gson
-import org.apache.spark.ml.evaluation.RegressionEvaluator
+
 import org.apache.spark.sql._
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+
+import de.kp.works.core.Names
 
 object RegressorEvaluator {
-  /*
-   * Reference to Apache Spark regression evaluator
-   * as this object is an access wrapper
-   */
-  private val evaluator = new RegressionEvaluator()
   /*
    * This method calculates proven metric values from
    * the provided prediction by comparing label value
@@ -38,31 +37,127 @@ object RegressorEvaluator {
    * - mean squared error (mse)
    * - mean absolute error (mae)
    * - r^2 metric (r2)
+   * 
+   * All metrics are derived from sufficient statistics 
+   * that are computed with a single pass over the dataset
    */
   def evaluate(predictions: Dataset[Row], labelCol: String, predictionCol: String): String = {
+    evaluate(summarize(predictions, labelCol, predictionCol))
+  }
+  
+  def evaluate(stats: RegressionStats): String = {
    
     val metrics = new JHashMap[String, Object]()
+    /*
+     * The root mean squared error is registered with the
+     * name that is used by the regression recorders, and
+     * also with the name of Apache Spark's evaluator
+     */
+    metrics.put(Names.RSME, stats.rmse.asInstanceOf[AnyRef])
+    metrics.put("rmse", stats.rmse.asInstanceOf[AnyRef])
 
-    evaluator.setLabelCol(labelCol);
-    evaluator.setPredictionCol(predictionCol);
-
-    val metricNames = List(
-      "rmse",
-      "mse",
-      "mae",
-      "r2")
-
-    metricNames.foreach(metricName => {
-
-      evaluator.setMetricName(metricName)
-      val value = evaluator.evaluate(predictions)
-
-      metrics.put(metricName, value.asInstanceOf[AnyRef])
-
-    })
+    metrics.put(Names.MSE, stats.mse.asInstanceOf[AnyRef])
+    metrics.put(Names.MAE, stats.mae.asInstanceOf[AnyRef])
+    metrics.put(Names.R2, stats.r2.asInstanceOf[AnyRef])
 
     new Gson().toJson(metrics)
 
   }
+  
+  /**
+   * This method computes the sufficient statistics of the provided
+   * predictions with a single tree aggregation; the result can be merged
+   * with the statistics of other (micro) batches
+   */
+  def summarize(predictions: Dataset[Row], labelCol: String, predictionCol: String): RegressionStats = {
+    
+    predictions
+      .select(col(labelCol).cast(DoubleType), col(predictionCol).cast(DoubleType))
+      .rdd.treeAggregate(new RegressionStats())(
+          (stats, row) => stats.add(row.getDouble(0), row.getDouble(1)),
+          (stats1, stats2) => stats1.merge(stats2))
+    
+  }
 
-}
\ No newline at end of file
+}
+
+/**
+ * [RegressionStats] holds the mergeable sufficient statistics of
+ * regression predictions: the count, the mean and the central second
+ * moment of the labels, and the sums of the (absolute and squared)
+ * residuals. Label moments are merged with the parallel algorithm of
+ * Chan et al. to avoid the cancellation of plain sums of squares.
+ */
+class RegressionStats extends Serializable {
+  
+  var count: Long = 0L
+  
+  var meanLabel: Double = 0D
+  var m2Label: Double = 0D
+  
+  var sumErr: Double = 0D
+  var sumAbsErr: Double = 0D
+  var sumSqErr: Double = 0D
+  
+  def add(label: Double, prediction: Double): RegressionStats = {
+    
+    count += 1
+    
+    val delta = label - meanLabel
+    meanLabel += delta / count
+    m2Label += delta * (label - meanLabel)
+    
+    val err = label - prediction
+    
+    sumErr += err
+    sumAbsErr += Math.abs(err)
+    sumSqErr += err * err
+    
+    this
+    
+  }
+  
+  def merge(other: RegressionStats): RegressionStats = {
+    
+    if (other.count == 0) return this
+    if (count == 0) {
+      
+      count = other.count
+      meanLabel = other.meanLabel
+      m2Label = other.m2Label
+      
+      sumErr = other.sumErr
+      sumAbsErr = other.sumAbsErr
+      sumSqErr = other.sumSqErr
+      
+      return this
+      
+    }
+    
+    val total = count + other.count
+    val delta = other.meanLabel - meanLabel
+    
+    meanLabel += delta * other.count / total
+    m2Label += other.m2Label + delta * delta * count * other.count / total
+    
+    count = total
+    
+    sumErr += other.sumErr
+    sumAbsErr += other.sumAbsErr
+    sumSqErr += other.sumSqErr
+    
+    this
+    
+  }
+  
+  def mse: Double = sumSqErr / count
+  
+  def rmse: Double = Math.sqrt(mse)
+  
+  def mae: Double = sumAbsErr / count
+  
+  def meanErr: Double = sumErr / count
+  
+  def r2: Double = 1 - sumSqErr / m2Label
+  
+}
@@ -26,16 +26,28 @@ import org.apache.spark.ml.util._
 import org.apache.spark.sql._
 import org.apache.spark.sql.functions._
 import org.apache.spark.sql.types._
+import org.apache.spark.storage.StorageLevel
 
-import scala.collection.mutable.ArrayBuffer
+import scala.collection.mutable.ArrayBuilder
 
 /**
  * This implementation of the Largest Triangle Three Buckets (LTTB)
- * algorithm is NOT applicable to distributed large scale datasets.
+ * algorithm is applicable to distributed large scale datasets.
  * 
- * It exclusively processes data on the master node. However, it is
- * implemented as an Apache Spark ML transformer to be easily combined
- * with other computation stages
+ * The dataset is range partitioned by the 'x' value, and each partition
+ * selects the points of those buckets that refer to its range of values;
+ * buckets are defined over the global (sorted) position of the points, so
+ * the bucket budget is split proportionally to the size of the partitions.
+ * 
+ * Within a partition, the selection of a bucket is anchored by the point
+ * selected from the previous bucket, as with the single node algorithm. At
+ * partition boundaries, where this point is not available, the average of
+ * the previous bucket is used, and the candidates of buckets that span two
+ * partitions are merged by their triangle area. The result matches the single
+ * node algorithm except for the buckets next to partition boundaries.
+ * 
+ * If a group column is provided, each series is downsampled independently;
+ * in this case a single series must fit into the memory of an executor.
  */
 
 trait LTTBucketsParams extends Params {
@@ -45,10 +57,15 @@ trait LTTBucketsParams extends Params {
    
   final val yCol = new Param[String](this, "yCol",
       "Name of the dependent value field", (value:String) => true)
+   
+  final val groupCol = new Param[String](this, "groupCol",
+      "Name of the optional field that identifies a certain series", (value:String) => true)
  
   def setXCol(value:String): this.type = set(xCol, value)
  
   def setYCol(value:String): this.type = set(yCol, value)
+ 
+  def setGroupCol(value:String): this.type = set(groupCol, value)
     
   final val sampleSize: Param[Int] = new Param[Int](this, "sampleSize",
       "The size of the downsampled dataset.", (v: Int) => ParamValidators.gt(2)(v))
@@ -83,6 +100,16 @@ trait LTTBucketsParams extends Params {
       case _ => throw new IllegalArgumentException(s"Data type of value column $yColName must be a numeric type.")
     }
     
+    /* GROUP FIELD */
+    
+    if (isDefined(groupCol)) {
+      
+      val groupColName = $(groupCol)
+      if (schema.fieldNames.contains(groupColName) == false)
+        throw new IllegalArgumentException(s"Group column $groupColName does not exist.")
+      
+    }
+    
   }
   
   protected def createSampleset(dataset:Dataset[_]):Dataset[Row] = {
@@ -99,58 +126,290 @@ class LTTBuckets(override val uid: String) extends Transformer with LTTBucketsPa
     
   def this() = this(Identifiable.randomUID("LTTBuckets"))
   
-  private case class Point(x:Double, y:Double)
-  
   def transform(dataset:Dataset[_]):DataFrame = {
     
     val schema = dataset.schema
-    validateSchema(dataset.schema)
+    validateSchema(schema)
+    
+    val sampleset = createSampleset(dataset).na.drop(Seq($(xCol), $(yCol)))
+    val output = if (isDefined(groupCol)) transformGroups(sampleset) else transformSeries(sampleset)
+    
+    val xType = schema($(xCol)).dataType
+    val yType = schema($(yCol)).dataType
+    
+    output
+      .withColumn($(xCol), col($(xCol)).cast(xType))
+      .withColumn($(yCol), col($(yCol)).cast(yType))
     
-    val sampleset = createSampleset(dataset)
+  }
+  
+  private def transformSeries(sampleset:Dataset[Row]):DataFrame = {
     
+    val session = sampleset.sparkSession
+    val size = $(sampleSize)
     /*
-     * Transfer dataset to the master node and apply the 
-     * Largest Triangle Three Buckets (LTTB)
+     * STEP #1: Range partition the dataset by the 'x' value
+     * and determine the global offset of each partition
      */
-    val xIdx = schema.fieldIndex($(xCol))
-    val yIdx = schema.fieldIndex($(yCol))
+    val sorted = sampleset.select($(xCol), $(yCol)).sort(col($(xCol)))
+      .rdd.map(row => (row.getDouble(0), row.getDouble(1)))
+      .persist(StorageLevel.MEMORY_AND_DISK)
+    
+    try {
     
-    val data = sampleset.select($(xCol),$(yCol)).collect.map(row => {
+      val counts = sorted.mapPartitions(iter => Iterator(iter.size.toLong)).collect
+      val dataSize = counts.sum
+      
+      /*
+       * The downsampled points are collected before the sorted
+       * dataset is released, as the global offsets refer to its
+       * partitions
+       */
+      val points = if (dataSize <= size) sorted.collect else {
+      
+        val offsets = counts.scanLeft(0L)(_ + _)
+        /*
+         * STEP #2: Compute the average point of each bucket; these
+         * averages specify the 'following' bucket of the algorithm
+         */
+        val buckets = sorted.mapPartitionsWithIndex((partition, iter) => {
+          
+          var index = offsets(partition) - 1
+          iter.map{case(x,y) => {
+            
+            index += 1
+            (LTTBuckets.bucketOf(index, dataSize, size), (x, y, 1L))
+            
+          }}
+          
+        })
+        .reduceByKey((a, b) => (a._1 + b._1, a._2 + b._2, a._3 + b._3))
+        .collect
+        
+        val avgX = new Array[Double](size)
+        val avgY = new Array[Double](size)
+        
+        buckets.foreach{case(bucket, (sumX, sumY, count)) => {
+          avgX(bucket) = sumX / count
+          avgY(bucket) = sumY / count
+        }}
+        /*
+         * STEP #3: Select the candidates of each partition and merge
+         * the candidates of those buckets that span two partitions
+         */
+        sorted.mapPartitionsWithIndex((partition, iter) => {
+          LTTBuckets.select(iter, offsets(partition), offsets(partition + 1), dataSize, size, avgX, avgY)          
+        })
+        .reduceByKey((a, b) => if (a._1 > b._1 || (a._1 == b._1 && a._2 < b._2)) a else b)
+        .map{case(_, (_, _, x, y)) => (x, y)}
+        .collect
+        
+      }
 
-        val x = row.getDouble(xIdx)
-        val y = row.getDouble(yIdx)
+      session.createDataFrame(points).toDF($(xCol), $(yCol)).sort(col($(xCol)))
+      
+    } finally {
+      sorted.unpersist(blocking = false)
+    }
+    
+  }
+  
+  private def transformGroups(sampleset:Dataset[Row]):DataFrame = {
+    
+    val session = sampleset.sparkSession
+    val size = $(sampleSize)
+    /*
+     * Each series is moved to a single partition, sorted by
+     * the 'x' value and downsampled with the local algorithm
+     */
+    val grouped = sampleset.select($(groupCol), $(xCol), $(yCol))
+      .repartition(col($(groupCol)))
+      .sortWithinPartitions(col($(groupCol)), col($(xCol)))
+    
+    val rdd = grouped.rdd.mapPartitions(iter => {
+      
+      val buffered = iter.buffered
+      new Iterator[Iterator[Row]] {
         
-        Point(x,y)
+        override def hasNext:Boolean = buffered.hasNext
         
+        override def next():Iterator[Row] = {
+          
+          val group = buffered.head.get(0)
+
+          val xs = new ArrayBuilder.ofDouble
+          val ys = new ArrayBuilder.ofDouble
+          
+          while (buffered.hasNext && buffered.head.get(0) == group) {
+            
+            val row = buffered.next
+            
+            xs += row.getDouble(1)
+            ys += row.getDouble(2)
+            
+          }
+
+          val x = xs.result
+          val y = ys.result
+          
+          LTTBuckets.downsample(x, y, size).iterator.map(i => Row(group, x(i), y(i)))
+          
+        }
+      
+      }.flatMap(rows => rows)
+    
     })
+    
+    session.createDataFrame(rdd, grouped.schema)
+    
+  }
+
+  override def transformSchema(schema:StructType):StructType = {    
+    schema    
+  }
+
+  override def copy(extra:ParamMap):LTTBuckets = defaultCopy(extra)
+  
+}
+
+object LTTBuckets {
+  /*
+   * Buckets are numbered from 0 to sampleSize - 1: the first and the
+   * last bucket contain the first and the last point; all other points
+   * are divided over the interior buckets 1 to sampleSize - 2
+   */
+  private def bucketStart(bucket:Int, bucketSize:Double):Long = {
+    Math.floor((bucket - 1) * bucketSize).toLong + 1
+  }
+
+  def bucketOf(index:Long, dataSize:Long, sampleSize:Int):Int = {
+    
+    if (index == 0) return 0
+    if (index == dataSize - 1) return sampleSize - 1
+    
+    val bucketSize = (dataSize - 2).toDouble / (sampleSize - 2)
+    
+    var bucket = ((index - 1) / bucketSize).toInt + 1
     /*
-     * Apply LTTBuckets algorithm and retransform
-     * samples into dataframe
+     * Compensate rounding errors of the floating 
+     * point division at the bucket boundaries
      */
-    val sampled = doLTTBuckets(data, $(sampleSize)).map(p => (p.x, p.y))
-    val output = dataset.sparkSession.createDataFrame(sampled).toDF($(xCol), $(yCol)) 
+    while (bucket < sampleSize - 2 && bucketStart(bucket + 1, bucketSize) <= index) bucket += 1
+    while (bucket > 1 && bucketStart(bucket, bucketSize) > index) bucket -= 1
     
-    val xType = schema($(xCol)).dataType
-    val yType = schema($(yCol)).dataType
+    bucket
     
-    output
-      .withColumn($(xCol), col($(xCol)).cast(xType))
-      .withColumn($(yCol), col($(yCol)).cast(yType))
+  }
+  
+  /**
+   * This method selects the candidate point of each bucket that refers
+   * to the points of a certain partition, i.e. the global index range
+   * [lower, upper), and assigns the triangle area and the global index
+   * to each candidate
+   */
+  def select(iter:Iterator[(Double, Double)], lower:Long, upper:Long, dataSize:Long, sampleSize:Int,
+      avgX:Array[Double], avgY:Array[Double]):Iterator[(Int, (Double, Long, Double, Double))] = {
+    
+    val bucketSize = (dataSize - 2).toDouble / (sampleSize - 2)
+    
+    def isComplete(bucket:Int):Boolean = {
+      
+      val (start, end) =
+        if (bucket == 0) (0L, 1L)
+        else if (bucket == sampleSize - 1) (dataSize - 1, dataSize)
+        else (bucketStart(bucket, bucketSize), bucketStart(bucket + 1, bucketSize))
+        
+      start >= lower && end <= upper
+      
+    }
+    
+    val candidates = Array.newBuilder[(Int, (Double, Long, Double, Double))]
+
+    var current = -1
+    var index = lower - 1
+    
+    var pointAx = 0D
+    var pointAy = 0D
+    
+    var maxArea = -1D
+    var maxIndex = -1L
+    var maxX = 0D
+    var maxY = 0D
+    
+    iter.foreach{case(x, y) => {
+      
+      index += 1
+      val bucket = bucketOf(index, dataSize, sampleSize)
+      
+      if (bucket != current) {
+        
+        if (current > -1)
+          candidates += ((current, (maxArea, maxIndex, maxX, maxY)))
+        /*
+         * Point a is the point selected from the previous bucket, 
+         * if this bucket has been processed by this partition, and
+         * the average of the previous bucket otherwise
+         */
+        if (bucket > 0) {
+          
+          if (current == bucket - 1 && isComplete(current)) {
+            pointAx = maxX
+            pointAy = maxY
+
+          } else {
+            pointAx = avgX(bucket - 1)
+            pointAy = avgY(bucket - 1)
+          }
+          
+        }
+        
+        current = bucket
+        maxArea = -1D
+        
+      }
+      
+      val area = if (bucket == 0 || bucket == sampleSize - 1) 0D else {
+        /* Calculate triangle area over three buckets */
+        Math.abs(
+            (pointAx - avgX(bucket + 1)) * (y - pointAy) - (pointAx - x) * (avgY(bucket + 1) - pointAy)
+        ) * 0.5
+        
+      }
+      
+      if (area > maxArea) {
+        
+        maxArea = area
+        maxIndex = index
+        maxX = x
+        maxY = y
+        
+      }
+      
+    }}
+    
+    if (current > -1)
+      candidates += ((current, (maxArea, maxIndex, maxX, maxY)))
+    
+    candidates.result.iterator
     
   }
   
-  private def doLTTBuckets(data:Array[Point], sampleSize:Int): Array[Point] = {
+  /**
+   * The single node LTTB algorithm; the points must be sorted by their 
+   * 'x' value, and the indices of the selected points are returned
+   */
+  def downsample(xs:Array[Double], ys:Array[Double], sampleSize:Int): Array[Int] = {
 
     /*
      * First, check whether the size of the data is below 
      * the provided threshold; in this case, do nothing
      */
-    val dataSize = data.length;
+    val dataSize = xs.length
     if (sampleSize >= dataSize || sampleSize == 0) {
-        return data
+        return (0 until dataSize).toArray
     }
     
-    val sampled = ArrayBuffer.empty[Point]
+    val sampled = new Array[Int](sampleSize)
     val bucketSize = (dataSize - 2).toDouble / (sampleSize - 2)
   
     /*
@@ -189,14 +448,11 @@ class LTTBuckets(override val uid: String) extends Transformer with LTTBucketsPa
      */
     
     var a:Int = 0
-    var nextA:Int = 0
     
     /** FIRST BUCKET **/
 
-    sampled += data(a)
+    sampled(0) = a
 
-    var maxAreaPoint = Point(x=0D, y=0D)
-    
     (0 until sampleSize -2).foreach(i => {
       
          /** THIRD BUCKET **/
@@ -211,10 +467,12 @@ class LTTBuckets(override val uid: String) extends Transformer with LTTBucketsPa
         var avgX = 0D
         var avgY = 0D
 
-        (avgRangeStart until avgRangeEnd).foreach(j => {
-            avgX += data(j).x
-            avgY += data(j).y
-        })
+        var j = avgRangeStart
+        while (j < avgRangeEnd) {
+            avgX += xs(j)
+            avgY += ys(j)
+            j += 1
+        }
 
         avgX /= avgRangeLength
         avgY /= avgRangeLength
@@ -226,42 +484,38 @@ class LTTBuckets(override val uid: String) extends Transformer with LTTBucketsPa
         val rangeTo = (Math.floor((i + 1) * bucketSize) + 1).toInt
 
         /* Point a */
-        val pointAx = data(a).x
-        val pointAy = data(a).y
+        val pointAx = xs(a)
+        val pointAy = ys(a)
 
         var maxArea:Double = -1
-        (rangeOffs until rangeTo).foreach(j => {
+        var nextA = rangeOffs
+        
+        j = rangeOffs
+        while (j < rangeTo) {
           
             /* Calculate triangle area over three buckets */
             val area = Math.abs(
-                (pointAx - avgX) * (data(j).y - pointAy) - (pointAx - data(j).x) * (avgY - pointAy)
+                (pointAx - avgX) * (ys(j) - pointAy) - (pointAx - xs(j)) * (avgY - pointAy)
             ) * 0.5
 
             if (area > maxArea) {
-              
-                maxArea = area;
-                maxAreaPoint = data(rangeOffs)
-                nextA = rangeOffs
-            
+                maxArea = area
+                nextA = j
             }
-        })
+            
+            j += 1
+        }
 
         /* Pick this point from the bucket */
-        sampled += maxAreaPoint 
+        sampled(i + 1) = nextA
         
         /* This a is the next a (chosen b) */
         a = nextA
     })
 
-    sampled += data(dataSize - 1)
-    sampled.toArray
+    sampled(sampleSize - 1) = dataSize - 1
+    sampled
  
   }
-
-  override def transformSchema(schema:StructType):StructType = {    
-    schema    
-  }
-
-  override def copy(extra:ParamMap):LTTBuckets = defaultCopy(extra)
   
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package de.kp.works.core.ml.sampling
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import org.apache.spark.ml.param._
+import org.apache.spark.ml.Transformer
+import org.apache.spark.ml.util._
+
+import org.apache.spark.sql._
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+
+import org.apache.spark.storage.StorageLevel
+
+/**
+ * [AggregateBuckets] is the common base of those downsampling methods 
+ * that are pure aggregations: the 'x' range is divided into equal width
+ * (pixel) buckets, and each bucket is reduced to a few representative 
+ * points. In contrast to LTTB, these methods are not sequential and are
+ * computed as a single groupBy (shuffle) over the dataset.
+ * 
+ * The buckets refer to the common 'x' range of all series, i.e. grouped
+ * series are aligned on the same bucket grid.
+ * 
+ * The range and the buckets are computed from the persisted (non null)
+ * points, i.e. the input is read once; these points must be released with
+ * [release] after the downsampled output has been consumed.
+ */
+abstract class AggregateBuckets extends Transformer with LTTBucketsParams {
+  /*
+   * The number of points that is selected from each bucket;
+   * the number of buckets is derived from the sample size
+   */
+  protected def pointsPerBucket:Int
+  
+  /*
+   * The aggregated representative points of each bucket, 
+   * specified as structs of 'x' and 'y' value
+   */
+  protected def aggregate(x:Column, y:Column):Seq[Column]
+  
+  @transient private var persisted:Option[Dataset[Row]] = None
+  
+  def transform(dataset:Dataset[_]):DataFrame = {
+    
+    val schema = dataset.schema
+    validateSchema(schema)
+    
+    val sampleset = createSampleset(dataset).na.drop(Seq($(xCol), $(yCol)))
+      .persist(StorageLevel.MEMORY_AND_DISK)
+    
+    persisted = Some(sampleset)
+    /*
+     * STEP #1: Determine the 'x' range of the dataset; this is
+     * a partial aggregation that does not shuffle the dataset
+     */
+    val range = sampleset.agg(min(col($(xCol))), max(col($(xCol)))).head
+    
+    val lower = if (range.isNullAt(0)) 0D else range.getDouble(0)
+    val upper = if (range.isNullAt(1)) 0D else range.getDouble(1)
+    
+    val buckets = Math.max(1, $(sampleSize) / pointsPerBucket)
+    val width = (upper - lower) / buckets
+    
+    val bucket = if (width == 0D) lit(0) else 
+      least(floor((col($(xCol)) - lower) / width).cast(IntegerType), lit(buckets - 1))
+    /*
+     * STEP #2: Aggregate each bucket (of each series) and unpack 
+     * the representative points; points that are representative
+     * for more than one aggregate of a bucket are returned once
+     */
+    val groupCols = (if (isDefined(groupCol)) Seq(col($(groupCol))) else Seq.empty[Column]) :+ bucket.as("_bucket")
+    
+    val x = col($(xCol))
+    val y = col($(yCol))
+    
+    val aggregates = aggregate(x, y)
+    val aggregated = sampleset.groupBy(groupCols: _*).agg(aggregates.head, aggregates.tail: _*)
+    
+    val pointCols = aggregated.columns.filter(_.startsWith("_point"))
+    /*
+     * A point belongs to a single bucket; duplicates are therefore
+     * removed within each aggregated row, i.e. without a shuffle
+     */
+    val unique = pointCols.indices.map(i => {
+      
+      val point = col(pointCols(i))
+      val duplicate = (0 until i).map(j => point === col(pointCols(j))).foldLeft(lit(false))(_ || _)
+      
+      when(not(duplicate), point)
+      
+    })
+    
+    val points = explode(array(unique: _*))
+    
+    val outputCols = (if (isDefined(groupCol)) Seq(col($(groupCol))) else Seq.empty[Column]) ++ 
+      Seq(col("_point").getField($(xCol)).as($(xCol)), col("_point").getField($(yCol)).as($(yCol)))
+    
+    val output = aggregated
+      .withColumn("_point", points)
+      .filter(col("_point").isNotNull)
+      .select(outputCols: _*)
+    
+    val xType = schema($(xCol)).dataType
+    val yType = schema($(yCol)).dataType
+    
+    output
+      .withColumn($(xCol), col($(xCol)).cast(xType))
+      .withColumn($(yCol), col($(yCol)).cast(yType))
+    
+  }
+  
+  /**
+   * Releases the points that have been persisted by the
+   * last transformation; this method must be called after
+   * the downsampled output has been consumed
+   */
+  def release():Unit = {
+    
+    persisted.foreach(sampleset => sampleset.unpersist(blocking = false))
+    persisted = None
+    
+  }
+
+  override def transformSchema(schema:StructType):StructType = {    
+    schema    
+  }
+  
+  /*
+   * A helper method to specify the point that refers to the minimum
+   * (or maximum) of the first value of a struct; the point is 
+   * re-assembled as struct of 'x' and 'y' value
+   */
+  protected def point(aggregate:Column, name:String):Column = {
+    struct(aggregate.getField($(xCol)).as($(xCol)), aggregate.getField($(yCol)).as($(yCol))).as(name)    
+  }
+  
+}
+
+/**
+ * M4 downsampling selects the first, the last, the minimum and
+ * the maximum point of each bucket; as a result, a line chart
+ * of the downsampled series is visually equivalent to the chart
+ * of the entire series, if the number of buckets matches the
+ * width of the chart in pixels.
+ */
+class M4Buckets(override val uid: String) extends AggregateBuckets {
+    
+  def this() = this(Identifiable.randomUID("M4Buckets"))
+  
+  override protected def pointsPerBucket:Int = 4
+  
+  override protected def aggregate(x:Column, y:Column):Seq[Column] = {
+    /*
+     * Structs are compared field by field; the first field 
+     * therefore determines the respective point
+     */
+    Seq(
+      point(min(struct(x, y)), "_point_first"),
+      point(max(struct(x, y)), "_point_last"),
+      point(min(struct(y, x)), "_point_min"),
+      point(max(struct(y, x)), "_point_max"))
+    
+  }
+
+  override def copy(extra:ParamMap):M4Buckets = defaultCopy(extra)
+  
+}
+
+/**
+ * Min/max downsampling selects the minimum and the maximum point 
+ * of each bucket.
+ */
+class MinMaxBuckets(override val uid: String) extends AggregateBuckets {
+    
+  def this() = this(Identifiable.randomUID("MinMaxBuckets"))
+  
+  override protected def pointsPerBucket:Int = 2
+  
+  override protected def aggregate(x:Column, y:Column):Seq[Column] = {
+    
+    Seq(
+      point(min(struct(y, x)), "_point_min"),
+      point(max(struct(y, x)), "_point_max"))
+    
+  }
+
+  override def copy(extra:ParamMap):MinMaxBuckets = defaultCopy(extra)
+  
+}
@@ -33,6 +33,8 @@ import org.apache.spark.sql.types._
 
 import org.apache.spark.storage.StorageLevel
 
+import scala.collection.mutable.ArrayBuilder
+
 /**
  * DOWNGRADED FROM v2.4.0 to be available in v2.1.3
  */
@@ -245,15 +247,18 @@ class FPGrowthModel (override val uid: String, @transient val freqItemsets: Data
       .rdd.map(r => (r.getSeq(0), r.getSeq(1)))
       .collect().asInstanceOf[Array[(Seq[Any], Seq[Any])]]
     
-    val brRules = dataset.sparkSession.sparkContext.broadcast(rules)
+    /*
+     * The antecedents of the rules are compiled into an inverted 
+     * index once per broadcast; each basket therefore only touches
+     * those rules that share at least one item with the basket
+     */
+    val brRules = dataset.sparkSession.sparkContext.broadcast(new AssociationRuleIndex(rules))
 
     val dt = dataset.schema($(itemsCol)).dataType
     // For each rule, examine the input items and summarize the consequents
     val predictUDF = udf((items: Seq[Any]) => {
       if (items != null) {
-        val itemset = items.toSet
-        brRules.value.filter(_._1.forall(itemset.contains))
-          .flatMap(_._2.filter(!itemset.contains(_))).distinct
+        brRules.value.predict(items.toSet)
       } else {
         Seq.empty
       }}, dt)
@@ -278,6 +283,73 @@ class FPGrowthModel (override val uid: String, @transient val freqItemsets: Data
   }
 }
 
+/**
+ * [AssociationRuleIndex] is an inverted index that maps each item to
+ * the rules that contain this item in their antecedent. A rule matches
+ * a certain basket, if the number of basket items that refer to this
+ * rule is equal to the (distinct) size of its antecedent.
+ * 
+ * The matching rules are evaluated in the order of the provided rules,
+ * i.e. the predictions are equal to those of a linear scan.
+ */
+private[fpm] class AssociationRuleIndex(rules: Array[(Seq[Any], Seq[Any])]) extends Serializable {
+  
+  private val consequents: Array[Seq[Any]] = rules.map(_._2)
+  
+  private val sizes: Array[Int] = rules.map(_._1.distinct.size)
+  /*
+   * Rules with an empty antecedent match every basket
+   */
+  private val unconditional: Array[Int] = sizes.indices.filter(sizes(_) == 0).toArray
+  
+  private val index: Map[Any, Array[Int]] = rules.zipWithIndex
+    .flatMap{case((antecedent, _), rule) => antecedent.distinct.map(item => (item, rule))}
+    .groupBy(_._1)
+    .map{case(item, pairs) => (item, pairs.map(_._2))}
+  /*
+   * The match counters are re-used by all baskets of
+   * a certain task thread; only touched counters are
+   * reset after each basket
+   */
+  @transient private lazy val counters = new ThreadLocal[Array[Int]] {
+    override def initialValue(): Array[Int] = new Array[Int](sizes.length)
+  }
+  
+  def predict(itemset: Set[Any]): Seq[Any] = {
+    
+    val counts = counters.get
+    
+    val touched = ArrayBuilder.make[Int]
+    val matched = ArrayBuilder.make[Int]
+    
+    matched ++= unconditional
+    itemset.foreach(item => {
+      
+      index.get(item) match {
+        case Some(ids) => ids.foreach(id => {
+          
+          if (counts(id) == 0) touched += id
+          counts(id) += 1
+          
+          if (counts(id) == sizes(id)) matched += id
+          
+        })
+        case None =>
+      }
+      
+    })
+    
+    touched.result.foreach(id => counts(id) = 0)
+    
+    val ids = matched.result
+    java.util.Arrays.sort(ids)
+    
+    ids.flatMap(id => consequents(id).filter(!itemset.contains(_))).distinct
+    
+  }
+  
+}
+
 object FPGrowthModel extends MLReadable[FPGrowthModel] {
 
   override def read: MLReader[FPGrowthModel] = new FPGrowthModelReader
@@ -0,0 +1,481 @@
+package org.apache.spark.sql
+
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.nio.ByteBuffer
+import java.util.concurrent.ConcurrentHashMap
+
+import io.cdap.cdap.api.data.format.StructuredRecord
+import io.cdap.cdap.api.data.schema.Schema
+import io.cdap.cdap.api.spark.sql.DataFrames
+
+import org.apache.spark.rdd.RDD
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.{GenericInternalRow, UnsafeArrayData}
+import org.apache.spark.sql.catalyst.util.{ArrayBasedMapData, ArrayData, GenericArrayData, MapData}
+import org.apache.spark.sql.types._
+import org.apache.spark.unsafe.types.UTF8String
+
+import scala.collection.JavaConverters._
+/**
+ * The [RecordConverter] is a schema specialized replacement of the
+ * CDAP DataFrames.toRow and DataFrames.fromRow round trip: CDAP structured
+ * records are written directly into Apache Spark's internal row format,
+ * and read back from it, without generic external [Row] intermediates
+ * that have to be re-encoded by Spark.
+ *
+ * The field accessors are compiled once per Schema / StructType pair and
+ * cached per JVM; this object is located in Spark's [sql] package as it
+ * leverages the package private internal dataframe creation.
+ */
+object RecordConverter {
+
+  private val writers = new ConcurrentHashMap[StructType, RecordWriter]()
+  private val readers = new ConcurrentHashMap[(Schema, StructType), RowReader]()
+  /*
+   * A record converter does not cover the full range of CDAP
+   * and Spark data types (e.g. logical types like date & time
+   * or decimals); for those schemas, the caller must fallback
+   * to the DataFrames based conversion
+   */
+  def isSupported(structType: StructType): Boolean = {
+    structType.fields.forall(field => isSupported(field.dataType))
+  }
+
+  def isSupported(schema: Schema, structType: StructType): Boolean = {
+
+    if (schema.getType != Schema.Type.RECORD) return false
+    schema.getFields.asScala.forall(field => {
+
+      val index = structType.getFieldIndex(field.getName)
+      if (index.isEmpty) false
+      else
+        isSupported(field.getSchema, structType.fields(index.get).dataType)
+
+    })
+
+  }
+
+  private def isSupported(dataType: DataType): Boolean = {
+    dataType match {
+      case BooleanType | IntegerType | LongType | FloatType | DoubleType => true
+      case StringType | BinaryType => true
+      case ArrayType(elementType, _) => isSupported(elementType)
+      case MapType(keyType, valueType, _) => isSupported(keyType) && isSupported(valueType)
+      case struct: StructType => isSupported(struct)
+      case _ => false
+    }
+  }
+
+  private def isSupported(fieldSchema: Schema, dataType: DataType): Boolean = {
+
+    val schema = if (fieldSchema.isNullable) fieldSchema.getNonNullable else fieldSchema
+    if (schema.getLogicalType != null) return false
+
+    (schema.getType, dataType) match {
+      case (Schema.Type.BOOLEAN, BooleanType) => true
+      case (Schema.Type.INT, IntegerType) => true
+      case (Schema.Type.LONG, LongType) => true
+      case (Schema.Type.FLOAT, FloatType) => true
+      case (Schema.Type.DOUBLE, DoubleType) => true
+      case (Schema.Type.STRING, StringType) => true
+      case (Schema.Type.BYTES, BinaryType) => true
+      case (Schema.Type.ARRAY, ArrayType(elementType, _)) =>
+        isSupported(schema.getComponentSchema, elementType)
+      case (Schema.Type.MAP, MapType(keyType, valueType, _)) =>
+        val entry = schema.getMapSchema
+        isSupported(entry.getKey, keyType) && isSupported(entry.getValue, valueType)
+      case (Schema.Type.RECORD, struct: StructType) => isSupported(schema, struct)
+      case _ => false
+    }
+
+  }
+  /**
+   * This method transforms an RDD of CDAP structured records into
+   * a dataframe; the caller is responsible to check whether the
+   * provided struct type is supported.
+   */
+  def toDataset(input: RDD[StructuredRecord], structType: StructType, session: SparkSession): DataFrame = {
+
+    val rows = input.mapPartitions(records => {
+      val writer = getWriter(structType)
+      records.map(record => writer.write(record))
+    }, preservesPartitioning = true)
+
+    session.internalCreateDataFrame(rows, structType)
+
+  }
+  /**
+   * This method transforms a dataframe into an RDD of CDAP structured
+   * records; the caller is responsible to check whether the provided
+   * schema is supported.
+   */
+  def fromDataset(output: DataFrame, schema: Schema): RDD[StructuredRecord] = {
+
+    val structType = output.schema
+    output.queryExecution.toRdd.mapPartitions(rows => {
+      val reader = getReader(schema, structType)
+      rows.map(row => reader.read(row))
+    }, preservesPartitioning = true)
+
+  }
+
+  def getWriter(structType: StructType): RecordWriter = {
+
+    val cached = writers.get(structType)
+    if (cached != null) return cached
+
+    val writer = new RecordWriter(structType)
+    writers.putIfAbsent(structType, writer)
+
+    writer
+
+  }
+
+  def getReader(schema: Schema, structType: StructType): RowReader = {
+
+    val key = (schema, structType)
+
+    val cached = readers.get(key)
+    if (cached != null) return cached
+
+    val reader = new RowReader(schema, structType)
+    readers.putIfAbsent(key, reader)
+
+    reader
+
+  }
+
+}
+/**
+ * The [RecordWriter] writes a CDAP structured record into an
+ * internal row; all value converters are resolved once from
+ * the provided struct type.
+ */
+class RecordWriter(structType: StructType) extends Serializable {
+
+  private val names = structType.fields.map(_.name)
+  private val converters = structType.fields.map(field => RecordWriter.converter(field.dataType))
+
+  private val numFields = names.length
+
+  def write(record: StructuredRecord): InternalRow = {
+
+    val row = new GenericInternalRow(numFields)
+
+    var i = 0
+    while (i < numFields) {
+
+      val value: Any = record.get[Any](names(i))
+      if (value == null) row.setNullAt(i) else row.update(i, converters(i)(value))
+
+      i += 1
+    }
+
+    row
+
+  }
+
+}
+
+object RecordWriter {
+
+  def converter(dataType: DataType): Any => Any = {
+    dataType match {
+      case BooleanType => (value: Any) => value
+      case IntegerType => (value: Any) => value.asInstanceOf[Number].intValue
+      case LongType => (value: Any) => value.asInstanceOf[Number].longValue
+      case FloatType => (value: Any) => value.asInstanceOf[Number].floatValue
+      case DoubleType => (value: Any) => value.asInstanceOf[Number].doubleValue
+      case StringType => (value: Any) => UTF8String.fromString(value.toString)
+      case BinaryType => (value: Any) => toBytes(value)
+      /*
+       * Arrays of Double are the most frequent complex data type
+       * (features) and are written as a primitive unsafe array
+       */
+      case ArrayType(DoubleType, _) =>
+        val element = converter(DoubleType)
+        (value: Any) => value match {
+          case values: Array[Double] => UnsafeArrayData.fromPrimitiveArray(values)
+          case _ => toArray(value, element)
+        }
+      case ArrayType(elementType, _) =>
+        val element = converter(elementType)
+        (value: Any) => toArray(value, element)
+
+      case MapType(keyType, valueType, _) =>
+        val key = converter(keyType)
+        val element = converter(valueType)
+        (value: Any) => {
+
+          val entries = value.asInstanceOf[java.util.Map[_, _]]
+
+          val keys = new Array[Any](entries.size)
+          val values = new Array[Any](entries.size)
+
+          var i = 0
+          val iter = entries.entrySet.iterator
+          while (iter.hasNext) {
+
+            val entry = iter.next
+            keys(i) = key(entry.getKey)
+            values(i) = if (entry.getValue == null) null else element(entry.getValue)
+
+            i += 1
+          }
+
+          new ArrayBasedMapData(new GenericArrayData(keys), new GenericArrayData(values))
+
+        }
+
+      case struct: StructType =>
+        val writer = new RecordWriter(struct)
+        (value: Any) => writer.write(value.asInstanceOf[StructuredRecord])
+
+      case _ =>
+        throw new IllegalArgumentException(s"Data type '${dataType.simpleString}' is not supported.")
+    }
+  }
+
+  private def toArray(value: Any, element: Any => Any): ArrayData = {
+    value match {
+      case values: java.util.Collection[_] =>
+
+        val result = new Array[Any](values.size)
+
+        var i = 0
+        val iter = values.iterator
+        while (iter.hasNext) {
+
+          val item = iter.next
+          result(i) = if (item == null) null else element(item)
+
+          i += 1
+        }
+
+        new GenericArrayData(result)
+
+      case values: Array[_] =>
+
+        val result = new Array[Any](values.length)
+
+        var i = 0
+        while (i < values.length) {
+
+          val item = values(i)
+          result(i) = if (item == null) null else element(item)
+
+          i += 1
+        }
+
+        new GenericArrayData(result)
+
+      case values: Seq[_] =>
+        new GenericArrayData(values.map(item => if (item == null) null else element(item)))
+
+      case _ =>
+        throw new IllegalArgumentException(s"Value of type '${value.getClass.getName}' cannot be converted into an array.")
+    }
+  }
+
+  private def toBytes(value: Any): Array[Byte] = {
+    value match {
+      case bytes: Array[Byte] => bytes
+      case buffer: ByteBuffer =>
+        /*
+         * The buffer is duplicated to leave the position
+         * of the record's buffer unchanged
+         */
+        val duplicate = buffer.duplicate
+        val bytes = new Array[Byte](duplicate.remaining)
+
+        duplicate.get(bytes)
+        bytes
+
+      case _ =>
+        throw new IllegalArgumentException(s"Value of type '${value.getClass.getName}' cannot be converted into bytes.")
+    }
+  }
+
+}
+/**
+ * The [RowReader] reads an internal row into a CDAP structured
+ * record; all value converters are resolved once from the provided
+ * schema and struct type.
+ */
+class RowReader(schema: Schema, structType: StructType) extends Serializable {
+
+  private val fields = schema.getFields.asScala.toArray
+
+  private val names = fields.map(_.getName)
+  private val ordinals = names.map(name => structType.fieldIndex(name))
+
+  private val dataTypes = ordinals.map(ordinal => structType.fields(ordinal).dataType)
+  private val converters = fields.zip(dataTypes).map{case(field, dataType) =>
+    RowReader.converter(field.getSchema, dataType)}
+
+  private val numFields = names.length
+
+  def read(row: InternalRow): StructuredRecord = {
+
+    val builder = StructuredRecord.builder(schema)
+
+    var i = 0
+    while (i < numFields) {
+
+      val ordinal = ordinals(i)
+      if (!row.isNullAt(ordinal))
+        builder.set(names(i), converters(i)(row.get(ordinal, dataTypes(i))))
+
+      i += 1
+    }
+
+    builder.build()
+
+  }
+
+}
+
+object RowReader {
+
+  def converter(fieldSchema: Schema, dataType: DataType): Any => Any = {
+
+    val schema = if (fieldSchema.isNullable) fieldSchema.getNonNullable else fieldSchema
+    dataType match {
+      case BooleanType | IntegerType | LongType | FloatType | DoubleType => (value: Any) => value
+      case StringType => (value: Any) => value.toString
+      case BinaryType => (value: Any) => ByteBuffer.wrap(value.asInstanceOf[Array[Byte]])
+
+      case ArrayType(elementType, _) =>
+        val element = converter(schema.getComponentSchema, elementType)
+        (value: Any) => {
+
+          val values = value.asInstanceOf[ArrayData]
+          val result = new java.util.ArrayList[Any](values.numElements)
+
+          var i = 0
+          while (i < values.numElements) {
+
+            if (values.isNullAt(i)) result.add(null)
+            else result.add(element(values.get(i, elementType)))
+
+            i += 1
+          }
+
+          result
+
+        }
+
+      case MapType(keyType, valueType, _) =>
+        val entry = schema.getMapSchema
+
+        val key = converter(entry.getKey, keyType)
+        val element = converter(entry.getValue, valueType)
+
+        (value: Any) => {
+
+          val values = value.asInstanceOf[MapData]
+
+          val keys = values.keyArray
+          val elements = values.valueArray
+
+          val result = new java.util.HashMap[Any, Any]()
+
+          var i = 0
+          while (i < values.numElements) {
+
+            val v = if (elements.isNullAt(i)) null else element(elements.get(i, valueType))
+            result.put(key(keys.get(i, keyType)), v)
+
+            i += 1
+          }
+
+          result
+
+        }
+
+      case struct: StructType =>
+        val reader = new RowReader(schema, struct)
+        (value: Any) => reader.read(value.asInstanceOf[InternalRow])
+
+      case _ =>
+        throw new IllegalArgumentException(s"Data type '${dataType.simpleString}' is not supported.")
+    }
+
+  }
+
+}
+
+object RecordConverterBenchmark {
+
+  def main(args:Array[String]) {
+
+    val session = SparkSession.builder
+      .appName("RecordConverterBenchmark")
+      .master("local")
+      .getOrCreate()
+
+    val numRecords = if (args.length > 0) args(0).toInt else 1000000
+
+    val schema = Schema.recordOf("benchmark",
+        Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+        Schema.Field.of("label", Schema.of(Schema.Type.DOUBLE)),
+        Schema.Field.of("category", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+        Schema.Field.of("features", Schema.arrayOf(Schema.of(Schema.Type.DOUBLE))))
+
+    val structType = DataFrames.toDataType[StructType](schema)
+
+    val input = session.sparkContext.parallelize(0 until numRecords, 4).map(i => {
+
+      StructuredRecord.builder(schema)
+        .set("id", i.toLong)
+        .set("label", (i % 2).toDouble)
+        .set("category", "category-" + (i % 10))
+        .set("features", Array.fill(16)(scala.util.Random.nextDouble))
+        .build()
+
+    }).cache
+
+    input.count
+    /*
+     * Per record cost of the DataFrames based round trip
+     */
+    var start = System.nanoTime
+
+    val rows = input.map(record => DataFrames.toRow(record, structType))
+    val generic = session.createDataFrame(rows, structType)
+
+    generic.rdd.map(row => DataFrames.fromRow(row, schema)).count
+
+    val before = (System.nanoTime - start).toDouble / numRecords
+    /*
+     * Per record cost of the record converter round trip
+     */
+    start = System.nanoTime
+
+    val specialized = RecordConverter.toDataset(input, structType, session)
+    RecordConverter.fromDataset(specialized, schema).count
+
+    val after = (System.nanoTime - start).toDouble / numRecords
+
+    println(f"DataFrames: $before%.1f ns/record, RecordConverter: $after%.1f ns/record")
+
+  }
+}
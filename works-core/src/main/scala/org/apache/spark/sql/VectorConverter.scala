@@ -0,0 +1,153 @@
+package org.apache.spark.sql
+
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import org.apache.spark.ml.linalg.{SQLDataTypes, Vectors, VectorUDT}
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.{Expression, GenericInternalRow, UnaryExpression, UnsafeArrayData}
+import org.apache.spark.sql.catalyst.expressions.codegen.CodegenFallback
+import org.apache.spark.sql.catalyst.util.ArrayData
+import org.apache.spark.sql.types._
+
+/**
+ * The [VectorConverter] converts between the Array[Double] columns of
+ * CDAP structured records and the Vector columns of Apache Spark ML.
+ *
+ * In contrast to user defined functions, the conversion operates on
+ * Spark's internal format: the primitive values of an array are copied
+ * into the vector in bulk and vice versa, without boxing each element
+ * into an external Seq[Double] or Array[Double].
+ *
+ * Sparse vectors are represented as a record (struct) of the vector size,
+ * and the indices and values of its active elements.
+ */
+object VectorConverter {
+
+  private[sql] val udt = new VectorUDT()
+
+  val SIZE = "size"
+  val INDICES = "indices"
+  val VALUES = "values"
+
+  val sparseType: StructType = StructType(Array(
+    StructField(SIZE, IntegerType, nullable = false),
+    StructField(INDICES, ArrayType(IntegerType, containsNull = false), nullable = false),
+    StructField(VALUES, ArrayType(DoubleType, containsNull = false), nullable = false)))
+
+  def isVector(dataType: DataType): Boolean = dataType.isInstanceOf[VectorUDT]
+
+  def isSparse(dataType: DataType): Boolean = {
+    dataType match {
+      case struct: StructType =>
+        struct.fieldNames.contains(SIZE) && struct.fieldNames.contains(INDICES) && struct.fieldNames.contains(VALUES)
+      case _ => false
+    }
+  }
+
+  /**
+   * Array[Double] column to (dense) Vector column; null
+   * arrays are mapped onto null vectors
+   */
+  def toVector(column: Column): Column = new Column(ArrayToVector(column.expr))
+
+  /**
+   * Vector (dense or sparse) column to Array[Double] column;
+   * null vectors are mapped onto null arrays
+   */
+  def toArray(column: Column): Column = new Column(VectorToArray(column.expr))
+
+  /**
+   * Sparse vector record column to (sparse) Vector column
+   */
+  def fromSparse(column: Column): Column = new Column(SparseToVector(column.expr))
+
+  /**
+   * Vector (dense or sparse) column to sparse vector record column;
+   * dense vectors are compressed to their non-zero elements
+   */
+  def toSparse(column: Column): Column = new Column(VectorToSparse(column.expr))
+
+}
+
+case class ArrayToVector(child: Expression) extends UnaryExpression with CodegenFallback {
+
+  override def dataType: DataType = SQLDataTypes.VectorType
+
+  override protected def nullSafeEval(input: Any): Any = {
+    VectorConverter.udt.serialize(Vectors.dense(input.asInstanceOf[ArrayData].toDoubleArray))
+  }
+
+  override def prettyName: String = "array_to_vector"
+
+}
+
+case class VectorToArray(child: Expression) extends UnaryExpression with CodegenFallback {
+
+  override def dataType: DataType = ArrayType(DoubleType, containsNull = false)
+
+  override protected def nullSafeEval(input: Any): Any = {
+    UnsafeArrayData.fromPrimitiveArray(VectorConverter.udt.deserialize(input).toArray)
+  }
+
+  override def prettyName: String = "vector_to_array"
+
+}
+
+case class SparseToVector(child: Expression) extends UnaryExpression with CodegenFallback {
+  /*
+   * The ordinals of the sparse vector fields are resolved by name, 
+   * as the field order of the input record is not prescribed
+   */
+  @transient private lazy val ordinals = {
+    val struct = child.dataType.asInstanceOf[StructType]
+    (struct.fieldIndex(VectorConverter.SIZE), struct.fieldIndex(VectorConverter.INDICES), struct.fieldIndex(VectorConverter.VALUES))
+  }
+
+  override def dataType: DataType = SQLDataTypes.VectorType
+
+  override protected def nullSafeEval(input: Any): Any = {
+
+    val row = input.asInstanceOf[InternalRow]
+    val (size, indices, values) = ordinals
+
+    VectorConverter.udt.serialize(Vectors.sparse(row.getInt(size), 
+        row.getArray(indices).toIntArray, row.getArray(values).toDoubleArray))
+
+  }
+
+  override def prettyName: String = "sparse_to_vector"
+
+}
+
+case class VectorToSparse(child: Expression) extends UnaryExpression with CodegenFallback {
+
+  override def dataType: DataType = VectorConverter.sparseType
+
+  override protected def nullSafeEval(input: Any): Any = {
+
+    val vector = VectorConverter.udt.deserialize(input).toSparse
+    new GenericInternalRow(Array[Any](vector.size, 
+        UnsafeArrayData.fromPrimitiveArray(vector.indices), UnsafeArrayData.fromPrimitiveArray(vector.values)))
+
+  }
+
+  override def prettyName: String = "vector_to_sparse"
+
+}
@@ -57,19 +57,23 @@ public class DLCompute extends BaseCompute {
 
 		JavaSparkContext jsc = context.getSparkContext();
 		/*
-		 * In case of an empty input the input is immediately 
-		 * returned without any further processing
-		 */
-		if (input.isEmpty()) {
-			return input;
-		}
-		/*
-		 * Determine input schema: first, check whether the input
-		 * schema is already provided by a previous initializing 
-		 * or preparing step
+		 * Determine input schema: first, check whether the input schema is already
+		 * provided by a previous initializing or preparing step, or by the context.
+		 * 
+		 * An empty input is not checked upfront, as this is an extra job over the
+		 * upstream lineage: with a known schema, an empty input results in an empty
+		 * output of the actual job
 		 */
 		if (inputSchema == null) {
-			inputSchema = input.first().getSchema();
+
+			inputSchema = SessionHelper.getInputSchema(context, input);
+			/*
+			 * No schema is available and the input is empty: the 
+			 * input is returned without any further processing
+			 */
+			if (inputSchema == null)
+				return input;
+
 			validateSchema(inputSchema);
 		}
 		/*
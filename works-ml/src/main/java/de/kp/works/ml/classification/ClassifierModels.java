@@ -0,0 +1,153 @@
+package de.kp.works.ml.classification;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.util.Map;
+
+import org.apache.spark.ml.PredictionModel;
+import org.apache.spark.ml.classification.DecisionTreeClassificationModel;
+import org.apache.spark.ml.classification.GBTClassificationModel;
+import org.apache.spark.ml.classification.LogisticRegressionModel;
+import org.apache.spark.ml.classification.MultilayerPerceptronClassificationModel;
+import org.apache.spark.ml.classification.NaiveBayesModel;
+import org.apache.spark.ml.classification.RandomForestClassificationModel;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+
+import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
+import de.kp.works.core.Algorithms;
+import de.kp.works.core.model.ModelProfile;
+import de.kp.works.ml.config.DTConfig;
+import de.kp.works.ml.config.GBTConfig;
+import de.kp.works.ml.config.RFConfig;
+
+/**
+ * [ClassifierModels] trains and tracks classifier models by algorithm
+ * name; it is shared by the stages that train more than one model per
+ * pipeline run, i.e. hyper-parameter search and multi-algorithm training.
+ */
+public class ClassifierModels {
+
+	/**
+	 * The default parameters of the provided algorithm, as
+	 * defined by the configuration of its building stage
+	 */
+	public static Map<String, Object> getDefaults(String algorithmName) {
+
+		switch (algorithmName) {
+		case Algorithms.DECISION_TREE:
+			return new DTConfig().getParamsAsMap();
+		case Algorithms.GRADIENT_BOOSTED_TREE:
+			return new GBTConfig().getParamsAsMap();
+		case Algorithms.LOGISTIC_REGRESSION:
+			return new LRClassifier.LRClassifierConfig().getParamsAsMap();
+		case Algorithms.MULTI_LAYER_PERCEPTRON:
+			return new MLPClassifier.MLPClassifierConfig().getParamsAsMap();
+		case Algorithms.NAIVE_BAYES:
+			return new NBClassifier.NBClassifierConfig().getParamsAsMap();
+		case Algorithms.RANDOM_FOREST_TREE:
+			return new RFConfig().getParamsAsMap();
+		default:
+			throw new IllegalArgumentException(
+					String.format("Classifier algorithm '%s' is not supported.", algorithmName));
+		}
+
+	}
+
+	public static PredictionModel<?, ?> train(String algorithmName, Dataset<Row> trainset, String vectorCol,
+			String labelCol, Map<String, Object> params) {
+
+		switch (algorithmName) {
+		case Algorithms.DECISION_TREE:
+			return new DTTrainer().train(trainset, vectorCol, labelCol, params);
+		case Algorithms.GRADIENT_BOOSTED_TREE:
+			return new GBTTrainer().train(trainset, vectorCol, labelCol, params);
+		case Algorithms.LOGISTIC_REGRESSION:
+			return new LRTrainer().train(trainset, vectorCol, labelCol, params);
+		case Algorithms.MULTI_LAYER_PERCEPTRON:
+			return new MLPTrainer().train(trainset, vectorCol, labelCol, params);
+		case Algorithms.NAIVE_BAYES:
+			return new NBTrainer().train(trainset, vectorCol, labelCol, params);
+		case Algorithms.RANDOM_FOREST_TREE:
+			return new RFTrainer().train(trainset, vectorCol, labelCol, params);
+		default:
+			throw new IllegalArgumentException(
+					String.format("Classifier algorithm '%s' is not supported.", algorithmName));
+		}
+
+	}
+
+	/**
+	 * This method registers the provided model and returns the profile
+	 * (identifier, fileset path and version) of the registered model
+	 */
+	public static ModelProfile track(SparkExecutionPluginContext context, String algorithmName, String modelName,
+			String modelStage, String modelParams, String modelMetrics, PredictionModel<?, ?> model) throws Exception {
+
+		switch (algorithmName) {
+		case Algorithms.DECISION_TREE: {
+			DTCRecorder recorder = new DTCRecorder();
+			recorder.track(context, modelName, modelStage, modelParams, modelMetrics,
+					(DecisionTreeClassificationModel) model);
+
+			return recorder.getProfile();
+		}
+		case Algorithms.GRADIENT_BOOSTED_TREE: {
+			GBCRecorder recorder = new GBCRecorder();
+			recorder.track(context, modelName, modelStage, modelParams, modelMetrics,
+					(GBTClassificationModel) model);
+
+			return recorder.getProfile();
+		}
+		case Algorithms.LOGISTIC_REGRESSION: {
+			LRRecorder recorder = new LRRecorder();
+			recorder.track(context, modelName, modelStage, modelParams, modelMetrics,
+					(LogisticRegressionModel) model);
+
+			return recorder.getProfile();
+		}
+		case Algorithms.MULTI_LAYER_PERCEPTRON: {
+			MLPRecorder recorder = new MLPRecorder();
+			recorder.track(context, modelName, modelStage, modelParams, modelMetrics,
+					(MultilayerPerceptronClassificationModel) model);
+
+			return recorder.getProfile();
+		}
+		case Algorithms.NAIVE_BAYES: {
+			NBRecorder recorder = new NBRecorder();
+			recorder.track(context, modelName, modelStage, modelParams, modelMetrics,
+					(NaiveBayesModel) model);
+
+			return recorder.getProfile();
+		}
+		case Algorithms.RANDOM_FOREST_TREE: {
+			RFCRecorder recorder = new RFCRecorder();
+			recorder.track(context, modelName, modelStage, modelParams, modelMetrics,
+					(RandomForestClassificationModel) model);
+
+			return recorder.getProfile();
+		}
+		default:
+			throw new IllegalArgumentException(
+					String.format("Classifier algorithm '%s' is not supported.", algorithmName));
+		}
+
+	}
+
+}
@@ -0,0 +1,261 @@
+package de.kp.works.ml.classification;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.apache.spark.ml.PredictionModel;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+
+import com.google.common.base.Strings;
+import com.google.gson.Gson;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.StageConfigurer;
+import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
+import io.cdap.cdap.etl.api.batch.SparkSink;
+
+import de.kp.works.core.Algorithms;
+import de.kp.works.core.Params;
+import de.kp.works.core.classifier.ClassifierConfig;
+import de.kp.works.core.classifier.ClassifierSink;
+import de.kp.works.core.ml.MLUtils;
+import de.kp.works.ml.tuning.ParamSearch;
+
+@Plugin(type = SparkSink.PLUGIN_TYPE)
+@Name("ClassifierTuner")
+@Description("A building stage for a hyper-parameter search over Apache Spark ML classifier models. This stage "
+		+ "trains a set of candidate models from a grid or random search space concurrently, evaluates each candidate "
+		+ "and registers all candidates in the model registry. It expects a dataset with at least two fields: One as "
+		+ "an array of numeric values, and, another that describes the class or label value as numeric value.")
+public class ClassifierTuner extends ClassifierSink {
+
+	private static final long serialVersionUID = 3386429475812962817L;
+	/*
+	 * The seed of the random search; a fixed seed ensures that
+	 * repeated pipeline runs evaluate the same candidates
+	 */
+	private static final long SEED = 42L;
+
+	private ClassifierTunerConfig config;
+	public ClassifierTuner(ClassifierTunerConfig config) {
+		this.config = config;
+	}
+
+	@Override
+	public void configurePipeline(PipelineConfigurer pipelineConfigurer) throws IllegalArgumentException {
+		super.configurePipeline(pipelineConfigurer);
+
+		/* Validate configuration */
+		config.validate();
+
+		/* Validate schema */
+		StageConfigurer stageConfigurer = pipelineConfigurer.getStageConfigurer();
+		inputSchema = stageConfigurer.getInputSchema();
+		if (inputSchema != null)
+			validateSchema(inputSchema);
+
+	}
+
+	@Override
+	public void compute(SparkExecutionPluginContext context, Dataset<Row> source) throws Exception {
+
+		String featuresCol = config.featuresCol;
+		String labelCol = config.labelCol;
+		/*
+		 * STEP #1: Vectorize and split the dataset once; the train & test
+		 * datasets are persisted and shared by all candidate models
+		 */
+		String vectorCol = "_vector";
+		Dataset<Row> vectorset = MLUtils.vectorize(source, featuresCol, vectorCol, true);
+
+		Dataset<Row>[] splitted = split(vectorset, config.getSplits(), config.getStorageLevel());
+
+		Dataset<Row> trainset = splitted[0];
+		Dataset<Row> testset = splitted[1];
+		/*
+		 * STEP #2: Expand the search space into candidate parameter maps
+		 * and train & evaluate the candidate models concurrently; each task
+		 * submits its own Spark jobs from a separate thread
+		 */
+		List<Map<String, Object>> candidates = ParamSearch.candidates(config.getDefaults(), config.searchSpace,
+				config.searchStrategy, config.numCandidates, SEED);
+
+		String predictionCol = "_prediction";
+
+		List<Callable<Candidate>> tasks = new ArrayList<>();
+		for (Map<String, Object> params : candidates) {
+			tasks.add(() -> {
+
+				PredictionModel<?, ?> model = ClassifierModels.train(config.algorithm, trainset, vectorCol, labelCol, params);
+				model.setPredictionCol(predictionCol);
+
+				Dataset<Row> predictions = model.transform(testset);
+				String modelMetrics = Evaluator.evaluate(predictions, labelCol, predictionCol);
+
+				return new Candidate(new Gson().toJson(params), modelMetrics, model);
+
+			});
+		}
+
+		List<Candidate> results = ParamSearch.run(tasks, config.parallelism);
+		/*
+		 * STEP #3: Register all candidate models; tracking is performed
+		 * sequentially, as the model registry is accessed through the
+		 * (non thread-safe) datasets of the execution context
+		 */
+		String modelName = config.modelName;
+		String modelStage = config.modelStage;
+
+		for (Candidate result : results) {
+			ClassifierModels.track(context, config.algorithm, modelName, modelStage, result.modelParams,
+					result.modelMetrics, result.model);
+		}
+
+	}
+
+	@Override
+	public void validateSchema(Schema inputSchema) {
+		config.validateSchema(inputSchema);
+	}
+
+	private static class Candidate {
+
+		String modelParams;
+		String modelMetrics;
+
+		PredictionModel<?, ?> model;
+
+		Candidate(String modelParams, String modelMetrics, PredictionModel<?, ?> model) {
+
+			this.modelParams = modelParams;
+			this.modelMetrics = modelMetrics;
+
+			this.model = model;
+
+		}
+
+	}
+
+	public static class ClassifierTunerConfig extends ClassifierConfig {
+
+		private static final long serialVersionUID = -2466373429618352541L;
+
+		@Description("The classifier algorithm of the candidate models. Supported values are 'DecisionTree', "
+				+ "'GradientBoostedTree', 'LogisticRegression', 'NaiveBayes' and 'RandomForestTree'.")
+		@Macro
+		public String algorithm;
+
+		@Description(Params.SEARCH_STRATEGY)
+		@Macro
+		public String searchStrategy;
+
+		@Description(Params.SEARCH_SPACE)
+		@Macro
+		public String searchSpace;
+
+		@Description(Params.NUM_CANDIDATES)
+		@Macro
+		public Integer numCandidates;
+
+		@Description(Params.PARALLELISM)
+		@Macro
+		public Integer parallelism;
+
+		public ClassifierTunerConfig() {
+
+			dataSplit = "70:30";
+			modelStage = "experiment";
+
+			algorithm = Algorithms.RANDOM_FOREST_TREE;
+			searchStrategy = ParamSearch.GRID();
+
+			numCandidates = 10;
+			parallelism = 4;
+
+		}
+
+		/**
+		 * The default parameters of the selected algorithm; the
+		 * search space overrides a subset of these parameters
+		 */
+		public Map<String, Object> getDefaults() {
+
+			switch (algorithm) {
+			case Algorithms.DECISION_TREE:
+			case Algorithms.GRADIENT_BOOSTED_TREE:
+			case Algorithms.LOGISTIC_REGRESSION:
+			case Algorithms.NAIVE_BAYES:
+			case Algorithms.RANDOM_FOREST_TREE:
+				break;
+			default:
+				throw new IllegalArgumentException(
+						String.format("Algorithm '%s' is not supported for hyper-parameter search.", algorithm));
+			}
+
+			Map<String, Object> params = ClassifierModels.getDefaults(algorithm);
+			params.put("dataSplit", dataSplit);
+			return params;
+
+		}
+
+		public void validate() {
+			super.validate();
+
+			if (!containsMacro("searchSpace") && Strings.isNullOrEmpty(searchSpace)) {
+				throw new IllegalArgumentException(
+						String.format("[%s] The search space must not be empty.", this.getClass().getName()));
+			}
+			if (!containsMacro("searchStrategy") && searchStrategy.equals(ParamSearch.GRID()) == false
+					&& searchStrategy.equals(ParamSearch.RANDOM()) == false) {
+				throw new IllegalArgumentException(
+						String.format("[%s] The search strategy must either be 'grid' or 'random'.", this.getClass().getName()));
+			}
+			if (!containsMacro("numCandidates") && numCandidates < 1) {
+				throw new IllegalArgumentException(
+						String.format("[%s] The number of candidates must be positive.", this.getClass().getName()));
+			}
+			if (!containsMacro("parallelism") && parallelism < 1) {
+				throw new IllegalArgumentException(
+						String.format("[%s] The parallelism must be positive.", this.getClass().getName()));
+			}
+			/*
+			 * Validate the search space against the default parameters
+			 * of the selected algorithm; this requires resolved macros
+			 */
+			if (containsMacro("algorithm") || containsMacro("searchSpace") || containsMacro("searchStrategy")
+					|| containsMacro("numCandidates"))
+				return;
+
+			ParamSearch.candidates(getDefaults(), searchSpace, searchStrategy, numCandidates, SEED);
+
+		}
+
+	}
+
+}
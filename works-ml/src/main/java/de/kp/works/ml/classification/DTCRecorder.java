@@ -42,7 +42,7 @@ public class DTCRecorder extends ClassifierRecorder {
 		 * Leverage Apache Spark mechanism to read the DecisionTreeClassification model
 		 * from a model specific file set
 		 */
-		return DecisionTreeClassificationModel.load(modelPath);
+		return loadModel(modelPath, () -> DecisionTreeClassificationModel.load(modelPath));
 		
 	}
 
@@ -42,7 +42,7 @@ public class GBCRecorder extends ClassifierRecorder {
 		 * Leverage Apache Spark mechanism to read the GBTClassifier model
 		 * from a model specific file set
 		 */
-		return GBTClassificationModel.load(modelPath);
+		return loadModel(modelPath, () -> GBTClassificationModel.load(modelPath));
 		
 	}
 
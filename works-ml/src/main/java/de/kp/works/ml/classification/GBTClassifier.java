@@ -91,7 +91,7 @@ public class GBTClassifier extends ClassifierSink {
 		 * Split the vectorset into a train & test dataset for later classification
 		 * evaluation
 		 */
-		Dataset<Row>[] splitted = vectorset.randomSplit(config.getSplits());
+		Dataset<Row>[] splitted = split(vectorset, config.getSplits(), config.getStorageLevel());
 
 		Dataset<Row> trainset = splitted[0];
 		Dataset<Row> testset = splitted[1];
@@ -42,7 +42,7 @@ public class LRRecorder extends ClassifierRecorder {
 		 * Leverage Apache Spark mechanism to read the LogisticRegression model from a
 		 * model specific file set
 		 */
-		return LogisticRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> LogisticRegressionModel.load(modelPath));
 
 	}
 
@@ -42,7 +42,7 @@ public class MLPRecorder extends ClassifierRecorder {
 		 * Leverage Apache Spark mechanism to read the MultilayerPerceptron model from a
 		 * model specific file set
 		 */
-		return MultilayerPerceptronClassificationModel.load(modelPath);
+		return loadModel(modelPath, () -> MultilayerPerceptronClassificationModel.load(modelPath));
 
 	}
 
@@ -42,7 +42,7 @@ public class NBRecorder extends ClassifierRecorder {
 		 * Leverage Apache Spark mechanism to read the NaiveBayes model from a model
 		 * specific file set
 		 */
-		return NaiveBayesModel.load(modelPath);
+		return loadModel(modelPath, () -> NaiveBayesModel.load(modelPath));
 
 	}
 
@@ -42,7 +42,7 @@ public class RFCRecorder extends ClassifierRecorder {
 		 * Leverage Apache Spark mechanism to read the RandomForest model from a model
 		 * specific file set
 		 */
-		return RandomForestClassificationModel.load(modelPath);
+		return loadModel(modelPath, () -> RandomForestClassificationModel.load(modelPath));
 
 	}
 
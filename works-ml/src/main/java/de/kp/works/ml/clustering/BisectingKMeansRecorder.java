@@ -21,15 +21,22 @@ package de.kp.works.ml.clustering;
 import java.util.Date;
 
 import org.apache.spark.ml.clustering.*;
+import org.apache.spark.mllib.clustering.CenterScorer;
 
 import io.cdap.cdap.api.dataset.lib.FileSet;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 import de.kp.works.core.Algorithms;
 import de.kp.works.core.ml.ClusterRecorder;
+import de.kp.works.core.ml.ModelCache;
 import de.kp.works.core.ml.SparkMLManager;
 
 public class BisectingKMeansRecorder extends ClusterRecorder {
+	/*
+	 * The fileset path of the model that has been read last;
+	 * the bisecting tree of the model is compiled from this path
+	 */
+	private String modelPath;
 
 	public BisectingKMeansModel read(SparkExecutionPluginContext context, String modelName, String modelStage, String modelOption) throws Exception {
 
@@ -37,11 +44,29 @@ public class BisectingKMeansRecorder extends ClusterRecorder {
 
 		String modelPath = getModelPath(context, algorithmName, modelName, modelStage, modelOption);
 		if (modelPath == null) return null;
+
+		this.modelPath = modelPath;
 		/*
 		 * Leverage Apache Spark mechanism to read the Bisecting KMeans clustering model
 		 * from a model specific file set
 		 */
-		return BisectingKMeansModel.load(modelPath);
+		return loadModel(modelPath, () -> BisectingKMeansModel.load(modelPath));
+
+	}
+	/**
+	 * This method retrieves the compiled bisecting tree of the model
+	 * that has been read last; the tree is read from the data of the
+	 * underlying model and is cached with the same model identifier
+	 */
+	public CenterScorer readScorer() throws Exception {
+
+		if (modelPath == null) return null;
+
+		String dataPath = modelPath + "/data";
+		String modelId = (profile == null) ? null : profile.id;
+
+		String path = modelPath;
+		return ModelCache.getOrLoad(null, dataPath, modelId, false, metrics, () -> CenterScorer.compileBisecting(path));
 
 	}
 
@@ -41,7 +41,7 @@ public class GaussianMixtureRecorder extends ClusterRecorder {
 		 * Leverage Apache Spark mechanism to read the GaussianMixture clustering model
 		 * from a model specific file set
 		 */
-		return GaussianMixtureModel.load(modelPath);
+		return loadModel(modelPath, () -> GaussianMixtureModel.load(modelPath));
 
 	}
 
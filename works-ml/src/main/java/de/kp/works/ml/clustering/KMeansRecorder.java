@@ -41,7 +41,7 @@ public class KMeansRecorder extends ClusterRecorder {
 		 * Leverage Apache Spark mechanism to read the KMeans clustering model from a
 		 * model specific file set
 		 */
-		return KMeansModel.load(modelPath);
+		return loadModel(modelPath, () -> KMeansModel.load(modelPath));
 
 	}
 
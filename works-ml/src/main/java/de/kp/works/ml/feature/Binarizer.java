@@ -148,7 +148,7 @@ public class Binarizer extends FeatureCompute {
 		public void validateSchema(Schema inputSchema) {
 			super.validateSchema(inputSchema);
 			
-			SchemaUtil.isArrayOfNumeric(inputSchema, inputCol);
+			SchemaUtil.isFeatures(inputSchema, inputCol);
 			
 		}
 		
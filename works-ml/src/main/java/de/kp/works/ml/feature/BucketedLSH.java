@@ -159,7 +159,7 @@ public class BucketedLSH extends FeatureCompute {
 		public void validateSchema(Schema inputSchema) {
 			super.validateSchema(inputSchema);
 			
-			SchemaUtil.isArrayOfNumeric(inputSchema, inputCol);
+			SchemaUtil.isFeatures(inputSchema, inputCol);
 			
 		}
 		
@@ -172,7 +172,7 @@ public class BucketedLSHBuilder extends FeatureSink {
 			super.validateSchema(inputSchema);
 			
 			/** INPUT COLUMN **/
-			SchemaUtil.isArrayOfNumeric(inputSchema, inputCol);
+			SchemaUtil.isFeatures(inputSchema, inputCol);
 			
 		}
 		
@@ -42,7 +42,7 @@ public class BucketedLSHRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the Bucketed Random Projection LSH
 		 * model from a model specific file set
 		 */
-		return BucketedRandomProjectionLSHModel.load(modelPath);
+		return loadModel(modelPath, () -> BucketedRandomProjectionLSHModel.load(modelPath));
 
 	}
 
@@ -194,7 +194,7 @@ public class ChiSquaredBuilder extends FeatureSink {
 			super.validateSchema(inputSchema);
 
 			/** INPUT COLUMN **/
-			SchemaUtil.isArrayOfNumeric(inputSchema, inputCol);
+			SchemaUtil.isFeatures(inputSchema, inputCol);
 
 			/** Label COLUMN **/
 			SchemaUtil.isNumeric(inputSchema, labelCol);
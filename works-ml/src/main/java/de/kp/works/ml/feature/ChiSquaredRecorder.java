@@ -41,7 +41,7 @@ public class ChiSquaredRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the Chi Squared Selector model
 		 * from a model specific file set
 		 */
-		return ChiSqSelectorModel.load(modelPath);
+		return loadModel(modelPath, () -> ChiSqSelectorModel.load(modelPath));
 		
 	}
 
@@ -145,7 +145,7 @@ public class ChiSquaredSelector extends FeatureCompute {
 			super.validateSchema(inputSchema);
 			
 			/** INPUT COLUMN **/
-			SchemaUtil.isArrayOfNumeric(inputSchema, inputCol);
+			SchemaUtil.isFeatures(inputSchema, inputCol);
 			
 		}
 		
@@ -89,10 +89,15 @@ public class CountVec extends FeatureCompute {
 			validateSchema(inputSchema);
 			/*
 			 * In cases where the input schema is explicitly provided, we determine the
-			 * output schema by explicitly adding the output column
+			 * output schema by explicitly adding the output column; the schema depends
+			 * on the vector format, and is inferred at runtime, if this format is a macro
 			 */
-			outputSchema = getArrayOutputSchema(inputSchema, config.outputCol, Schema.Type.DOUBLE);
-			stageConfigurer.setOutputSchema(outputSchema);
+			if (config.containsMacro("vectorFormat") == false) {
+
+				outputSchema = getVectorOutputSchema(inputSchema, config.outputCol, config.isSparse());
+				stageConfigurer.setOutputSchema(outputSchema);
+
+			}
 
 		}
 
@@ -124,7 +129,7 @@ public class CountVec extends FeatureCompute {
 		model.setOutputCol("_vector");
 
 		Dataset<Row> transformed = model.transform(source);
-		Dataset<Row> output = MLUtils.devectorize(transformed, "_vector", config.outputCol).drop("_vector");
+		Dataset<Row> output = MLUtils.devectorize(transformed, "_vector", config.outputCol, config.isSparse()).drop("_vector");
 
 		return annotate(output, FEATURE_TYPE);
 
@@ -41,7 +41,7 @@ public class CountVecRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the CountVectorizer model
 		 * from a model specific file set
 		 */
-		return CountVectorizerModel.load(modelPath);
+		return loadModel(modelPath, () -> CountVectorizerModel.load(modelPath));
 		
 	}
 
@@ -156,7 +156,7 @@ public class DCT extends FeatureCompute {
 			super.validateSchema(inputSchema);
 
 			/** INPUT COLUMN **/
-			SchemaUtil.isArrayOfNumeric(inputSchema, inputCol);
+			SchemaUtil.isFeatures(inputSchema, inputCol);
 			
 		}
 		
@@ -41,7 +41,7 @@ public class MinHashLSHRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the MinHashLSH model
 		 * from a model specific file set
 		 */
-		return MinHashLSHModel.load(modelPath);
+		return loadModel(modelPath, () -> MinHashLSHModel.load(modelPath));
 		
 	}
 
@@ -70,10 +70,15 @@ public class OneHotEncoder extends FeatureCompute {
 			validateSchema(inputSchema);
 			/*
 			 * In cases where the input schema is explicitly provided, we determine the
-			 * output schema by explicitly adding the output column
+			 * output schema by explicitly adding the output column; the schema depends
+			 * on the vector format, and is inferred at runtime, if this format is a macro
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.outputCol);
-			stageConfigurer.setOutputSchema(outputSchema);
+			if (config.containsMacro("vectorFormat") == false) {
+
+				outputSchema = getOutputSchema(inputSchema, config.outputCol, config.isSparse());
+				stageConfigurer.setOutputSchema(outputSchema);
+
+			}
 
 		}
 
@@ -88,11 +93,12 @@ public class OneHotEncoder extends FeatureCompute {
 	 * A helper method to compute the output schema in that use cases where an input
 	 * schema is explicitly given
 	 */
-	public Schema getOutputSchema(Schema inputSchema, String outputField) {
+	public Schema getOutputSchema(Schema inputSchema, String outputField, Boolean sparse) {
 
 		List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields());
 		
-		fields.add(Schema.Field.of(outputField, Schema.arrayOf(Schema.of(Schema.Type.DOUBLE))));
+		Schema fieldSchema = sparse ? SchemaUtil.getSparseVectorSchema() : Schema.arrayOf(Schema.of(Schema.Type.DOUBLE));
+		fields.add(Schema.Field.of(outputField, fieldSchema));
 		return Schema.recordOf(inputSchema.getRecordName() + ".transformed", fields);
 
 	}	
@@ -117,7 +123,7 @@ public class OneHotEncoder extends FeatureCompute {
 
 		Dataset<Row> transformed = transformer.transform(source);		
 
-		Dataset<Row> output = MLUtils.devectorize(transformed, "_vector", config.outputCol).drop("_vector");
+		Dataset<Row> output = MLUtils.devectorize(transformed, "_vector", config.outputCol, config.isSparse()).drop("_vector");
 		return output;
 	    		
 	}
@@ -41,7 +41,7 @@ public class PCARecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the PCA model
 		 * from a model specific file set
 		 */
-		return PCAModel.load(modelPath);
+		return loadModel(modelPath, () -> PCAModel.load(modelPath));
 		
 	}
 
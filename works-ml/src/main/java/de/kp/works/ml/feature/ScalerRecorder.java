@@ -53,7 +53,7 @@ public class ScalerRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the MinMax Scaler model
 		 * from a model specific file set
 		 */
-		return MinMaxScalerModel.load(modelPath);
+		return loadModel(modelPath, () -> MinMaxScalerModel.load(modelPath));
 		
 	}
 
@@ -95,7 +95,7 @@ public class ScalerRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the MinMax Scaler model
 		 * from a model specific file set
 		 */
-		return MaxAbsScalerModel.load(modelPath);
+		return loadModel(modelPath, () -> MaxAbsScalerModel.load(modelPath));
 		
 	}
 	
@@ -137,7 +137,7 @@ public class ScalerRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the Standard Scaler model
 		 * from a model specific file set
 		 */
-		return StandardScalerModel.load(modelPath);
+		return loadModel(modelPath, () -> StandardScalerModel.load(modelPath));
 		
 	}
 	
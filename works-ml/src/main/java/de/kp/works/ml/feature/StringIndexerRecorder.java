@@ -41,7 +41,7 @@ public class StringIndexerRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the StringIndexer model
 		 * from a model specific file set
 		 */
-		return StringIndexerModel.load(modelPath);
+		return loadModel(modelPath, () -> StringIndexerModel.load(modelPath));
 		
 	}
 	
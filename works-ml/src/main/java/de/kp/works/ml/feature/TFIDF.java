@@ -93,10 +93,15 @@ public class TFIDF extends FeatureCompute {
 			validateSchema(inputSchema);
 			/*
 			 * In cases where the input schema is explicitly provided, we determine the
-			 * output schema by explicitly adding the output column
+			 * output schema by explicitly adding the output column; the schema depends
+			 * on the vector format, and is inferred at runtime, if this format is a macro
 			 */
-			outputSchema = getArrayOutputSchema(inputSchema, config.outputCol, Schema.Type.DOUBLE);
-			stageConfigurer.setOutputSchema(outputSchema);
+			if (config.containsMacro("vectorFormat") == false) {
+
+				outputSchema = getVectorOutputSchema(inputSchema, config.outputCol, config.isSparse());
+				stageConfigurer.setOutputSchema(outputSchema);
+
+			}
 
 		}
 
@@ -135,7 +140,7 @@ public class TFIDF extends FeatureCompute {
 		model.setOutputCol("_vector");		
 		Dataset<Row> transformed = model.transform(transformedTF).drop("_features");		
 
-		Dataset<Row> output = MLUtils.devectorize(transformed, "_vector", config.outputCol).drop("_vector");
+		Dataset<Row> output = MLUtils.devectorize(transformed, "_vector", config.outputCol, config.isSparse()).drop("_vector");
 		return annotate(output, FEATURE_TYPE);
 
 	}
@@ -40,7 +40,7 @@ public class TFIDFRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the IDF model
 		 * from a model specific file set
 		 */
-		return IDFModel.load(modelPath);
+		return loadModel(modelPath, () -> IDFModel.load(modelPath));
 		
 	}
 
@@ -41,7 +41,7 @@ public class VectorIndexerRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the VectorIndexer model
 		 * from a model specific file set
 		 */
-		return VectorIndexerModel.load(modelPath);
+		return loadModel(modelPath, () -> VectorIndexerModel.load(modelPath));
 		
 	}
 
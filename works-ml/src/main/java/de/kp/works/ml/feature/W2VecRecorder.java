@@ -41,7 +41,7 @@ public class W2VecRecorder extends FeatureRecorder {
 		 * Leverage Apache Spark mechanism to read the Word2Vec model
 		 * from a model specific file set
 		 */
-		return Word2VecModel.load(modelPath);
+		return loadModel(modelPath, () -> Word2VecModel.load(modelPath));
 		
 	}
 
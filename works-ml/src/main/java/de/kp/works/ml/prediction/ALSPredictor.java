@@ -18,6 +18,12 @@ package de.kp.works.ml.prediction;
  * 
  */
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
 import org.apache.spark.ml.recommendation.ALSModel;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -25,6 +31,8 @@ import org.apache.spark.sql.types.DataTypes;
 
 import static org.apache.spark.sql.functions.col;
 
+import scala.Option;
+
 import com.google.common.base.Strings;
 
 import io.cdap.cdap.api.annotation.Description;
@@ -37,8 +45,11 @@ import io.cdap.cdap.etl.api.StageConfigurer;
 import io.cdap.cdap.etl.api.batch.SparkCompute;
 import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 import de.kp.works.core.Params;
+import de.kp.works.core.SchemaUtil;
 import de.kp.works.core.recommender.RecommenderCompute;
 import de.kp.works.ml.recommendation.ALSConfig;
+import de.kp.works.ml.recommendation.ALSIndex;
+import de.kp.works.ml.recommendation.ALSRecommender;
 import de.kp.works.ml.recommendation.ALSRecorder;
 
 @Plugin(type = SparkCompute.PLUGIN_TYPE)
@@ -50,6 +61,18 @@ public class ALSPredictor extends RecommenderCompute {
 
 	private ALSPredictorConfig config;
 	private ALSModel model;
+	/*
+	 * The (optional) approximate MIPS index of the model, and
+	 * the recall of the recommendations that are retrieved
+	 * from this index
+	 */
+	private ALSIndex index;
+	private Double recall;
+	/*
+	 * The recommender of the last invocation; its persisted
+	 * blocks are released with the next invocation
+	 */
+	private transient ALSRecommender recommender;
 
 	public ALSPredictor(ALSPredictorConfig config) {
 		this.config = config;
@@ -75,6 +98,19 @@ public class ALSPredictor extends RecommenderCompute {
 		 * subsequent annotation
 		 */
 		profile = recorder.getProfile();
+		/*
+		 * STEP #3: Retrieve the approximate MIPS index of the model,
+		 * if recommendations are restricted to the probed index lists
+		 */
+		if (config.isRecommendation() && config.numProbes != null) {
+
+			index = recorder.readIndex();
+			if (index == null)
+				throw new IllegalArgumentException(
+						String.format("[%s] The recommendation model with name '%s' has been built without index.",
+								this.getClass().getName(), config.modelName));
+
+		}
 
 	}
 
@@ -93,9 +129,15 @@ public class ALSPredictor extends RecommenderCompute {
 			validateSchema(inputSchema);
 			/*
 			 * In cases where the input schema is explicitly provided, we determine the
-			 * output schema by explicitly adding the prediction column
+			 * output schema by explicitly adding the prediction column; recommendations
+			 * replace the input fields by the ranked user & item pairs
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+			if (config.isRecommendation())
+				outputSchema = getRecommendationSchema(inputSchema);
+
+			else
+				outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+
 			stageConfigurer.setOutputSchema(outputSchema);
 
 		}
@@ -118,6 +160,29 @@ public class ALSPredictor extends RecommenderCompute {
 			throw new IllegalArgumentException("The data type of the user field must be NUMERIC.");
 		}
 
+		/** EXCLUSION COLUMN **/
+
+		if (config.isRecommendation()) {
+
+			if (Strings.isNullOrEmpty(config.exclusionCol) == false) {
+
+				if (inputSchema.getField(config.exclusionCol) == null) {
+					throw new IllegalArgumentException(
+							String.format("[%s] The input schema must contain the field that defines the excluded items.",
+									this.getClass().getName()));
+				}
+
+				SchemaUtil.isArrayOfNumeric(inputSchema, config.exclusionCol);
+
+			}
+			/*
+			 * Recommendations are computed for the users of the input
+			 * dataset; an item field is not required
+			 */
+			return;
+
+		}
+
 		/** ITEM COLUMN **/
 
 		Schema.Field itemCol = inputSchema.getField(config.itemCol);
@@ -138,11 +203,18 @@ public class ALSPredictor extends RecommenderCompute {
 	 * This method computes predictions either by applying a trained Alternating
 	 * Least Squares recommendation model; as a result, the source dataset is
 	 * enriched by an extra column (predictionCol) that specifies the target
-	 * variable in form of a Double value
+	 * variable in form of a Double value.
+	 * 
+	 * In recommendation mode, the top-k items of each user of the source dataset
+	 * are computed from the user & item factors of the model, with one row per
+	 * user, item, predicted rating and rank
 	 */
 	@Override
 	public Dataset<Row> compute(SparkExecutionPluginContext context, Dataset<Row> source) throws Exception {
 
+		if (config.isRecommendation())
+			return recommend(source);
+
 		model.setUserCol(config.userCol);
 		model.setItemCol(config.itemCol);
 
@@ -158,6 +230,68 @@ public class ALSPredictor extends RecommenderCompute {
 
 	}
 
+	private Dataset<Row> recommend(Dataset<Row> source) {
+
+		Option<String> exclusionCol = Strings.isNullOrEmpty(config.exclusionCol) ? Option.empty()
+				: Option.apply(config.exclusionCol);
+
+		/*
+		 * The recommendations of a previous invocation have been
+		 * consumed, and their persisted blocks are released
+		 */
+		if (recommender != null)
+			recommender.release();
+
+		recommender = new ALSRecommender(model, config.topK);
+		if (index != null)
+			recommender.setIndex(index, config.numProbes);
+
+		Dataset<Row> recommendations = recommender.recommend(source, config.userCol, exclusionCol, config.itemCol,
+				config.predictionCol, config.getRankCol());
+		/*
+		 * The recall of approximate recommendations is measured
+		 * against exact scoring and annotated with the model
+		 */
+		recall = Double.isNaN(recommender.getRecall()) ? null : recommender.getRecall();
+		/*
+		 * The recommendations are new rows per user and item; they
+		 * are annotated with the profile of the current model only
+		 */
+		return annotate(recommendations, RECOMMENDER_TYPE);
+
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected Map<String, Object> annotateProfile(String annonType) {
+
+		Map<String, Object> annotation = super.annotateProfile(annonType);
+		if (recall != null)
+			((Map<String, Object>) annotation.get("model")).put("recall", recall);
+
+		return annotation;
+
+	}
+
+	/**
+	 * A helper method to compute the output schema of the recommendation mode
+	 * in that use cases where an input schema is explicitly given
+	 */
+	private Schema getRecommendationSchema(Schema inputSchema) {
+
+		List<Schema.Field> fields = new ArrayList<>();
+
+		fields.add(Schema.Field.of(config.userCol, Schema.of(Schema.Type.INT)));
+		fields.add(Schema.Field.of(config.itemCol, Schema.of(Schema.Type.INT)));
+
+		fields.add(Schema.Field.of(config.predictionCol, Schema.of(Schema.Type.DOUBLE)));
+		fields.add(Schema.Field.of(config.getRankCol(), Schema.of(Schema.Type.INT)));
+
+		fields.add(Schema.Field.of(ANNOTATION_COL, Schema.of(Schema.Type.STRING)));
+		return Schema.recordOf(inputSchema.getRecordName() + ".recommended", fields);
+
+	}
+
 	public static class ALSPredictorConfig extends ALSConfig {
 
 		private static final long serialVersionUID = -1806437026686955957L;
@@ -170,8 +304,48 @@ public class ALSPredictor extends RecommenderCompute {
 		@Macro
 		public String modelOption;
 
+		@Description("The prediction mode of this stage. Supported values are 'rating' and 'recommendation'. "
+				+ "'rating' predicts the rating of each user & item pair of the input data. 'recommendation' "
+				+ "determines the top-k items of each user of the input data, and outputs one record per user, "
+				+ "item, predicted rating and rank; the rank is assigned to the prediction field name, suffixed "
+				+ "by '_rank'. Default is 'rating'.")
+		@Macro
+		public String predictionMode;
+
+		@Description("The number of items recommended per user in recommendation mode. Default is 10.")
+		@Macro
+		@Nullable
+		public Integer topK;
+
+		@Description("The name of the input field that contains the items to exclude from the recommendations "
+				+ "of a user, e.g. the items the user already rated. This field is optional and must contain an "
+				+ "array of item identifiers.")
+		@Macro
+		@Nullable
+		public String exclusionCol;
+
+		@Description("The number of lists of the approximate index of the model that are searched per user in "
+				+ "recommendation mode. More lists increase the recall and the latency of the recommendations. "
+				+ "If empty, all items are scored exactly. The model must have been built with index.")
+		@Macro
+		@Nullable
+		public Integer numProbes;
+
 		public ALSPredictorConfig() {
+
 			modelOption = BEST_MODEL;
+
+			predictionMode = "rating";
+			topK = 10;
+
+		}
+
+		public Boolean isRecommendation() {
+			return predictionMode.equals("recommendation");
+		}
+
+		public String getRankCol() {
+			return predictionCol + "_rank";
 		}
 
 		public void validate() {
@@ -182,6 +356,21 @@ public class ALSPredictor extends RecommenderCompute {
 						"[%s] The name of the field that contains the predicted rating must not be empty.",
 						this.getClass().getName()));
 
+			if (predictionMode.equals("rating") == false && predictionMode.equals("recommendation") == false)
+				throw new IllegalArgumentException(String.format(
+						"[%s] The prediction mode must be either 'rating' or 'recommendation'.",
+						this.getClass().getName()));
+
+			if (isRecommendation() && (topK == null || topK < 1))
+				throw new IllegalArgumentException(String.format(
+						"[%s] The number of recommended items must be at least 1.",
+						this.getClass().getName()));
+
+			if (numProbes != null && numProbes < 1)
+				throw new IllegalArgumentException(String.format(
+						"[%s] The number of index lists to search must be at least 1.",
+						this.getClass().getName()));
+
 		}
 
 	}
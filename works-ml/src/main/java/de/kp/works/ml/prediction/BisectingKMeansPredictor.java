@@ -19,6 +19,7 @@ package de.kp.works.ml.prediction;
  */
 
 import org.apache.spark.ml.clustering.BisectingKMeansModel;
+import org.apache.spark.mllib.clustering.CenterScorer;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 
@@ -44,6 +45,7 @@ public class BisectingKMeansPredictor extends PredictorCompute {
 
 	private PredictorConfig config;
 	private BisectingKMeansModel model;
+	private CenterScorer scorer;
 
 	public BisectingKMeansPredictor(PredictorConfig config) {
 		this.config = config;
@@ -69,6 +71,12 @@ public class BisectingKMeansPredictor extends PredictorCompute {
 		 */
 		profile = recorder.getProfile();
 
+		/* 
+		 * STEP #3: Compile the cluster centers of the
+		 * trained model for subsequent scoring
+		 */
+		scorer = recorder.readScorer();
+
 	}
 
 	@Override
@@ -88,7 +96,7 @@ public class BisectingKMeansPredictor extends PredictorCompute {
 			 * In cases where the input schema is explicitly provided, we determine the
 			 * output schema by explicitly adding the prediction column
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+			outputSchema = getClusterSchema(inputSchema, config.predictionCol, getDistanceCol());
 			stageConfigurer.setOutputSchema(outputSchema);
 
 		}
@@ -99,7 +107,7 @@ public class BisectingKMeansPredictor extends PredictorCompute {
 	 * This method computes predictions either by applying a trained Bisecting 
 	 * KMeans clustering model; as a result, the source dataset is enriched by
 	 * an extra column (predictionCol) that specifies the target variable in 
-	 * form of a Double value
+	 * form of a Double value, and the distance to the nearest cluster center
 	 */
 	@Override
 	public Dataset<Row> compute(SparkExecutionPluginContext context, Dataset<Row> source) throws Exception {
@@ -119,10 +127,11 @@ public class BisectingKMeansPredictor extends PredictorCompute {
 		 */
 		Dataset<Row> vectorset = MLUtils.vectorize(source, featuresCol, vectorCol, true);
 
-		model.setFeaturesCol(vectorCol);
-		model.setPredictionCol(predictionCol);
-
-		Dataset<Row> predictions = model.transform(vectorset);
+		/*
+		 * The nearest cluster center and the distance to this
+		 * center are computed from the compiled centers
+		 */
+		Dataset<Row> predictions = scorer.transform(vectorset, vectorCol, predictionCol, getDistanceCol());
 
 		/*
 		 * Remove intermediate vector column from predictions
@@ -133,6 +142,14 @@ public class BisectingKMeansPredictor extends PredictorCompute {
 
 	}
 
+	/*
+	 * The distance to the nearest cluster center is assigned 
+	 * to the prediction field name, suffixed by '_distance'
+	 */
+	private String getDistanceCol() {
+		return config.predictionCol + "_distance";
+	}
+
 	@Override
 	public void validateSchema(Schema inputSchema) {
 		config.validateSchema(inputSchema);
@@ -18,8 +18,12 @@ package de.kp.works.ml.prediction;
  * 
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.spark.ml.classification.DecisionTreeClassificationModel;
 import org.apache.spark.ml.regression.DecisionTreeRegressionModel;
+import org.apache.spark.ml.tree.TreeScorer;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 
@@ -56,6 +60,16 @@ public class DTPredictor extends PredictorCompute {
 	 */
 	private DecisionTreeClassificationModel classifier;
 	private DecisionTreeRegressionModel regressor;
+	/*
+	 * The trained model compiled into flat primitive arrays;
+	 * compilation is performed once when the stage is initialized
+	 */
+	private TreeScorer scorer;
+	/*
+	 * The compiled challenger models that are scored
+	 * in addition to the selected model
+	 */
+	private Map<String, TreeScorer> challengerScorers = new LinkedHashMap<>();
 	
 	public DTPredictor(PredictorConfig config) {
 		this.config = config;
@@ -82,6 +96,30 @@ public class DTPredictor extends PredictorCompute {
 			 * classification model for subsequent annotation
 			 */
 			profile = recorder.getProfile();
+
+			/*
+			 * STEP #3: Compile the trained classification
+			 * model for subsequent scoring
+			 */
+			scorer = TreeScorer.compile(classifier);
+
+			/*
+			 * STEP #4: Retrieve and compile the challenger models;
+			 * they refer to the same name and stage
+			 */
+			for (String selector : config.getChallengers()) {
+
+				DTCRecorder challengerRecorder = new DTCRecorder();
+
+				DecisionTreeClassificationModel challenger = challengerRecorder.read(context, config.modelName, config.modelStage, selector);
+				if (challenger == null)
+					throw new IllegalArgumentException(String.format("[%s] A challenger model '%s' with name '%s' does not exist.",
+							this.getClass().getName(), selector, config.modelName));
+
+				challengerScorers.put(selector, TreeScorer.compile(challenger));
+				challengers.put(selector, challengerRecorder.getProfile());
+
+			}
 			
 		} else if (config.modelType.equals("regressor")) {
 
@@ -101,6 +139,30 @@ public class DTPredictor extends PredictorCompute {
 			 */
 			profile = recorder.getProfile();
 
+			/*
+			 * STEP #3: Compile the trained regression
+			 * model for subsequent scoring
+			 */
+			scorer = TreeScorer.compile(regressor);
+
+			/*
+			 * STEP #4: Retrieve and compile the challenger models;
+			 * they refer to the same name and stage
+			 */
+			for (String selector : config.getChallengers()) {
+
+				DTRRecorder challengerRecorder = new DTRRecorder();
+
+				DecisionTreeRegressionModel challenger = challengerRecorder.read(context, config.modelName, config.modelStage, selector);
+				if (challenger == null)
+					throw new IllegalArgumentException(String.format("[%s] A challenger model '%s' with name '%s' does not exist.",
+							this.getClass().getName(), selector, config.modelName));
+
+				challengerScorers.put(selector, TreeScorer.compile(challenger));
+				challengers.put(selector, challengerRecorder.getProfile());
+
+			}
+
 		} else
 			throw new IllegalArgumentException(
 					String.format("[%s] The model type '%s' is not supported.", this.getClass().getName(), config.modelType));
@@ -124,7 +186,8 @@ public class DTPredictor extends PredictorCompute {
 			 * In cases where the input schema is explicitly provided, we determine the
 			 * output schema by explicitly adding the prediction column
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+			outputSchema = getOutputSchema(inputSchema, config.predictionCol, config.getChallengers(),
+					"classifier".equals(config.modelType) ? CLASSIFIER_TYPE : REGRESSOR_TYPE);
 			stageConfigurer.setOutputSchema(outputSchema);
 
 		}
@@ -154,30 +217,23 @@ public class DTPredictor extends PredictorCompute {
 		 * as Array[Numeric]
 		 */
 		Dataset<Row> vectorset = MLUtils.vectorize(source, featuresCol, vectorCol, true);
-		Dataset<Row> predictions = null;
-
-		if (config.modelType.equals("classifier")) {
-			
-			classifier.setFeaturesCol(vectorCol);
-			classifier.setPredictionCol(predictionCol);
-
-			predictions = classifier.transform(vectorset);
-
-		} else {
-
-			regressor.setFeaturesCol(vectorCol);
-			regressor.setPredictionCol(predictionCol);
-
-			predictions = regressor.transform(vectorset);
-
+		/*
+		 * The compiled model scores the vectorized features on Spark's internal
+		 * vector format and yields the same predictions as the trained model
+		 */
+		Dataset<Row> predictions = scorer.transform(vectorset, vectorCol, predictionCol);
+		for (Map.Entry<String, TreeScorer> challenger : challengerScorers.entrySet()) {
+			predictions = challenger.getValue().transform(predictions, vectorCol, getChallengerCol(predictionCol, challenger.getKey()));
 		}
+		
+		String annotationType = config.modelType.equals("classifier") ? CLASSIFIER_TYPE : REGRESSOR_TYPE;
+		predictions = agree(predictions, predictionCol, annotationType);
 		/*
 		 * Remove intermediate vector column from predictions
 		 * and annotate each prediction with the model profile
 		 */
 		Dataset<Row> output = predictions.drop(vectorCol);
-		
-		String annotationType = config.modelType.equals("classifier") ? CLASSIFIER_TYPE : REGRESSOR_TYPE;
+
 		return annotate(output, annotationType);
 
 	}
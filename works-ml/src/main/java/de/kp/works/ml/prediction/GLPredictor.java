@@ -18,6 +18,9 @@ package de.kp.works.ml.prediction;
  * 
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.spark.ml.regression.GeneralizedLinearRegressionModel;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -45,6 +48,11 @@ public class GLPredictor extends PredictorCompute {
 	private PredictorConfig config;
 
 	private GeneralizedLinearRegressionModel regressor;
+	/*
+	 * The challenger models that are scored in
+	 * addition to the selected model
+	 */
+	private Map<String, GeneralizedLinearRegressionModel> challengerModels = new LinkedHashMap<>();
 
 	public GLPredictor(PredictorConfig config) {
 		this.config = config;
@@ -70,6 +78,24 @@ public class GLPredictor extends PredictorCompute {
 		 */
 		profile = recorder.getProfile();
 
+		/*
+		 * STEP #3: Retrieve the challenger models and their
+		 * profiles; they refer to the same name and stage
+		 */
+		for (String selector : config.getChallengers()) {
+
+			GLRecorder challengerRecorder = new GLRecorder();
+
+			GeneralizedLinearRegressionModel challenger = challengerRecorder.read(context, config.modelName, config.modelStage, selector);
+			if (challenger == null)
+				throw new IllegalArgumentException(String.format("[%s] A challenger model '%s' with name '%s' does not exist.",
+						this.getClass().getName(), selector, config.modelName));
+
+			challengerModels.put(selector, challenger);
+			challengers.put(selector, challengerRecorder.getProfile());
+
+		}
+
 	}
 
 	@Override
@@ -89,7 +115,7 @@ public class GLPredictor extends PredictorCompute {
 			 * In cases where the input schema is explicitly provided, we determine the
 			 * output schema by explicitly adding the prediction column
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+			outputSchema = getOutputSchema(inputSchema, config.predictionCol, config.getChallengers(), REGRESSOR_TYPE);
 			stageConfigurer.setOutputSchema(outputSchema);
 
 		}
@@ -119,10 +145,16 @@ public class GLPredictor extends PredictorCompute {
 		 */
 		Dataset<Row> vectorset = MLUtils.vectorize(source, featuresCol, vectorCol, true);
 
-		regressor.setFeaturesCol(vectorCol);
-		regressor.setPredictionCol(predictionCol);
+		/*
+		 * The selected model and all challenger models are
+		 * applied to the same vectorized dataset
+		 */
+		Dataset<Row> predictions = predict(regressor, vectorset, vectorCol, predictionCol);
+		for (Map.Entry<String, GeneralizedLinearRegressionModel> challenger : challengerModels.entrySet()) {
+			predictions = predict(challenger.getValue(), predictions, vectorCol, getChallengerCol(predictionCol, challenger.getKey()));
+		}
 
-		Dataset<Row> predictions = regressor.transform(vectorset);
+		predictions = agree(predictions, predictionCol, REGRESSOR_TYPE);
 		/*
 		 * Remove intermediate vector column from predictions
 		 * and annotate each prediction with the model profile
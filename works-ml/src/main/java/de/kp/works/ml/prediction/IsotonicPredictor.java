@@ -18,6 +18,9 @@ package de.kp.works.ml.prediction;
  * 
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.spark.ml.regression.IsotonicRegressionModel;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -44,6 +47,11 @@ public class IsotonicPredictor extends PredictorCompute {
 
 	private PredictorConfig config;
 	private IsotonicRegressionModel regressor;
+	/*
+	 * The challenger models that are scored in
+	 * addition to the selected model
+	 */
+	private Map<String, IsotonicRegressionModel> challengerModels = new LinkedHashMap<>();
 
 	public IsotonicPredictor(PredictorConfig config) {
 		this.config = config;
@@ -69,6 +77,24 @@ public class IsotonicPredictor extends PredictorCompute {
 		 */
 		profile = recorder.getProfile();
 
+		/*
+		 * STEP #3: Retrieve the challenger models and their
+		 * profiles; they refer to the same name and stage
+		 */
+		for (String selector : config.getChallengers()) {
+
+			IsotonicRecorder challengerRecorder = new IsotonicRecorder();
+
+			IsotonicRegressionModel challenger = challengerRecorder.read(context, config.modelName, config.modelStage, selector);
+			if (challenger == null)
+				throw new IllegalArgumentException(String.format("[%s] A challenger model '%s' with name '%s' does not exist.",
+						this.getClass().getName(), selector, config.modelName));
+
+			challengerModels.put(selector, challenger);
+			challengers.put(selector, challengerRecorder.getProfile());
+
+		}
+
 	}
 
 	@Override
@@ -88,7 +114,7 @@ public class IsotonicPredictor extends PredictorCompute {
 			 * In cases where the input schema is explicitly provided, we determine the
 			 * output schema by explicitly adding the prediction column
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+			outputSchema = getOutputSchema(inputSchema, config.predictionCol, config.getChallengers(), REGRESSOR_TYPE);
 			stageConfigurer.setOutputSchema(outputSchema);
 
 		}
@@ -122,6 +148,22 @@ public class IsotonicPredictor extends PredictorCompute {
 		regressor.setPredictionCol(predictionCol);
 
 		Dataset<Row> predictions = regressor.transform(vectorset);
+		/*
+		 * The challenger models are applied to
+		 * the same vectorized dataset
+		 */
+		for (Map.Entry<String, IsotonicRegressionModel> challenger : challengerModels.entrySet()) {
+
+			IsotonicRegressionModel model = challenger.getValue();
+
+			model.setFeaturesCol(vectorCol);
+			model.setPredictionCol(getChallengerCol(predictionCol, challenger.getKey()));
+
+			predictions = model.transform(predictions);
+
+		}
+
+		predictions = agree(predictions, predictionCol, REGRESSOR_TYPE);
 		/*
 		 * Remove intermediate vector column from predictions
 		 * and annotate each prediction with the model profile
@@ -18,6 +18,9 @@ package de.kp.works.ml.prediction;
  * 
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.spark.ml.classification.LogisticRegressionModel;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -44,6 +47,11 @@ public class LRPredictor extends PredictorCompute {
 
 	private PredictorConfig config;
 	private LogisticRegressionModel classifier;
+	/*
+	 * The challenger models that are scored in
+	 * addition to the selected model
+	 */
+	private Map<String, LogisticRegressionModel> challengerModels = new LinkedHashMap<>();
 
 	public LRPredictor(PredictorConfig config) {
 		this.config = config;
@@ -69,6 +77,24 @@ public class LRPredictor extends PredictorCompute {
 		 */
 		profile = recorder.getProfile();
 
+		/*
+		 * STEP #3: Retrieve the challenger models and their
+		 * profiles; they refer to the same name and stage
+		 */
+		for (String selector : config.getChallengers()) {
+
+			LRRecorder challengerRecorder = new LRRecorder();
+
+			LogisticRegressionModel challenger = challengerRecorder.read(context, config.modelName, config.modelStage, selector);
+			if (challenger == null)
+				throw new IllegalArgumentException(String.format("[%s] A challenger model '%s' with name '%s' does not exist.",
+						this.getClass().getName(), selector, config.modelName));
+
+			challengerModels.put(selector, challenger);
+			challengers.put(selector, challengerRecorder.getProfile());
+
+		}
+
 	}
 
 	@Override
@@ -88,7 +114,7 @@ public class LRPredictor extends PredictorCompute {
 			 * In cases where the input schema is explicitly provided, we determine the
 			 * output schema by explicitly adding the prediction column
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+			outputSchema = getOutputSchema(inputSchema, config.predictionCol, config.getChallengers(), CLASSIFIER_TYPE);
 			stageConfigurer.setOutputSchema(outputSchema);
 
 		}
@@ -119,10 +145,16 @@ public class LRPredictor extends PredictorCompute {
 		 */
 		Dataset<Row> vectorset = MLUtils.vectorize(source, featuresCol, vectorCol, true);
 
-		classifier.setFeaturesCol(vectorCol);
-		classifier.setPredictionCol(predictionCol);
+		/*
+		 * The selected model and all challenger models are
+		 * applied to the same vectorized dataset
+		 */
+		Dataset<Row> predictions = predict(classifier, vectorset, vectorCol, predictionCol);
+		for (Map.Entry<String, LogisticRegressionModel> challenger : challengerModels.entrySet()) {
+			predictions = predict(challenger.getValue(), predictions, vectorCol, getChallengerCol(predictionCol, challenger.getKey()));
+		}
 
-		Dataset<Row> predictions = classifier.transform(vectorset);
+		predictions = agree(predictions, predictionCol, CLASSIFIER_TYPE);
 		/*
 		 * Remove intermediate vector column from predictions
 		 * and annotate each prediction with the model profile
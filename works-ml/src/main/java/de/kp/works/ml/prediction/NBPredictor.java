@@ -18,6 +18,9 @@ package de.kp.works.ml.prediction;
  * 
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.spark.ml.classification.NaiveBayesModel;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -44,6 +47,11 @@ public class NBPredictor extends PredictorCompute {
 
 	private PredictorConfig config;
 	private NaiveBayesModel classifier;
+	/*
+	 * The challenger models that are scored in
+	 * addition to the selected model
+	 */
+	private Map<String, NaiveBayesModel> challengerModels = new LinkedHashMap<>();
 
 	public NBPredictor(PredictorConfig config) {
 		this.config = config;
@@ -69,6 +77,24 @@ public class NBPredictor extends PredictorCompute {
 		 */
 		profile = recorder.getProfile();
 
+		/*
+		 * STEP #3: Retrieve the challenger models and their
+		 * profiles; they refer to the same name and stage
+		 */
+		for (String selector : config.getChallengers()) {
+
+			NBRecorder challengerRecorder = new NBRecorder();
+
+			NaiveBayesModel challenger = challengerRecorder.read(context, config.modelName, config.modelStage, selector);
+			if (challenger == null)
+				throw new IllegalArgumentException(String.format("[%s] A challenger model '%s' with name '%s' does not exist.",
+						this.getClass().getName(), selector, config.modelName));
+
+			challengerModels.put(selector, challenger);
+			challengers.put(selector, challengerRecorder.getProfile());
+
+		}
+
 
 	}
 
@@ -89,7 +115,7 @@ public class NBPredictor extends PredictorCompute {
 			 * In cases where the input schema is explicitly provided, we determine the
 			 * output schema by explicitly adding the prediction column
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+			outputSchema = getOutputSchema(inputSchema, config.predictionCol, config.getChallengers(), CLASSIFIER_TYPE);
 			stageConfigurer.setOutputSchema(outputSchema);
 
 		}
@@ -120,10 +146,16 @@ public class NBPredictor extends PredictorCompute {
 		 */
 		Dataset<Row> vectorset = MLUtils.vectorize(source, featuresCol, vectorCol, true);
 
-		classifier.setFeaturesCol(vectorCol);
-		classifier.setPredictionCol(predictionCol);
+		/*
+		 * The selected model and all challenger models are
+		 * applied to the same vectorized dataset
+		 */
+		Dataset<Row> predictions = predict(classifier, vectorset, vectorCol, predictionCol);
+		for (Map.Entry<String, NaiveBayesModel> challenger : challengerModels.entrySet()) {
+			predictions = predict(challenger.getValue(), predictions, vectorCol, getChallengerCol(predictionCol, challenger.getKey()));
+		}
 
-		Dataset<Row> predictions = classifier.transform(vectorset);
+		predictions = agree(predictions, predictionCol, CLASSIFIER_TYPE);
 		/*
 		 * Remove intermediate vector column from predictions
 		 * and annotate each prediction with the model profile
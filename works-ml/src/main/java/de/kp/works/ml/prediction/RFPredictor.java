@@ -18,8 +18,12 @@ package de.kp.works.ml.prediction;
  * 
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.spark.ml.classification.RandomForestClassificationModel;
 import org.apache.spark.ml.regression.RandomForestRegressionModel;
+import org.apache.spark.ml.tree.TreeScorer;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 
@@ -49,6 +53,16 @@ public class RFPredictor extends PredictorCompute {
 
 	private RandomForestClassificationModel classifier;
 	private RandomForestRegressionModel regressor;
+	/*
+	 * The trained model compiled into flat primitive arrays;
+	 * compilation is performed once when the stage is initialized
+	 */
+	private TreeScorer scorer;
+	/*
+	 * The compiled challenger models that are scored
+	 * in addition to the selected model
+	 */
+	private Map<String, TreeScorer> challengerScorers = new LinkedHashMap<>();
 
 	public RFPredictor(PredictorConfig config) {
 		this.config = config;
@@ -77,6 +91,30 @@ public class RFPredictor extends PredictorCompute {
 			 */
 			profile = recorder.getProfile();
 
+			/*
+			 * STEP #3: Compile the trained classification
+			 * model for subsequent scoring
+			 */
+			scorer = TreeScorer.compile(classifier);
+
+			/*
+			 * STEP #4: Retrieve and compile the challenger models;
+			 * they refer to the same name and stage
+			 */
+			for (String selector : config.getChallengers()) {
+
+				RFCRecorder challengerRecorder = new RFCRecorder();
+
+				RandomForestClassificationModel challenger = challengerRecorder.read(context, config.modelName, config.modelStage, selector);
+				if (challenger == null)
+					throw new IllegalArgumentException(String.format("[%s] A challenger model '%s' with name '%s' does not exist.",
+							this.getClass().getName(), selector, config.modelName));
+
+				challengerScorers.put(selector, TreeScorer.compile(challenger));
+				challengers.put(selector, challengerRecorder.getProfile());
+
+			}
+
 		} else if (config.modelType.equals("regressor")) {
 
 			RFRRecorder recorder = new RFRRecorder();
@@ -95,6 +133,30 @@ public class RFPredictor extends PredictorCompute {
 			 */
 			profile = recorder.getProfile();
 
+			/*
+			 * STEP #3: Compile the trained regression
+			 * model for subsequent scoring
+			 */
+			scorer = TreeScorer.compile(regressor);
+
+			/*
+			 * STEP #4: Retrieve and compile the challenger models;
+			 * they refer to the same name and stage
+			 */
+			for (String selector : config.getChallengers()) {
+
+				RFRRecorder challengerRecorder = new RFRRecorder();
+
+				RandomForestRegressionModel challenger = challengerRecorder.read(context, config.modelName, config.modelStage, selector);
+				if (challenger == null)
+					throw new IllegalArgumentException(String.format("[%s] A challenger model '%s' with name '%s' does not exist.",
+							this.getClass().getName(), selector, config.modelName));
+
+				challengerScorers.put(selector, TreeScorer.compile(challenger));
+				challengers.put(selector, challengerRecorder.getProfile());
+
+			}
+
 
 		} else
 			throw new IllegalArgumentException(
@@ -119,7 +181,8 @@ public class RFPredictor extends PredictorCompute {
 			 * In cases where the input schema is explicitly provided, we determine the
 			 * output schema by explicitly adding the prediction column
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+			outputSchema = getOutputSchema(inputSchema, config.predictionCol, config.getChallengers(),
+					"classifier".equals(config.modelType) ? CLASSIFIER_TYPE : REGRESSOR_TYPE);
 			stageConfigurer.setOutputSchema(outputSchema);
 
 		}
@@ -149,30 +212,23 @@ public class RFPredictor extends PredictorCompute {
 		 * as Array[Numeric]
 		 */
 		Dataset<Row> vectorset = MLUtils.vectorize(source, featuresCol, vectorCol, true);
-		Dataset<Row> predictions = null;
-
-		if (config.modelType.equals("classifier")) {
-
-			classifier.setFeaturesCol(vectorCol);
-			classifier.setPredictionCol(predictionCol);
-
-			predictions = classifier.transform(vectorset);
-
-		} else {
-
-			regressor.setFeaturesCol(vectorCol);
-			regressor.setPredictionCol(predictionCol);
-
-			predictions = regressor.transform(vectorset);
-
+		/*
+		 * The compiled model scores the vectorized features on Spark's internal
+		 * vector format and yields the same predictions as the trained model
+		 */
+		Dataset<Row> predictions = scorer.transform(vectorset, vectorCol, predictionCol);
+		for (Map.Entry<String, TreeScorer> challenger : challengerScorers.entrySet()) {
+			predictions = challenger.getValue().transform(predictions, vectorCol, getChallengerCol(predictionCol, challenger.getKey()));
 		}
+		
+		String annotationType = config.modelType.equals("classifier") ? CLASSIFIER_TYPE : REGRESSOR_TYPE;
+		predictions = agree(predictions, predictionCol, annotationType);
 		/*
 		 * Remove intermediate vector column from predictions
 		 * and annotate each prediction with the model profile
 		 */
 		Dataset<Row> output = predictions.drop(vectorCol);
-		
-		String annotationType = config.modelType.equals("classifier") ? CLASSIFIER_TYPE : REGRESSOR_TYPE;
+
 		return annotate(output, annotationType);
 
 	}
@@ -18,6 +18,9 @@ package de.kp.works.ml.prediction;
  * 
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.spark.ml.regression.AFTSurvivalRegressionModel;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -44,6 +47,11 @@ public class SurvivalPredictor extends PredictorCompute {
 
 	private PredictorConfig config;
 	private AFTSurvivalRegressionModel regressor;
+	/*
+	 * The challenger models that are scored in
+	 * addition to the selected model
+	 */
+	private Map<String, AFTSurvivalRegressionModel> challengerModels = new LinkedHashMap<>();
 
 	public SurvivalPredictor(PredictorConfig config) {
 		this.config = config;
@@ -70,6 +78,24 @@ public class SurvivalPredictor extends PredictorCompute {
 		 */
 		profile = recorder.getProfile();
 
+		/*
+		 * STEP #3: Retrieve the challenger models and their
+		 * profiles; they refer to the same name and stage
+		 */
+		for (String selector : config.getChallengers()) {
+
+			SurvivalRecorder challengerRecorder = new SurvivalRecorder();
+
+			AFTSurvivalRegressionModel challenger = challengerRecorder.read(context, config.modelName, config.modelStage, selector);
+			if (challenger == null)
+				throw new IllegalArgumentException(String.format("[%s] A challenger model '%s' with name '%s' does not exist.",
+						this.getClass().getName(), selector, config.modelName));
+
+			challengerModels.put(selector, challenger);
+			challengers.put(selector, challengerRecorder.getProfile());
+
+		}
+
 	}
 
 	@Override
@@ -89,7 +115,7 @@ public class SurvivalPredictor extends PredictorCompute {
 			 * In cases where the input schema is explicitly provided, we determine the
 			 * output schema by explicitly adding the prediction column
 			 */
-			outputSchema = getOutputSchema(inputSchema, config.predictionCol);
+			outputSchema = getOutputSchema(inputSchema, config.predictionCol, config.getChallengers(), REGRESSOR_TYPE);
 			stageConfigurer.setOutputSchema(outputSchema);
 
 		}
@@ -124,6 +150,22 @@ public class SurvivalPredictor extends PredictorCompute {
 		regressor.setPredictionCol(predictionCol);
 
 		Dataset<Row> predictions = regressor.transform(vectorset);
+		/*
+		 * The challenger models are applied to
+		 * the same vectorized dataset
+		 */
+		for (Map.Entry<String, AFTSurvivalRegressionModel> challenger : challengerModels.entrySet()) {
+
+			AFTSurvivalRegressionModel model = challenger.getValue();
+
+			model.setFeaturesCol(vectorCol);
+			model.setPredictionCol(getChallengerCol(predictionCol, challenger.getKey()));
+
+			predictions = model.transform(predictions);
+
+		}
+
+		predictions = agree(predictions, predictionCol, REGRESSOR_TYPE);
 		/*
 		 * Remove intermediate vector column from predictions
 		 * and annotate each prediction with the model profile
@@ -0,0 +1,299 @@
+package de.kp.works.ml.recommendation;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.apache.spark.ml.recommendation.ALSFolding;
+import org.apache.spark.ml.recommendation.ALSModel;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+
+import com.google.common.base.Strings;
+import com.google.gson.Gson;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.StageConfigurer;
+import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
+import io.cdap.cdap.etl.api.batch.SparkSink;
+
+import de.kp.works.core.Algorithms;
+import de.kp.works.core.Params;
+import de.kp.works.core.SchemaUtil;
+import de.kp.works.core.ml.RegressorEvaluator;
+import de.kp.works.core.ml.SparkMLManager;
+import de.kp.works.core.recommender.RecommenderSink;
+
+@Plugin(type = SparkSink.PLUGIN_TYPE)
+@Name("ALSFoldIn")
+@Description("An update stage for a trained Apache Spark ML Collaborative Filtering (ALS) model. This stage folds "
+		+ "new users and items into the model without retraining the factorization: their factors are solved from "
+		+ "their interactions against the fixed factors of the model, and the result is registered as a new model "
+		+ "version.")
+public class ALSFoldIn extends RecommenderSink {
+	/*
+	 * The fold-in performs a single half-step of the alternating least squares
+	 * algorithm that is restricted to the users and items of the input data: users
+	 * are solved against the item factors of the model, and items are solved
+	 * against the updated user factors. The regularization, feedback type and
+	 * nonnegativity constraints are those the model has been trained with.
+	 *
+	 * As with the training stage, the input data are split into a train and test
+	 * dataset: the factors are solved from the train dataset, and the registered
+	 * metrics are computed from the (held-out) test dataset, so that they compare
+	 * with the metrics of trained models.
+	 */
+	private static final long serialVersionUID = -5262911284473104522L;
+
+	private ALSFoldInConfig config;
+
+	public ALSFoldIn(ALSFoldInConfig config) {
+		this.config = config;
+	}
+
+	@Override
+	public void configurePipeline(PipelineConfigurer pipelineConfigurer) throws IllegalArgumentException {
+		super.configurePipeline(pipelineConfigurer);
+
+		/* Validate configuration */
+		config.validate();
+
+		/* Validate schema */
+		StageConfigurer stageConfigurer = pipelineConfigurer.getStageConfigurer();
+		inputSchema = stageConfigurer.getInputSchema();
+		if (inputSchema != null)
+			validateSchema(inputSchema);
+
+	}
+
+	@Override
+	public void compute(SparkExecutionPluginContext context, Dataset<Row> source) throws Exception {
+
+		String modelName = config.modelName;
+		String modelStage = config.modelStage;
+		/*
+		 * STEP #1: Retrieve the trained recommendation model and the
+		 * parameters it has been trained with
+		 */
+		ALSRecorder recorder = new ALSRecorder();
+
+		ALSModel model = recorder.read(context, modelName, modelStage, config.modelOption);
+		if (model == null)
+			throw new IllegalArgumentException(
+					String.format("[%s] A recommendation model with name '%s' does not exist.",
+							this.getClass().getName(), modelName));
+
+		/*
+		 * The parameters are those of the loaded model, which is
+		 * not necessarily the latest model with this name
+		 */
+		Map<String, Object> params = recorder.getModelParams(SparkMLManager.getRecommendationTable(context),
+				Algorithms.ALS, modelName, modelStage, recorder.getProfile().id);
+		if (params == null)
+			params = new HashMap<>();
+
+		Double regParam = getDouble(params, "regParam", 0.1);
+		Double alpha = getDouble(params, "alpha", 1.0);
+
+		Boolean implicitPrefs = "true".equals(params.get("implicitPrefs"));
+		Boolean nonnegative = "true".equals(params.get("nonnegative"));
+		/*
+		 * STEP #2: Split the input data into a train & test dataset,
+		 * and solve the factors of the users and items of the train
+		 * dataset against the fixed opposite factors
+		 */
+		Dataset<Row>[] splitted = split(source, config.getDataSplits(config.dataSplit),
+				config.getStorageLevel(config.storageLevel));
+
+		Dataset<Row> trainset = splitted[0];
+		Dataset<Row> testset = splitted[1];
+
+		Boolean onlyNew = config.foldInMode.equals("new");
+		ALSFolding folding = new ALSFolding();
+
+		try {
+
+			ALSModel folded = folding.foldIn(model, trainset, config.userCol, config.itemCol, config.ratingCol,
+					regParam, implicitPrefs, alpha, nonnegative, onlyNew);
+			/*
+			 * STEP #3: Evaluate the updated model on the test dataset;
+			 * pairs that cannot be predicted (NaN) are excluded
+			 */
+			String predictionCol = "_prediction";
+			folded.setPredictionCol(predictionCol);
+
+			Dataset<Row> predictions = folded.transform(testset).na().drop(new String[] { predictionCol });
+			String modelMetrics = RegressorEvaluator.evaluate(predictions, config.ratingCol, predictionCol);
+			/*
+			 * STEP #4: Rebuild the approximate MIPS index, if the model
+			 * has been built with index, and register the updated model
+			 * as a new version
+			 */
+			ALSIndex index = null;
+			if (params.get("indexLists") != null)
+				index = ALSIndex.build(folded, getDouble(params, "indexLists", 0.0).intValue());
+
+			params.put("foldInMode", config.foldInMode);
+			params.put("dataSplit", config.dataSplit);
+
+			String paramsJson = new Gson().toJson(params);
+			recorder.track(context, modelName, modelStage, paramsJson, modelMetrics, folded, index);
+
+		} finally {
+			/*
+			 * The folded factors are persisted until the
+			 * updated model has been tracked
+			 */
+			folding.unpersist();
+		}
+
+	}
+
+	/*
+	 * The registered parameters are deserialized by Gson,
+	 * i.e. numeric values are represented as Double
+	 */
+	private Double getDouble(Map<String, Object> params, String name, Double defaultValue) {
+
+		Object value = params.get(name);
+		if (value == null)
+			return defaultValue;
+
+		return ((Number) value).doubleValue();
+
+	}
+
+	@Override
+	public void validateSchema(Schema inputSchema) {
+		config.validateSchema(inputSchema);
+	}
+
+	public static class ALSFoldInConfig extends ALSConfig {
+
+		private static final long serialVersionUID = 3412861087306150946L;
+
+		@Description("The name of the input field that defines the item ratings. The values must be within the integer value range.")
+		@Macro
+		public String ratingCol;
+
+		@Description(Params.MODEL_OPTION)
+		@Macro
+		public String modelOption;
+
+		@Description("The indicator to determine which users and items of the input data are folded in. Supported values are "
+				+ "'new' and 'all'. 'new' solves the users and items without factors only. 'all' also solves the users and "
+				+ "items that already have factors; the input data must then contain their complete interactions. "
+				+ "Default is 'new'.")
+		@Macro
+		public String foldInMode;
+
+		@Description("The split of the dataset into train & test data, e.g. 80:20. The factors are solved from the "
+				+ "train data, and the updated model is evaluated on the test data. Default is 70:30.")
+		@Macro
+		public String dataSplit;
+
+		@Description(Params.STORAGE_LEVEL)
+		@Macro
+		@Nullable
+		public String storageLevel;
+
+		public ALSFoldInConfig() {
+
+			dataSplit = "70:30";
+			modelStage = "experiment";
+			modelOption = BEST_MODEL;
+
+			foldInMode = "new";
+
+		}
+
+		public void validate() {
+			super.validate();
+
+			if (Strings.isNullOrEmpty(ratingCol))
+				throw new IllegalArgumentException(
+						String.format("[%s] The name of the field that contains the item ratings must not be empty.",
+								this.getClass().getName()));
+
+			if (foldInMode.equals("new") == false && foldInMode.equals("all") == false)
+				throw new IllegalArgumentException(
+						String.format("[%s] The fold-in mode must be either 'new' or 'all'.",
+								this.getClass().getName()));
+
+			if (Strings.isNullOrEmpty(dataSplit))
+				throw new IllegalArgumentException(
+						String.format("[%s] The data split must not be empty.",
+								this.getClass().getName()));
+
+		}
+
+		public void validateSchema(Schema inputSchema) {
+
+			/** USER COLUMN **/
+
+			Schema.Field userField = inputSchema.getField(userCol);
+			if (userField == null) {
+				throw new IllegalArgumentException(String.format(
+						"[%s] The input schema must contain the field that defines the user identifier.", this.getClass().getName()));
+			}
+
+			Schema.Type userType = getNonNullIfNullable(userField.getSchema()).getType();
+			if (SchemaUtil.isNumericType(userType) == false) {
+				throw new IllegalArgumentException("The data type of the user field must be NUMERIC.");
+			}
+
+			/** ITEM COLUMN **/
+
+			Schema.Field itemField = inputSchema.getField(itemCol);
+			if (itemField == null) {
+				throw new IllegalArgumentException(String.format(
+						"[%s] The input schema must contain the field that defines the item identifier.", this.getClass().getName()));
+			}
+
+			Schema.Type itemType = getNonNullIfNullable(itemField.getSchema()).getType();
+			if (SchemaUtil.isNumericType(itemType) == false) {
+				throw new IllegalArgumentException("The data type of the item field must be NUMERIC.");
+			}
+
+			/** RATING COLUMN **/
+
+			Schema.Field ratingField = inputSchema.getField(ratingCol);
+			if (ratingField == null) {
+				throw new IllegalArgumentException(String.format(
+						"[%s] The input schema must contain the field that defines the item rating.", this.getClass().getName()));
+			}
+
+			Schema.Type ratingType = getNonNullIfNullable(ratingField.getSchema()).getType();
+			if (SchemaUtil.isNumericType(ratingType) == false) {
+				throw new IllegalArgumentException("The data type of the rating field must be NUMERIC.");
+			}
+
+		}
+
+	}
+
+}
@@ -27,19 +27,26 @@ import org.apache.spark.ml.recommendation.ALSModel;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
-import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.FileSet;
 import io.cdap.cdap.api.dataset.table.Put;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 import de.kp.works.core.Algorithms;
+import de.kp.works.core.ml.ModelCache;
 import de.kp.works.core.ml.RecommenderRecorder;
+import de.kp.works.core.model.BestModel;
 import de.kp.works.core.ml.SparkMLManager;
 
 public class ALSRecorder extends RecommenderRecorder {
 
 	private Type metricsType = new TypeToken<Map<String, Object>>() {
 	}.getType();
+	/*
+	 * The fileset path of the model that has been 
+	 * read last; the (optional) index of the model
+	 * is persisted below this path
+	 */
+	private String modelPath;
 
 	public ALSModel read(SparkExecutionPluginContext context, String modelName, String modelStage, String modelOption) throws Exception {
 
@@ -47,16 +54,41 @@ public class ALSRecorder extends RecommenderRecorder {
 
 		String modelPath = getModelPath(context, algorithmName, modelName, modelStage, modelOption);
 		if (modelPath == null) return null;
+
+		this.modelPath = modelPath;
 		/*
 		 * Leverage Apache Spark mechanism to read the Bisecting KMeans clustering model
 		 * from a model specific file set
 		 */
-		return ALSModel.load(modelPath);
+		return loadModel(modelPath, true, () -> ALSModel.load(modelPath));
+
+	}
+	/**
+	 * This method retrieves the approximate MIPS index of the model
+	 * that has been read last; null is returned, if this model has 
+	 * been built without index
+	 */
+	public ALSIndex readIndex() throws Exception {
+
+		if (modelPath == null) return null;
+		/*
+		 * The index is cached independently of the registry lookup,
+		 * as this lookup refers to the model itself
+		 */
+		String indexPath = modelPath + "/" + ALSIndex.INDEX_DIR();
+		String modelId = (profile == null) ? null : profile.id;
+
+		return ModelCache.getOrLoad(null, indexPath, modelId, true, metrics, () -> ALSIndex.load(modelPath));
 
 	}
 
 	public void track(SparkExecutionPluginContext context, String modelName, String modelStage, String modelParams,
 			String modelMetrics, ALSModel model) throws Exception {
+		track(context, modelName, modelStage, modelParams, modelMetrics, model, null);
+	}
+
+	public void track(SparkExecutionPluginContext context, String modelName, String modelStage, String modelParams,
+			String modelMetrics, ALSModel model, ALSIndex index) throws Exception {
 
 		String algorithmName = Algorithms.ALS;
 
@@ -72,6 +104,12 @@ public class ALSRecorder extends RecommenderRecorder {
 
 		String modelPath = fs.getBaseLocation().append(fsPath).toURI().getPath();
 		model.save(modelPath);
+		/*
+		 * The (optional) approximate MIPS index of the item
+		 * factors is persisted next to the model artifacts
+		 */
+		if (index != null)
+			index.save(modelPath + "/" + ALSIndex.INDEX_DIR());
 
 		/***** METADATA *****/
 
@@ -90,8 +128,7 @@ public class ALSRecorder extends RecommenderRecorder {
 		String fsName = SparkMLManager.RECOMMENDATION_FS;
 		String modelVersion = getLatestModelVersion(table, algorithmName, namespace, modelName, modelStage);
 
-		byte[] key = Bytes.toBytes(ts);
-		Put row = buildRow(key, ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
+		Put row = buildRow(ts, namespace, modelName, modelVersion, fsName, fsPath, modelPack, modelStage, algorithmName,
 				modelParams);
 
 		/*
@@ -105,6 +142,10 @@ public class ALSRecorder extends RecommenderRecorder {
 		Double r2 = (Double) metrics.get("r2");
 
 		table.put(row.add("rsme", rsme).add("mse", mse).add("mae", mae).add("r2", r2));
+		/*
+		 * Update the materialized best model pointer
+		 */
+		BestModel.REGRESSOR.update(table, row.getRow());
 
 	}
 
@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
+
 import org.apache.spark.ml.recommendation.ALSModel;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -40,6 +42,7 @@ import io.cdap.cdap.etl.api.StageConfigurer;
 import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
 import io.cdap.cdap.etl.api.batch.SparkSink;
 
+import de.kp.works.core.Params;
 import de.kp.works.core.SchemaUtil;
 import de.kp.works.core.ml.RegressorEvaluator;
 import de.kp.works.core.recommender.RecommenderSink;
@@ -111,7 +114,7 @@ public class ALSSink extends RecommenderSink {
 		 * Split the dataset into a train & test dataset for later
 		 * evaluation
 		 */
-		Dataset<Row>[] splitted =source.randomSplit(config.getSplits());
+		Dataset<Row>[] splitted = split(source, config.getSplits(), config.getStorageLevel(config.storageLevel));
 
 		Dataset<Row> trainset = splitted[0];
 		Dataset<Row> testset = splitted[1];
@@ -127,6 +130,14 @@ public class ALSSink extends RecommenderSink {
 
 		Dataset<Row> predictions = model.transform(testset);
 	    String modelMetrics = RegressorEvaluator.evaluate(predictions, config.ratingCol, predictionCol);
+		/*
+		 * Build the (optional) approximate MIPS index of the item
+		 * factors; it supports top-k recommendations without
+		 * scoring each user against the full item catalogue
+		 */
+		ALSIndex index = null;
+		if (config.indexLists != null)
+			index = ALSIndex.build(model, config.indexLists);
 		/*
 		 * STEP #3: Store trained recommendation model including
 		 * its associated parameters and metrics
@@ -134,7 +145,7 @@ public class ALSSink extends RecommenderSink {
 		String modelName = config.modelName;
 		String modelStage = config.modelStage;
 		
-		new ALSRecorder().track(context, modelName, modelStage, paramsJson, modelMetrics, model);
+		new ALSRecorder().track(context, modelName, modelStage, paramsJson, modelMetrics, model, index);
 		
 	}
 
@@ -186,6 +197,18 @@ public class ALSSink extends RecommenderSink {
 		@Description("The split of the dataset into train & test data, e.g. 80:20. Default is 70:30.")
 		@Macro
 		public String dataSplit;
+
+		@Description(Params.STORAGE_LEVEL)
+		@Macro
+		@Nullable
+		public String storageLevel;
+
+		@Description("The number of inverted lists of the approximate maximum inner product index of the item factors. "
+				+ "If provided, the index is built and persisted with the model, and supports fast top-k recommendations. "
+				+ "A common choice is the square root of the number of items.")
+		@Macro
+		@Nullable
+		public Integer indexLists;
 		
 		public ALSSinkConfig() {
 
@@ -225,6 +248,9 @@ public class ALSSink extends RecommenderSink {
 			
 			params.put("dataSplit", dataSplit);
 
+			if (indexLists != null)
+				params.put("indexLists", indexLists);
+
 			return params;
 
 		}
@@ -287,6 +313,11 @@ public class ALSSink extends RecommenderSink {
 				throw new IllegalArgumentException(String.format("[%s] The regularization parameter must be nonnegative.",
 						this.getClass().getName()));
 			}
+
+			if (indexLists != null && indexLists < 1) {
+				throw new IllegalArgumentException(String.format("[%s] The number of index lists must be greater than 0.",
+						this.getClass().getName()));
+			}
 			
 		}
 
@@ -42,7 +42,7 @@ public class DTRRecorder extends RegressorRecorder {
 		 * Leverage Apache Spark mechanism to read the DecisionTreeRegression model
 		 * from a model specific file set
 		 */
-		return DecisionTreeRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> DecisionTreeRegressionModel.load(modelPath));
 		
 	}
 
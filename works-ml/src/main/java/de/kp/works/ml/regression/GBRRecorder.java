@@ -42,7 +42,7 @@ public class GBRRecorder extends RegressorRecorder {
 		 * Leverage Apache Spark mechanism to read the GBTRegression model
 		 * from a model specific file set
 		 */
-		return GBTRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> GBTRegressionModel.load(modelPath));
 		
 	}
 
@@ -42,7 +42,7 @@ public class GLRecorder extends RegressorRecorder {
 		 * Leverage Apache Spark mechanism to read the GeneralizedLinearRegression model
 		 * from a model specific file set
 		 */
-		return GeneralizedLinearRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> GeneralizedLinearRegressionModel.load(modelPath));
 		
 	}
 
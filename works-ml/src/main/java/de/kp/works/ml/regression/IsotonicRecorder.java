@@ -42,7 +42,7 @@ public class IsotonicRecorder extends RegressorRecorder {
 		 * Leverage Apache Spark mechanism to read the IsotonicRegression model
 		 * from a model specific file set
 		 */
-		return IsotonicRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> IsotonicRegressionModel.load(modelPath));
 		
 	}
 
@@ -42,7 +42,7 @@ public class LinearRecorder extends RegressorRecorder {
 		 * Leverage Apache Spark mechanism to read the LinearRegression model
 		 * from a model specific file set
 		 */
-		return LinearRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> LinearRegressionModel.load(modelPath));
 		
 	}
 
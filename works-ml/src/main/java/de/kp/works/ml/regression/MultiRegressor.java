@@ -0,0 +1,271 @@
+package de.kp.works.ml.regression;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.annotation.Nullable;
+
+import org.apache.spark.ml.PredictionModel;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Strings;
+import com.google.gson.Gson;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.StageConfigurer;
+import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
+import io.cdap.cdap.etl.api.batch.SparkPluginContext;
+import io.cdap.cdap.etl.api.batch.SparkSink;
+
+import de.kp.works.core.Params;
+import de.kp.works.core.ml.MLUtils;
+import de.kp.works.core.ml.RegressorEvaluator;
+import de.kp.works.core.ml.SparkMLManager;
+import de.kp.works.core.model.BestModel;
+import de.kp.works.core.model.Leaderboard;
+import de.kp.works.core.regressor.RegressorConfig;
+import de.kp.works.core.regressor.RegressorSink;
+import de.kp.works.ml.tuning.ParamSearch;
+
+@Plugin(type = SparkSink.PLUGIN_TYPE)
+@Name("MultiRegressor")
+@Description("A building stage for multiple Apache Spark ML regression models of different algorithms. This stage "
+		+ "trains the selected algorithms concurrently on the same data, registers each model and ranks all models "
+		+ "in a leaderboard. It expects a dataset with at least two fields: One as an array of numeric values, and, "
+		+ "another that describes the label value as numeric value.")
+public class MultiRegressor extends RegressorSink {
+
+	private static final long serialVersionUID = 4418237659021385517L;
+
+	private static final Logger LOG = LoggerFactory.getLogger(MultiRegressor.class);
+
+	private MultiRegressorConfig config;
+	public MultiRegressor(MultiRegressorConfig config) {
+		this.config = config;
+	}
+
+	@Override
+	public void configurePipeline(PipelineConfigurer pipelineConfigurer) throws IllegalArgumentException {
+		super.configurePipeline(pipelineConfigurer);
+
+		/* Validate configuration */
+		config.validate();
+
+		/* Validate schema */
+		StageConfigurer stageConfigurer = pipelineConfigurer.getStageConfigurer();
+		inputSchema = stageConfigurer.getInputSchema();
+		if (inputSchema != null)
+			validateSchema(inputSchema);
+
+	}
+
+	@Override
+	public void prepareRun(SparkPluginContext context) throws Exception {
+		super.prepareRun(context);
+		SparkMLManager.createLeaderboardIfNotExists(context);
+	}
+
+	@Override
+	public void compute(SparkExecutionPluginContext context, Dataset<Row> source) throws Exception {
+
+		String featuresCol = config.featuresCol;
+		String labelCol = config.labelCol;
+		/*
+		 * STEP #1: Vectorize and split the dataset once; the train & test
+		 * datasets are persisted and shared by all algorithms
+		 */
+		String vectorCol = "_vector";
+		Dataset<Row> vectorset = MLUtils.vectorize(source, featuresCol, vectorCol, true);
+
+		Dataset<Row>[] splitted = split(vectorset, config.getSplits(), config.getStorageLevel());
+
+		Dataset<Row> trainset = splitted[0];
+		Dataset<Row> testset = splitted[1];
+		/*
+		 * STEP #2: Train & evaluate the models of all algorithms concurrently;
+		 * each task submits its own Spark jobs from a separate thread, and the
+		 * overall duration approaches the duration of the slowest algorithm
+		 */
+		List<String> algorithms = config.getAlgorithms();
+		String predictionCol = "_prediction";
+
+		List<Callable<Result>> tasks = new ArrayList<>();
+
+		for (String algorithm : algorithms) {
+
+			Map<String, Object> params = RegressorModels.getDefaults(algorithm);
+			params.put("dataSplit", config.dataSplit);
+
+			tasks.add(() -> {
+
+				try {
+
+					PredictionModel<?, ?> model = RegressorModels.train(algorithm, trainset, vectorCol, labelCol, params);
+					model.setPredictionCol(predictionCol);
+
+					Dataset<Row> predictions = model.transform(testset);
+					String modelMetrics = RegressorEvaluator.evaluate(predictions, labelCol, predictionCol);
+
+					return new Result(new Leaderboard.Entry(algorithm, new Gson().toJson(params), modelMetrics), model);
+
+				} catch (Exception e) {
+					/*
+					 * A failing algorithm (e.g. an algorithm that does not
+					 * support the provided labels) must not discard the
+					 * models of the other algorithms
+					 */
+					LOG.warn(String.format("[%s] Algorithm '%s' failed and is excluded from the leaderboard.",
+							MultiRegressor.class.getName(), algorithm), e);
+					return null;
+
+				}
+
+			});
+
+		}
+
+		int parallelism = (config.parallelism == null) ? algorithms.size() : config.parallelism;
+		List<Result> results = ParamSearch.run(tasks, parallelism);
+		/*
+		 * STEP #3: Register all models; tracking is performed sequentially,
+		 * as the model registry is accessed through the (non thread-safe)
+		 * datasets of the execution context
+		 */
+		String modelName = config.modelName;
+		String modelStage = config.modelStage;
+
+		List<Leaderboard.Entry> entries = new ArrayList<>();
+		for (Result result : results) {
+
+			if (result == null)
+				continue;
+
+			Leaderboard.Entry entry = result.entry;
+			entry.setProfile(RegressorModels.track(context, entry.algorithm, modelName, modelStage, entry.modelParams,
+					entry.modelMetrics, result.model));
+
+			entries.add(entry);
+
+		}
+
+		if (entries.isEmpty())
+			throw new IllegalStateException(
+					String.format("[%s] None of the selected algorithms could be trained.", MultiRegressor.class.getName()));
+		/*
+		 * STEP #4: Rank the models of all algorithms and replace the
+		 * leaderboard of this model name and stage
+		 */
+		List<Leaderboard.Entry> ranked = Leaderboard.rank(BestModel.REGRESSOR, entries);
+		Leaderboard.write(SparkMLManager.getLeaderboardTable(context), SparkMLManager.REGRESSION_TABLE,
+				modelName, modelStage, ranked);
+
+	}
+
+	@Override
+	public void validateSchema(Schema inputSchema) {
+		config.validateSchema(inputSchema);
+	}
+
+	private static class Result {
+
+		Leaderboard.Entry entry;
+		PredictionModel<?, ?> model;
+
+		Result(Leaderboard.Entry entry, PredictionModel<?, ?> model) {
+
+			this.entry = entry;
+			this.model = model;
+
+		}
+
+	}
+
+	public static class MultiRegressorConfig extends RegressorConfig {
+
+		private static final long serialVersionUID = -3016588209474412236L;
+
+		@Description("The comma-separated list of regression algorithms that are trained. Supported values are "
+				+ "'DecisionTree', 'GradientBoostedTree', 'LinearRegression' and 'RandomForestTree'.")
+		@Macro
+		public String algorithms;
+
+		@Description(Params.PARALLELISM_ALGORITHMS)
+		@Macro
+		@Nullable
+		public Integer parallelism;
+
+		public MultiRegressorConfig() {
+
+			dataSplit = "70:30";
+			modelStage = "experiment";
+
+			algorithms = "DecisionTree,GradientBoostedTree,LinearRegression,RandomForestTree";
+
+		}
+
+		public List<String> getAlgorithms() {
+
+			List<String> names = new ArrayList<>();
+			for (String name : algorithms.split(",")) {
+
+				if (name.trim().isEmpty() == false && names.contains(name.trim()) == false)
+					names.add(name.trim());
+
+			}
+
+			return names;
+
+		}
+
+		public void validate() {
+			super.validate();
+
+			if (!containsMacro("algorithms")) {
+
+				if (Strings.isNullOrEmpty(algorithms) || getAlgorithms().isEmpty()) {
+					throw new IllegalArgumentException(
+							String.format("[%s] The list of algorithms must not be empty.", this.getClass().getName()));
+				}
+				for (String algorithm : getAlgorithms()) {
+					RegressorModels.getDefaults(algorithm);
+				}
+
+			}
+			if (!containsMacro("parallelism") && parallelism != null && parallelism < 1) {
+				throw new IllegalArgumentException(
+						String.format("[%s] The parallelism must be positive.", this.getClass().getName()));
+			}
+
+		}
+
+	}
+
+}
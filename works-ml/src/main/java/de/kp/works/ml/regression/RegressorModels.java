@@ -0,0 +1,138 @@
+package de.kp.works.ml.regression;
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import java.util.Map;
+
+import org.apache.spark.ml.PredictionModel;
+import org.apache.spark.ml.regression.DecisionTreeRegressionModel;
+import org.apache.spark.ml.regression.GBTRegressionModel;
+import org.apache.spark.ml.regression.LinearRegressionModel;
+import org.apache.spark.ml.regression.RandomForestRegressionModel;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+
+import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
+import de.kp.works.core.Algorithms;
+import de.kp.works.core.model.ModelProfile;
+import de.kp.works.core.regressor.RFRRecorder;
+import de.kp.works.ml.config.DTConfig;
+import de.kp.works.ml.config.GBTConfig;
+import de.kp.works.ml.config.RFConfig;
+
+/**
+ * [RegressorModels] trains and tracks regression models by algorithm
+ * name; it is shared by the stages that train more than one model per
+ * pipeline run, i.e. hyper-parameter search and multi-algorithm training.
+ */
+public class RegressorModels {
+
+	/**
+	 * The default parameters of the provided algorithm, as
+	 * defined by the configuration of its building stage
+	 */
+	public static Map<String, Object> getDefaults(String algorithmName) {
+
+		switch (algorithmName) {
+		case Algorithms.DECISION_TREE:
+			return new DTConfig().getParamsAsMap();
+		case Algorithms.GRADIENT_BOOSTED_TREE: {
+			Map<String, Object> params = new GBTConfig().getParamsAsMap();
+			/*
+			 * The default loss function of the shared
+			 * configuration refers to classification
+			 */
+			params.put("lossType", "squared");
+			return params;
+		}
+		case Algorithms.LINEAR_REGRESSION:
+			return new LinearRegressor.LinearConfig().getParamsAsMap();
+		case Algorithms.RANDOM_FOREST_TREE:
+			return new RFConfig().getParamsAsMap();
+		default:
+			throw new IllegalArgumentException(
+					String.format("Regression algorithm '%s' is not supported.", algorithmName));
+		}
+
+	}
+
+	public static PredictionModel<?, ?> train(String algorithmName, Dataset<Row> trainset, String vectorCol,
+			String labelCol, Map<String, Object> params) {
+
+		switch (algorithmName) {
+		case Algorithms.DECISION_TREE:
+			return new DTTrainer().train(trainset, vectorCol, labelCol, params);
+		case Algorithms.GRADIENT_BOOSTED_TREE:
+			return new GBTTrainer().train(trainset, vectorCol, labelCol, params);
+		case Algorithms.LINEAR_REGRESSION:
+			return new LinearTrainer().train(trainset, vectorCol, labelCol, params);
+		case Algorithms.RANDOM_FOREST_TREE:
+			return new RFTrainer().train(trainset, vectorCol, labelCol, params);
+		default:
+			throw new IllegalArgumentException(
+					String.format("Regression algorithm '%s' is not supported.", algorithmName));
+		}
+
+	}
+
+	/**
+	 * This method registers the provided model and returns the profile
+	 * (identifier, fileset path and version) of the registered model
+	 */
+	public static ModelProfile track(SparkExecutionPluginContext context, String algorithmName, String modelName,
+			String modelStage, String modelParams, String modelMetrics, PredictionModel<?, ?> model) throws Exception {
+
+		switch (algorithmName) {
+		case Algorithms.DECISION_TREE: {
+			DTRRecorder recorder = new DTRRecorder();
+			recorder.track(context, modelName, modelStage, modelParams, modelMetrics,
+					(DecisionTreeRegressionModel) model);
+
+			return recorder.getProfile();
+		}
+		case Algorithms.GRADIENT_BOOSTED_TREE: {
+			GBRRecorder recorder = new GBRRecorder();
+			recorder.track(context, modelName, modelStage, modelParams, modelMetrics,
+					(GBTRegressionModel) model);
+
+			return recorder.getProfile();
+		}
+		case Algorithms.LINEAR_REGRESSION: {
+			LinearRecorder recorder = new LinearRecorder();
+			recorder.track(context, modelName, modelStage, modelParams, modelMetrics,
+					(LinearRegressionModel) model);
+
+			return recorder.getProfile();
+		}
+		case Algorithms.RANDOM_FOREST_TREE: {
+			String modelPack = "WorksML";
+			RFRRecorder recorder = new RFRRecorder();
+			recorder.track(context, modelName, modelPack, modelStage, modelParams, modelMetrics,
+					(RandomForestRegressionModel) model);
+
+			return recorder.getProfile();
+		}
+		default:
+			throw new IllegalArgumentException(
+					String.format("Regression algorithm '%s' is not supported.", algorithmName));
+		}
+
+	}
+
+}
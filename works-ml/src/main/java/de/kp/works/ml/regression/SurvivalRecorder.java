@@ -42,7 +42,7 @@ public class SurvivalRecorder extends RegressorRecorder {
 		 * Leverage Apache Spark mechanism to read the AFTSurvivalRegression model
 		 * from a model specific file set
 		 */
-		return AFTSurvivalRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> AFTSurvivalRegressionModel.load(modelPath));
 		
 	}
 
@@ -21,6 +21,8 @@ package de.kp.works.ml.smote;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 
@@ -86,10 +88,8 @@ public class SMOTESampler extends SMOTECompute {
 		balancer.setFeaturesCol(config.featuresCol);
 		balancer.setLabelCol(config.labelCol);
 		
-		balancer.setNumHashTables(config.numHashTables);
-		balancer.setBucketLength(config.bucketLength);
-		
 		balancer.setNumNearestNeighbors(config.numNearestNeighbors);
+		balancer.setMaxSamplesPerClass(config.getMaxSamples());
 
 		return balancer.transform(source);
 		
@@ -125,28 +125,26 @@ public class SMOTESampler extends SMOTECompute {
 		@Macro
 		public String labelCol;
 		
-		@Description("The number of hash tables used in LSH OR-amplification. LSH OR-amplification can be used to reduce the false negative rate. "
-				+ "Higher values for this parameter lead to a reduced false negative rate, at the expense of added computational complexity. Default is 1.")
-		@Macro
-		public Integer numHashTables;
-
-		@Description("The length of each hash bucket, a larger bucket lowers the false negative rate. The number of buckets will be "
-				+ "'(max L2 norm of input vectors) / bucketLength'.")
-		@Macro
-		public Double bucketLength;
-
 		@Description("The number of nearest neighbors that are taken into account by the SMOTE algorithm to interpolate synthetic feature values. "
 				+ "Default is 4.")
 		@Macro
 		public Integer numNearestNeighbors;
 		
+		@Description("The maximum number of examples of a certain label that are held in memory to determine the nearest "
+				+ "neighbors. Labels with more examples are sampled to this size. Default is 100000.")
+		@Macro
+		@Nullable
+		public Integer maxSamples;
+		
 		public SMOTESamplerConfig() {
-			
-			bucketLength = 2.0;
-			numHashTables = 1;
-			
 			numNearestNeighbors = 4;
-			
+		}
+		/*
+		 * Pipelines that have been saved before the introduction
+		 * of this property do not specify a maximum sample size
+		 */
+		public Integer getMaxSamples() {
+			return (maxSamples == null) ? 100000 : maxSamples;
 		}
 
 		public void validate() {
@@ -162,18 +160,14 @@ public class SMOTESampler extends SMOTECompute {
 						String.format("[%s] The name of the field that contains the label value must not be empty.",
 								this.getClass().getName()));
 			}
-			if (numHashTables < 1)
-				throw new IllegalArgumentException(String.format(
-						"[%s] The number of hash tables must be at least 1.", this.getClass().getName()));
-
-			if (bucketLength <= 0D)
-				throw new IllegalArgumentException(String.format(
-						"[%s] The bucket length  must be greater than 0.0.", this.getClass().getName()));
-
 			if (numNearestNeighbors < 1)
 				throw new IllegalArgumentException(String.format(
 						"[%s] The number of nearest neighbors must be at least 1.", this.getClass().getName()));
 			
+			if (maxSamples != null && maxSamples < 1)
+				throw new IllegalArgumentException(String.format(
+						"[%s] The maximum number of examples per label must be at least 1.", this.getClass().getName()));
+			
 		}
 		public void validateSchema(Schema inputSchema) {
 			
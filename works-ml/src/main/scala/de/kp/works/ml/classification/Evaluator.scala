@@ -21,18 +21,23 @@ package de.kp.works.ml.classification
 import java.util.{ HashMap => JHashMap }
 import com.google.gson.Gson
 
-import org.apache.spark.ml.evaluation.MulticlassClassificationEvaluator
+import org.apache.spark.ml.linalg.Vector
+import org.apache.spark.mllib.evaluation.BinaryClassificationMetrics
 import org.apache.spark.sql._
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+
+import org.apache.spark.storage.StorageLevel
 
 import de.kp.works.core.Names
 
 object Evaluator {
   /*
-   * Reference to Apache Spark classification evaluator
-   * as this object is an access wrapper
+   * The default name of the raw prediction column of
+   * probabilistic classification models
    */
-  private val evaluator = new MulticlassClassificationEvaluator()
-    
+  private val RAW_PREDICTION_COL = "rawPrediction"
+  
   /*
    * This method calculates proven metric values from
    * the provided prediction by comparing label value
@@ -47,34 +52,168 @@ object Evaluator {
    * - weightedFalsePositiveRate
    * - weightedTruePositiveRate = weightedRecall
    *
+   * All metrics are derived from the confusion matrix that
+   * is computed with a single aggregation over the dataset;
+   * the per class statistics are added as well.
+   * 
+   * If the predictions of a binary classifier provide raw 
+   * predictions, the area under the ROC curve is added; the
+   * predictions are then persisted for the duration of this
+   * method, as the ROC curve requires several extra jobs.
 	 */  
   def evaluate(predictions: Dataset[Row], labelCol: String, predictionCol: String): String = {
+    
+    val rawPredictionCol = if (predictions.columns.contains(RAW_PREDICTION_COL)) RAW_PREDICTION_COL else null
+    evaluate(predictions, labelCol, predictionCol, rawPredictionCol)
+    
+  }
+  
+  def evaluate(predictions: Dataset[Row], labelCol: String, predictionCol: String, rawPredictionCol: String): String = {
 
     val metrics = new JHashMap[String, Object]()
+    
+    val persisted = rawPredictionCol != null
+    val dataset =
+      if (persisted)
+        predictions.select(labelCol, predictionCol, rawPredictionCol).persist(StorageLevel.MEMORY_AND_DISK)
+      else predictions
+      
+    try {
+      /*
+       * STEP #1: Compute the confusion matrix as (label, prediction) 
+       * counts; the matrix is small and collected to the driver
+       */
+      val confusion = dataset
+        .select(col(labelCol).cast(DoubleType), col(predictionCol).cast(DoubleType))
+        .rdd.map(row => ((row.getDouble(0), row.getDouble(1)), 1L))
+        .reduceByKey(_ + _)
+        .collect
+    
+      val matrix = new ConfusionMatrix(confusion)
+    
+      metrics.put(Names.ACCURACY, matrix.accuracy.asInstanceOf[AnyRef])
+      metrics.put(Names.F1, matrix.weightedFMeasure.asInstanceOf[AnyRef])
+      metrics.put(Names.WEIGHTED_FMEASURE, matrix.weightedFMeasure.asInstanceOf[AnyRef])
+      metrics.put(Names.WEIGHTED_PRECISION, matrix.weightedPrecision.asInstanceOf[AnyRef])
+      metrics.put(Names.WEIGHTED_RECALL, matrix.weightedRecall.asInstanceOf[AnyRef])
+      metrics.put(Names.WEIGHTED_FALSE_POSITIVE, matrix.weightedFalsePositiveRate.asInstanceOf[AnyRef])
+      metrics.put(Names.WEIGHTED_TRUE_POSITIVE, matrix.weightedRecall.asInstanceOf[AnyRef])
+      /*
+       * STEP #2: Per class statistics
+       */
+      val perClass = new JHashMap[String, Object]()
+      matrix.labels.foreach(label => {
+      
+        val stats = new JHashMap[String, Object]()
+      
+        stats.put("count", matrix.labelCount(label).asInstanceOf[AnyRef])
+        stats.put("precision", matrix.precision(label).asInstanceOf[AnyRef])
+        stats.put("recall", matrix.recall(label).asInstanceOf[AnyRef])
+        stats.put("fMeasure", matrix.fMeasure(label).asInstanceOf[AnyRef])
+        stats.put("falsePositiveRate", matrix.falsePositiveRate(label).asInstanceOf[AnyRef])
+      
+        perClass.put(label.toString, stats)
+      
+      })
+    
+      metrics.put("perClass", perClass)
+      /*
+       * STEP #3: The area under the ROC curve is restricted
+       * to binary classifiers with raw predictions
+       */
+      if (rawPredictionCol != null && matrix.labels.forall(label => label == 0D || label == 1D)) {
+      
+        val scores = dataset
+          .select(col(rawPredictionCol), col(labelCol).cast(DoubleType))
+          .rdd.map(row => (row.getAs[Vector](0)(1), row.getDouble(1)))
+        
+        val curve = new BinaryClassificationMetrics(scores)
+        metrics.put("areaUnderROC", curve.areaUnderROC.asInstanceOf[AnyRef])
+        
+        curve.unpersist()
+      
+      }
+      
+    } finally {
+      if (persisted) dataset.unpersist(blocking = false)
+    }
 
-    evaluator.setLabelCol(labelCol);
-    evaluator.setPredictionCol(predictionCol);
-
-    val metricNames = List(
-      Names.ACCURACY,      
-      Names.F1,
-      Names.WEIGHTED_FMEASURE,
-      Names.WEIGHTED_PRECISION,
-      Names.WEIGHTED_RECALL,
-      Names.WEIGHTED_FALSE_POSITIVE,
-      Names.WEIGHTED_TRUE_POSITIVE)
-    
-    metricNames.foreach(metricName => {
-
-      evaluator.setMetricName(metricName)
-      val value = evaluator.evaluate(predictions)
+    new Gson().toJson(metrics)
+    
+  }
 
-      metrics.put(metricName, value.asInstanceOf[AnyRef])
+}
 
-    })
+/**
+ * A confusion matrix specified as (label, prediction) counts; 
+ * the metrics are defined as by Apache Spark's multiclass metrics
+ */
+class ConfusionMatrix(counts: Array[((Double, Double), Long)]) {
 
-    new Gson().toJson(metrics)
+  val total: Long = counts.map(_._2).sum
+  
+  private val tp: Map[Double, Long] = counts
+    .filter{case((label, prediction), _) => label == prediction}
+    .map{case((label, _), count) => (label, count)}.toMap
+  
+  private val fp: Map[Double, Long] = counts
+    .filter{case((label, prediction), _) => label != prediction}
+    .groupBy(_._1._2).map{case(prediction, items) => (prediction, items.map(_._2).sum)}
+    
+  private val labelCounts: Map[Double, Long] = counts
+    .groupBy(_._1._1).map{case(label, items) => (label, items.map(_._2).sum)}
+  
+  def labels: Array[Double] = labelCounts.keys.toArray.sorted
+  
+  def labelCount(label: Double): Long = labelCounts.getOrElse(label, 0L)
+  
+  def accuracy: Double = if (total == 0) 0D else tp.values.sum.toDouble / total
+  
+  def precision(label: Double): Double = {
+    
+    val tpCount = tp.getOrElse(label, 0L)
+    val fpCount = fp.getOrElse(label, 0L)
+    
+    if (tpCount + fpCount == 0) 0D else tpCount.toDouble / (tpCount + fpCount)
     
   }
-
-}
\ No newline at end of file
+  
+  def recall(label: Double): Double = {
+    
+    val count = labelCount(label)
+    if (count == 0) 0D else tp.getOrElse(label, 0L).toDouble / count
+    
+  }
+  
+  def fMeasure(label: Double): Double = {
+    
+    val p = precision(label)
+    val r = recall(label)
+    
+    if (p + r == 0) 0D else 2 * p * r / (p + r)
+    
+  }
+  
+  def falsePositiveRate(label: Double): Double = {
+    
+    val negatives = total - labelCount(label)
+    if (negatives == 0) 0D else fp.getOrElse(label, 0L).toDouble / negatives
+    
+  }
+  
+  def weightedPrecision: Double = weighted(precision)
+  
+  def weightedRecall: Double = weighted(recall)
+  
+  def weightedFMeasure: Double = weighted(fMeasure)
+  
+  def weightedFalsePositiveRate: Double = weighted(falsePositiveRate)
+  
+  private def weighted(metric: Double => Double): Double = {
+    
+    if (total == 0) 0D else
+      labelCounts.map{case(label, count) => metric(label) * count.toDouble / total}.sum
+      
+  }
+  
+}
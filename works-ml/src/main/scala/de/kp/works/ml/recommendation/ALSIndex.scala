@@ -0,0 +1,235 @@
+package de.kp.works.ml.recommendation
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import org.apache.hadoop.fs.Path
+
+import org.apache.spark.ml.clustering.KMeans
+import org.apache.spark.ml.linalg.{SQLDataTypes, Vectors}
+import org.apache.spark.ml.recommendation.ALSModel
+
+import org.apache.spark.sql._
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+
+/**
+ * The [ALSIndex] is an approximate maximum inner product (MIPS) index
+ * of the item factors of an ALS model, organized as inverted lists.
+ *
+ * Maximum inner product search is reduced to nearest neighbour search:
+ * each item factor y is augmented by sqrt(M^2 - |y|^2), where M is the
+ * maximum norm of all item factors, and scaled by 1 / M. This maps all
+ * items onto the unit sphere, and a user factor x, augmented by 0, has
+ * the inner product x.y / M with each item. The augmented items are
+ * clustered with KMeans, and each cluster defines an inverted list.
+ *
+ * A query probes the lists with the largest inner product between the
+ * user factor and the list centroid, and scores the items of these lists
+ * exactly. The number of probed lists trades recall for latency.
+ */
+class ALSIndex(
+  /*
+   * The (non augmented) centroids of the inverted lists;
+   * as queries are augmented by 0, the augmented component
+   * does not contribute to the probe scores
+   */
+  val centroids: Array[Array[Float]],
+  /*
+   * The assignment of each item (id) to its inverted list (list)
+   */
+  val assignments: DataFrame) {
+
+  def numLists: Int = centroids.length
+
+  def save(path: String): Unit = {
+
+    val session = assignments.sparkSession
+
+    val rows = centroids.indices.map(list => Row(list, centroids(list).toSeq))
+    val schema = StructType(Array(
+      StructField(ALSIndex.LIST_COL, IntegerType, nullable = false),
+      StructField(ALSIndex.CENTROID_COL, ArrayType(FloatType, containsNull = false), nullable = false)))
+
+    session.createDataFrame(session.sparkContext.parallelize(rows, 1), schema)
+      .write.mode(SaveMode.Overwrite).parquet(new Path(path, ALSIndex.CENTROIDS).toString)
+
+    assignments.write.mode(SaveMode.Overwrite).parquet(new Path(path, ALSIndex.ASSIGNMENTS).toString)
+
+  }
+
+}
+
+object ALSIndex {
+  /*
+   * The index is persisted as a sub directory of
+   * the (persisted) ALS model
+   */
+  val INDEX_DIR = "mipsIndex"
+
+  private val CENTROIDS = "centroids"
+  private val ASSIGNMENTS = "assignments"
+
+  private val ID_COL = "id"
+  private[recommendation] val LIST_COL = "list"
+
+  private val CENTROID_COL = "centroid"
+
+  /**
+   * Builds the index from the item factors of the provided
+   * ALS model with the provided number of inverted lists
+   */
+  def build(model: ALSModel, numLists: Int): ALSIndex = build(model, numLists, 20, 42L)
+
+  def build(model: ALSModel, numLists: Int, maxIter: Int, seed: Long): ALSIndex = {
+
+    require(numLists >= 1, "number of inverted lists must be greater than or equals 1")
+
+    val session = model.itemFactors.sparkSession
+    val rank = model.rank
+    /*
+     * STEP #1: Determine the maximum norm of the item factors
+     * and map the items onto the unit sphere
+     */
+    val items = model.itemFactors.rdd.map(row => (row.getInt(0), row.getSeq[Float](1).toArray))
+
+    val maxNorm = items.map{case(_, factors) => Math.sqrt(squaredNorm(factors))}.fold(0.0)(Math.max)
+    val scale = if (maxNorm == 0.0) 1.0 else maxNorm
+
+    val augmented = items.map{case(id, factors) =>
+
+      val values = new Array[Double](rank + 1)
+
+      var i = 0
+      while (i < rank) {
+        values(i) = factors(i) / scale
+        i += 1
+      }
+
+      values(rank) = Math.sqrt(Math.max(0.0, 1.0 - squaredNorm(factors) / (scale * scale)))
+      Row(id, Vectors.dense(values))
+
+    }
+
+    val schema = StructType(Array(
+      StructField(ID_COL, IntegerType, nullable = false),
+      StructField("features", SQLDataTypes.VectorType, nullable = false)))
+
+    val dataset = session.createDataFrame(augmented, schema)
+    /*
+     * STEP #2: Cluster the augmented items; each cluster
+     * defines an inverted list of the index
+     */
+    val kmeans = new KMeans()
+      .setK(numLists)
+      .setMaxIter(maxIter)
+      .setSeed(seed)
+      .setFeaturesCol("features")
+      .setPredictionCol(LIST_COL)
+      .fit(dataset)
+
+    val centroids = kmeans.clusterCenters.map(center => {
+      /*
+       * The centroids are rescaled to the space of the item
+       * factors; this does not change the order of the probe
+       * scores of a certain user
+       */
+      val values = new Array[Float](rank)
+
+      var i = 0
+      while (i < rank) {
+        values(i) = (center(i) * scale).toFloat
+        i += 1
+      }
+
+      values
+
+    })
+
+    val assignments = kmeans.transform(dataset).select(col(ID_COL), col(LIST_COL))
+    new ALSIndex(centroids, assignments)
+
+  }
+
+  /**
+   * Loads the index that has been persisted with the ALS model
+   * at the provided path; null is returned, if the model has
+   * been built without index
+   */
+  def load(modelPath: String): ALSIndex = {
+
+    val session = SparkSession.builder.getOrCreate
+
+    val path = new Path(modelPath, INDEX_DIR)
+    val fs = path.getFileSystem(session.sparkContext.hadoopConfiguration)
+
+    if (fs.exists(path) == false) return null
+
+    val centroids = session.read.parquet(new Path(path, CENTROIDS).toString)
+      .collect.map(row => (row.getInt(0), row.getSeq[Float](1).toArray))
+      .sortBy(_._1).map(_._2)
+
+    val assignments = session.read.parquet(new Path(path, ASSIGNMENTS).toString)
+    new ALSIndex(centroids, assignments)
+
+  }
+
+  /**
+   * The inverted lists that are probed for the provided
+   * user factor, ordered by descending probe score
+   */
+  private[recommendation] def probe(centroids: Array[Array[Float]], factors: Array[Float], numProbes: Int): Array[Int] = {
+
+    val numLists = centroids.length
+    val queue = new TopKQueue(Math.min(numProbes, numLists))
+
+    var list = 0
+    while (list < numLists) {
+
+      val centroid = centroids(list)
+
+      var score = 0.0f
+      var i = 0
+      while (i < factors.length) {
+        score += factors(i) * centroid(i)
+        i += 1
+      }
+
+      queue.offer(list, score)
+      list += 1
+
+    }
+
+    queue.sorted._1
+
+  }
+
+  private def squaredNorm(factors: Array[Float]): Double = {
+
+    var norm = 0.0
+    var i = 0
+    while (i < factors.length) {
+      norm += factors(i) * factors(i)
+      i += 1
+    }
+
+    norm
+
+  }
+
+}
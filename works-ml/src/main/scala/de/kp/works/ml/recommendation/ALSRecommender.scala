@@ -0,0 +1,522 @@
+package de.kp.works.ml.recommendation
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import com.github.fommil.netlib.BLAS.{getInstance => blas}
+
+import org.apache.spark.ml.recommendation.ALSModel
+import org.apache.spark.rdd.RDD
+
+import org.apache.spark.sql._
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+
+import org.apache.spark.storage.StorageLevel
+
+import scala.collection.mutable
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * The [ALSRecommender] determines the top-k items of a set of users
+ * from the factors of a trained ALS model.
+ *
+ * The user and item factors are grouped into blocks, and each pair of
+ * a user block and an item block is scored with a single matrix product
+ * (native BLAS). Each user keeps a bounded heap of its k best items per
+ * item block, and the heaps are merged per user; the full user x item
+ * matrix is never materialized.
+ *
+ * Items can be excluded per user (e.g. the items a user already rated)
+ * by an array of item identifiers.
+ *
+ * With an [ALSIndex], each user is scored against the items of the most
+ * promising index lists only; the recall of these approximate results is
+ * measured against exact scoring for a sample of users.
+ *
+ * The intermediate blocks and queries are persisted, as the recommendations
+ * are evaluated lazily; they must be released by the caller with [release]
+ * after the recommendations have been consumed.
+ */
+class ALSRecommender(model: ALSModel, k: Int) extends Serializable {
+
+  require(k >= 1, "number of recommendations must be greater than or equals 1")
+
+  @transient private var index: Option[ALSIndex] = None
+  private var numProbes: Int = 1
+
+  private var recall: Double = Double.NaN
+
+  @transient private val persisted = ArrayBuffer.empty[RDD[_]]
+
+  /**
+   * Restricts the scored items of a user to the items of the
+   * (approximate) index lists with the largest probe scores;
+   * more probes increase recall and latency
+   */
+  def setIndex(value: ALSIndex, probes: Int): this.type = {
+
+    require(probes >= 1, "number of probes must be greater than or equals 1")
+
+    index = Option(value)
+    numProbes = probes
+
+    this
+
+  }
+
+  /**
+   * The recall of the approximate recommendations of the last
+   * request, measured against exact scoring for a sample of its
+   * users; NaN, if the recommendations are computed exactly
+   */
+  def getRecall: Double = recall
+
+  /**
+   * @param dataset       The users to recommend items for; a user may
+   *                      occur multiple times, its exclusion lists are
+   *                      combined
+   * @param userCol       The name of the user field
+   * @param exclusionCol  The (optional) name of the field that contains
+   *                      the items to exclude per user
+   *
+   * @return The recommendations with one row per user and item,
+   *         the predicted rating and the 1-based rank of the item
+   */
+  def recommend(dataset: Dataset[Row], userCol: String, exclusionCol: Option[String],
+      itemCol: String, predictionCol: String, rankCol: String): DataFrame = {
+
+    val session = dataset.sparkSession
+    /*
+     * STEP #1: Determine the distinct users and their (sorted)
+     * exclusion lists, and assign the user factors; users without
+     * factors (cold start) do not receive recommendations
+     */
+    val exclusions = exclusionCol match {
+      case Some(column) => col(column).cast(ArrayType(IntegerType))
+      case _ => lit(null).cast(ArrayType(IntegerType))
+    }
+
+    val users = dataset.select(col(userCol).cast(IntegerType), exclusions).rdd
+      .filter(row => row.isNullAt(0) == false)
+      .map(row => {
+
+        val excluded =
+          if (row.isNullAt(1)) Array.empty[Int]
+          else row.getSeq[Any](1).filter(_ != null).map(_.asInstanceOf[Int]).toArray
+
+        (row.getInt(0), excluded)
+
+      })
+      .reduceByKey(_ ++ _)
+      .mapValues(excluded => excluded.distinct.sorted)
+
+    val userFactors = model.userFactors.rdd.map(row => (row.getInt(0), row.getSeq[Float](1).toArray))
+
+    val queries = users.join(userFactors)
+      .map{case(id, (excluded, factors)) => (id, factors, excluded)}
+    /*
+     * STEP #2: Score the users either exactly against all items, or
+     * against the items of the probed index lists
+     */
+    val topK = index match {
+      case Some(value) =>
+
+        persist(queries)
+
+        val approximate = persist(searchIndex(queries, value))
+        recall = measureRecall(queries, approximate)
+
+        approximate
+
+      case _ =>
+        recall = Double.NaN
+        search(queries)
+    }
+    val rows = topK.flatMap{case(user, (items, scores)) =>
+      items.indices.map(i => Row(user, items(i), scores(i).toDouble, i + 1))
+    }
+
+    val schema = StructType(Array(
+      StructField(userCol, IntegerType, nullable = false),
+      StructField(itemCol, IntegerType, nullable = false),
+      StructField(predictionCol, DoubleType, nullable = false),
+      StructField(rankCol, IntegerType, nullable = false)))
+
+    session.createDataFrame(rows, schema)
+
+  }
+
+  /*
+   * Exact search: each pair of user and item block is scored and
+   * the top-k items per user and item block are retained; the
+   * partial results are merged per user
+   */
+  private def search(queries: RDD[(Int, Array[Float], Array[Int])]): RDD[(Int, (Array[Int], Array[Float]))] = {
+
+    val blockSize = ALSRecommender.BLOCK_SIZE
+
+    val rank = model.rank
+    val num = k
+
+    val userBlocks = queries
+      .mapPartitions(_.grouped(blockSize).map(block => ALSRecommender.userBlock(block)))
+    /*
+     * The item blocks are scored against each user
+     * block and are therefore persisted
+     */
+    val itemBlocks = model.itemFactors.rdd
+      .map(row => (row.getInt(0), row.getSeq[Float](1).toArray))
+      .mapPartitions(_.grouped(blockSize).map(block => ALSRecommender.itemBlock(block)))
+
+    persist(itemBlocks)
+
+    userBlocks.cartesian(itemBlocks)
+      .flatMap{case(users, items) => ALSRecommender.score(users, items, rank, num)}
+      .reduceByKey((a, b) => ALSRecommender.merge(a, b, num))
+
+  }
+
+  /*
+   * Approximate search: each user is assigned to the index lists
+   * with the largest probe scores, and the user blocks of a list
+   * are scored against the item blocks of the same list only
+   */
+  private def searchIndex(queries: RDD[(Int, Array[Float], Array[Int])], 
+      value: ALSIndex): RDD[(Int, (Array[Int], Array[Float]))] = {
+
+    val blockSize = ALSRecommender.BLOCK_SIZE
+
+    val rank = model.rank
+    val num = k
+
+    val probes = numProbes
+    val centroids = queries.sparkContext.broadcast(value.centroids)
+
+    /*
+     * The users and items are grouped into blocks of the same list
+     * within each partition; a block is identified by its list, its
+     * partition and its position within the partition
+     */
+    val userBlocks = queries
+      .flatMap(query => ALSIndex.probe(centroids.value, query._2, probes).map(list => (list, query)))
+      .mapPartitionsWithIndex((partition, iter) =>
+        ALSRecommender.blocks(iter, blockSize).zipWithIndex.map{case((list, block), pos) =>
+          ((list, partition, pos), ALSRecommender.userBlock(block))})
+
+    val items = model.itemFactors.rdd.map(row => (row.getInt(0), row.getSeq[Float](1).toArray))
+    val assignments = value.assignments.rdd.map(row => (row.getInt(0), row.getInt(1)))
+
+    val itemBlocks = items.join(assignments)
+      .map{case(id, (factors, list)) => (list, (id, factors))}
+      .mapPartitionsWithIndex((partition, iter) =>
+        ALSRecommender.blocks(iter, blockSize).zipWithIndex.map{case((list, block), pos) =>
+          ((list, partition, pos), ALSRecommender.itemBlock(block))})
+
+    persist(userBlocks)
+    persist(itemBlocks)
+    /*
+     * Each user block of a list is paired with each item block of the
+     * same list by a unique key; the join therefore holds a single user
+     * and item block per key, and never all blocks of a list at once
+     */
+    val sc = queries.sparkContext
+
+    val userIds = sc.broadcast(userBlocks.keys.collect.groupBy(_._1))
+    val itemIds = sc.broadcast(itemBlocks.keys.collect.groupBy(_._1))
+
+    val userPairs = userBlocks.flatMap{case(userId, block) =>
+      itemIds.value.getOrElse(userId._1, Array.empty[(Int, Int, Int)]).map(itemId => ((userId, itemId), block))
+    }
+
+    val itemPairs = itemBlocks.flatMap{case(itemId, block) =>
+      userIds.value.getOrElse(itemId._1, Array.empty[(Int, Int, Int)]).map(userId => ((userId, itemId), block))
+    }
+
+    userPairs.join(itemPairs)
+      .flatMap{case(_, (users, items)) => ALSRecommender.score(users, items, rank, num)}
+      .reduceByKey((a, b) => ALSRecommender.merge(a, b, num))
+
+  }
+
+  private def persist[T](rdd: RDD[T]): RDD[T] = {
+
+    rdd.persist(StorageLevel.MEMORY_AND_DISK)
+    persisted += rdd
+
+    rdd
+
+  }
+
+  /**
+   * Releases the queries and blocks that have been persisted
+   * by the recommendations of this instance
+   */
+  def release(): Unit = {
+
+    persisted.foreach(rdd => rdd.unpersist(blocking = false))
+    persisted.clear()
+
+  }
+
+  /*
+   * The recall of the approximate recommendations is the average
+   * fraction of the exact top-k items of a user, that is retrieved
+   * by the approximate search; it is measured for a sample of users
+   */
+  private def measureRecall(queries: RDD[(Int, Array[Float], Array[Int])], 
+      approximate: RDD[(Int, (Array[Int], Array[Float]))]): Double = {
+
+    val sample = queries.takeSample(withReplacement = false, ALSRecommender.RECALL_SAMPLE, seed = 42L)
+    if (sample.isEmpty) return Double.NaN
+
+    val sc = queries.sparkContext
+
+    val exact = search(sc.parallelize(sample)).mapValues(_._1).collectAsMap
+    val sampled = sc.broadcast(exact.keySet.toSet)
+
+    val retrieved = approximate
+      .filter{case(user, _) => sampled.value.contains(user)}
+      .mapValues(_._1).collectAsMap
+
+    val fractions = exact.filter{case(_, items) => items.nonEmpty}.map{case(user, items) =>
+
+      val found = retrieved.get(user) match {
+        case Some(values) => values.toSet
+        case _ => Set.empty[Int]
+      }
+
+      items.count(found.contains).toDouble / items.length
+
+    }
+
+    if (fractions.isEmpty) Double.NaN else fractions.sum / fractions.size
+
+  }
+
+}
+
+object ALSRecommender {
+  /*
+   * The number of users and items of a block; the
+   * scores of a pair of blocks occupy 4 MB
+   */
+  val BLOCK_SIZE = 1024
+  /*
+   * The number of users, the recall of approximate
+   * recommendations is measured for
+   */
+  val RECALL_SAMPLE = 1000
+
+  /*
+   * The factors of a block are concatenated into a single array,
+   * i.e. a column-major (rank x n) matrix
+   */
+  private[recommendation] case class UserBlock(ids: Array[Int], factors: Array[Float], exclusions: Array[Array[Int]])
+
+  private[recommendation] case class ItemBlock(ids: Array[Int], factors: Array[Float])
+
+  /*
+   * Groups the (list keyed) values of a partition into blocks of the
+   * same list; at most one incomplete block per list is buffered
+   */
+  private def blocks[T](iter: Iterator[(Int, T)], blockSize: Int): Iterator[(Int, Seq[T])] = {
+
+    val buffers = mutable.HashMap.empty[Int, ArrayBuffer[T]]
+
+    val full = iter.flatMap{case(list, value) =>
+
+      val buffer = buffers.getOrElseUpdate(list, ArrayBuffer.empty[T])
+      buffer += value
+
+      if (buffer.length == blockSize) {
+        buffers.remove(list)
+        Some((list, buffer.toSeq))
+
+      } else None
+
+    }
+
+    full ++ buffers.iterator.map{case(list, buffer) => (list, buffer.toSeq)}
+
+  }
+
+  private def userBlock(block: Seq[(Int, Array[Float], Array[Int])]): UserBlock =
+    UserBlock(block.map(_._1).toArray, block.flatMap(_._2).toArray, block.map(_._3).toArray)
+
+  private def itemBlock(block: Seq[(Int, Array[Float])]): ItemBlock =
+    ItemBlock(block.map(_._1).toArray, block.flatMap(_._2).toArray)
+
+  private def score(users: UserBlock, items: ItemBlock, rank: Int, k: Int): Iterator[(Int, (Array[Int], Array[Float]))] = {
+
+    val m = items.ids.length
+    val n = users.ids.length
+    /*
+     * scores (m x n) = items^T (m x rank) * users (rank x n);
+     * the column j holds the scores of user j for all items
+     */
+    val scores = new Array[Float](m * n)
+    blas.sgemm("T", "N", m, n, rank, 1.0f, items.factors, rank, users.factors, rank, 0.0f, scores, m)
+
+    Iterator.range(0, n).map(j => {
+
+      val excluded = users.exclusions(j)
+      val queue = new TopKQueue(k)
+
+      val offset = j * m
+      var i = 0
+      while (i < m) {
+
+        val item = items.ids(i)
+        if (excluded.isEmpty || java.util.Arrays.binarySearch(excluded, item) < 0)
+          queue.offer(item, scores(offset + i))
+
+        i += 1
+      }
+
+      (users.ids(j), queue.sorted)
+
+    })
+
+  }
+
+  /*
+   * Merges two lists of items, ordered by descending
+   * score, and retains the k best items
+   */
+  private def merge(a: (Array[Int], Array[Float]), b: (Array[Int], Array[Float]), k: Int): (Array[Int], Array[Float]) = {
+
+    val size = Math.min(k, a._1.length + b._1.length)
+
+    val items = new Array[Int](size)
+    val scores = new Array[Float](size)
+
+    var i = 0
+    var j = 0
+    var n = 0
+    while (n < size) {
+
+      if (j >= b._1.length || (i < a._1.length && a._2(i) >= b._2(j))) {
+        items(n) = a._1(i)
+        scores(n) = a._2(i)
+        i += 1
+
+      } else {
+        items(n) = b._1(j)
+        scores(n) = b._2(j)
+        j += 1
+      }
+
+      n += 1
+    }
+
+    (items, scores)
+
+  }
+
+}
+
+/**
+ * A min-heap of scores that retains the
+ * k largest scores offered
+ */
+private class TopKQueue(k: Int) {
+
+  private val items = new Array[Int](k)
+  private val scores = new Array[Float](k)
+
+  private var count = 0
+
+  def offer(item: Int, score: Float): Unit = {
+
+    if (count < k) {
+
+      items(count) = item
+      scores(count) = score
+
+      count += 1
+      siftUp(count - 1)
+
+    } else if (score > scores(0)) {
+
+      items(0) = item
+      scores(0) = score
+
+      siftDown(0)
+
+    }
+
+  }
+
+  /** The items and scores, ordered by descending score */
+  def sorted: (Array[Int], Array[Float]) = {
+
+    val order = (0 until count).sortBy(i => -scores(i)).toArray
+    (order.map(i => items(i)), order.map(i => scores(i)))
+
+  }
+
+  private def siftUp(pos: Int): Unit = {
+
+    var i = pos
+    while (i > 0) {
+
+      val parent = (i - 1) / 2
+      if (scores(i) >= scores(parent)) return
+
+      swap(i, parent)
+      i = parent
+
+    }
+
+  }
+
+  private def siftDown(pos: Int): Unit = {
+
+    var i = pos
+    while (true) {
+
+      val left = 2 * i + 1
+      val right = left + 1
+
+      var smallest = i
+      if (left < count && scores(left) < scores(smallest)) smallest = left
+      if (right < count && scores(right) < scores(smallest)) smallest = right
+
+      if (smallest == i) return
+
+      swap(i, smallest)
+      i = smallest
+
+    }
+
+  }
+
+  private def swap(i: Int, j: Int): Unit = {
+
+    val item = items(i)
+    items(i) = items(j)
+    items(j) = item
+
+    val score = scores(i)
+    scores(i) = scores(j)
+    scores(j) = score
+
+  }
+
+}
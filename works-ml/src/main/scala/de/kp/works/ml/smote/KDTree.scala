@@ -0,0 +1,296 @@
+package de.kp.works.ml.smote
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+/**
+ * A static KD-tree for exact k-nearest neighbour search with respect
+ * to the Euclidean distance.
+ *
+ * The tree is implicit: the point indices are reordered such that the
+ * median of each index range is the splitting point of this range, and
+ * its left and right sub ranges are the respective subtrees. Besides the
+ * points, the tree therefore only holds the index order and the split
+ * dimension of each point, i.e. its memory scales linearly with the
+ * number of points.
+ */
+class KDTree(val points: Array[Array[Double]], leafSize: Int = 16) extends Serializable {
+
+  private val order: Array[Int] = Array.range(0, points.length)
+  private val splitDim: Array[Int] = new Array[Int](points.length)
+
+  build(0, points.length)
+
+  def size: Int = points.length
+
+  /**
+   * The indices of the (at most) k nearest neighbours of the
+   * provided point, ordered by ascending distance; the point
+   * with the excluded index (e.g. the query point itself) is
+   * not taken into account
+   */
+  def nearest(query: Array[Double], k: Int, exclude: Int = -1): Array[Int] = {
+
+    val heap = new BoundedHeap(k)
+    search(0, points.length, query, exclude, heap)
+
+    heap.sorted
+
+  }
+
+  private def build(lo: Int, hi: Int): Unit = {
+
+    if (hi - lo <= leafSize) return
+    /*
+     * The split dimension is the dimension with
+     * the largest spread within the index range
+     */
+    val dim = spread(lo, hi)
+    val mid = (lo + hi) >>> 1
+
+    select(lo, hi - 1, mid, dim)
+    splitDim(mid) = dim
+
+    build(lo, mid)
+    build(mid + 1, hi)
+
+  }
+
+  private def spread(lo: Int, hi: Int): Int = {
+
+    val numDims = points(order(lo)).length
+
+    var maxDim = 0
+    var maxSpread = -1.0
+
+    var d = 0
+    while (d < numDims) {
+
+      var min = Double.PositiveInfinity
+      var max = Double.NegativeInfinity
+
+      var i = lo
+      while (i < hi) {
+        val value = points(order(i))(d)
+        if (value < min) min = value
+        if (value > max) max = value
+        i += 1
+      }
+
+      if (max - min > maxSpread) {
+        maxSpread = max - min
+        maxDim = d
+      }
+
+      d += 1
+    }
+
+    maxDim
+
+  }
+
+  /*
+   * Quickselect: reorders the index range [left, right] such that
+   * the k-th position holds the median with respect to dimension dim
+   */
+  private def select(left: Int, right: Int, k: Int, dim: Int): Unit = {
+
+    var lo = left
+    var hi = right
+
+    while (hi > lo) {
+
+      val pivot = points(order((lo + hi) >>> 1))(dim)
+
+      var i = lo
+      var j = hi
+
+      while (i <= j) {
+
+        while (points(order(i))(dim) < pivot) i += 1
+        while (points(order(j))(dim) > pivot) j -= 1
+
+        if (i <= j) {
+          swap(i, j)
+          i += 1
+          j -= 1
+        }
+
+      }
+
+      if (k <= j) hi = j
+      else if (k >= i) lo = i
+      else return
+
+    }
+
+  }
+
+  private def swap(i: Int, j: Int): Unit = {
+    val tmp = order(i)
+    order(i) = order(j)
+    order(j) = tmp
+  }
+
+  private def search(lo: Int, hi: Int, query: Array[Double], exclude: Int, heap: BoundedHeap): Unit = {
+
+    if (hi - lo <= leafSize) {
+
+      var i = lo
+      while (i < hi) {
+        visit(order(i), query, exclude, heap)
+        i += 1
+      }
+
+      return
+
+    }
+
+    val mid = (lo + hi) >>> 1
+    val dim = splitDim(mid)
+
+    visit(order(mid), query, exclude, heap)
+    /*
+     * Search the subtree on the side of the query point first,
+     * and the other subtree only if the splitting plane is closer
+     * than the current k-th nearest neighbour
+     */
+    val diff = query(dim) - points(order(mid))(dim)
+    if (diff <= 0) {
+
+      search(lo, mid, query, exclude, heap)
+      if (heap.isFull == false || diff * diff < heap.maxDistance)
+        search(mid + 1, hi, query, exclude, heap)
+
+    } else {
+
+      search(mid + 1, hi, query, exclude, heap)
+      if (heap.isFull == false || diff * diff < heap.maxDistance)
+        search(lo, mid, query, exclude, heap)
+
+    }
+
+  }
+
+  private def visit(index: Int, query: Array[Double], exclude: Int, heap: BoundedHeap): Unit = {
+
+    if (index == exclude) return
+
+    val point = points(index)
+
+    var distance = 0.0
+    var d = 0
+    while (d < query.length) {
+      val diff = query(d) - point(d)
+      distance += diff * diff
+      d += 1
+    }
+
+    heap.offer(index, distance)
+
+  }
+
+}
+
+/**
+ * A max-heap of (squared) distances that retains
+ * the k smallest distances offered
+ */
+private class BoundedHeap(k: Int) {
+
+  private val indices = new Array[Int](k)
+  private val distances = new Array[Double](k)
+
+  private var count = 0
+
+  def isFull: Boolean = count == k
+
+  def maxDistance: Double = distances(0)
+
+  def offer(index: Int, distance: Double): Unit = {
+
+    if (count < k) {
+
+      indices(count) = index
+      distances(count) = distance
+
+      count += 1
+      siftUp(count - 1)
+
+    } else if (distance < distances(0)) {
+
+      indices(0) = index
+      distances(0) = distance
+
+      siftDown(0)
+
+    }
+
+  }
+
+  def sorted: Array[Int] = (0 until count).sortBy(i => distances(i)).map(i => indices(i)).toArray
+
+  private def siftUp(pos: Int): Unit = {
+
+    var i = pos
+    while (i > 0) {
+
+      val parent = (i - 1) / 2
+      if (distances(i) <= distances(parent)) return
+
+      swap(i, parent)
+      i = parent
+
+    }
+
+  }
+
+  private def siftDown(pos: Int): Unit = {
+
+    var i = pos
+    while (true) {
+
+      val left = 2 * i + 1
+      val right = left + 1
+
+      var largest = i
+      if (left < count && distances(left) > distances(largest)) largest = left
+      if (right < count && distances(right) > distances(largest)) largest = right
+
+      if (largest == i) return
+
+      swap(i, largest)
+      i = largest
+
+    }
+
+  }
+
+  private def swap(i: Int, j: Int): Unit = {
+
+    val index = indices(i)
+    indices(i) = indices(j)
+    indices(j) = index
+
+    val distance = distances(i)
+    distances(i) = distances(j)
+    distances(j) = distance
+
+  }
+
+}
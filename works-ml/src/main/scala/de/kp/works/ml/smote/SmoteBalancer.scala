@@ -18,9 +18,6 @@ package de.kp.works.ml.smote
  * 
  */
 
-import org.apache.spark.ml.feature.{VectorAssembler, VectorFeaturizer}
-
-import org.apache.spark.ml.linalg._
 import org.apache.spark.ml.param._
 import org.apache.spark.ml.param.shared._
 
@@ -28,11 +25,13 @@ import org.apache.spark.ml.Transformer
 import org.apache.spark.ml.util._
 
 import org.apache.spark.sql._
+import org.apache.spark.sql.catalyst.encoders.RowEncoder
 
 import org.apache.spark.sql.functions._
 import org.apache.spark.sql.types._
 
-import scala.collection.mutable.WrappedArray
+import scala.collection.mutable.ArrayBuffer
+import scala.util.Random
 
 trait SmoteBalancerParams extends Params {
   
@@ -45,37 +44,21 @@ trait SmoteBalancerParams extends Params {
   def setFeaturesCol(value:String): this.type = set(featuresCol, value)
  
   def setLabelCol(value:String): this.type = set(labelCol, value)
-  /**
-   * The length of each hash bucket, a larger bucket lowers the false negative rate. The number of
-   * buckets will be `(max L2 norm of input vectors) / bucketLength`.
-   *
-   *
-   * If input vectors are normalized, 1-10 times of pow(numRecords, -1/inputDim) would be a
-   * reasonable value
-   */
-  val bucketLength: DoubleParam = new DoubleParam(this, "bucketLength",
-    "the length of each hash bucket, a larger bucket lowers the false negative rate.",
-    ParamValidators.gt(0))
-
-  def setBucketLength(value:Double): this.type = set(bucketLength, value)
-  /**
-   * Param for the number of hash tables used in LSH OR-amplification.
-   *
-   * LSH OR-amplification can be used to reduce the false negative rate. Higher values for this
-   * param lead to a reduced false negative rate, at the expense of added computational complexity.
-   */
-  final val numHashTables: IntParam = new IntParam(this, "numHashTables", "number of hash " +
-    "tables, where increasing number of hash tables lowers the false negative rate, and " +
-    "decreasing it improves the running performance", ParamValidators.gt(0))
-
-  def setNumHashTables(value:Int): this.type = set(numHashTables, value)
 
   final val numNearestNeighbors: IntParam = new IntParam(this, "numNearestNeighbors", 
       "number of nearest neighbours must be greater than or equals 1.", ParamValidators.gt(0))
 
   def setNumNearestNeighbors(value:Int): this.type = set(numNearestNeighbors, value)
   
-  setDefault(bucketLength -> 2.0, numHashTables -> 1, numNearestNeighbors -> 4)
+  setDefault(numNearestNeighbors -> 4)
+
+  final val maxSamplesPerClass: IntParam = new IntParam(this, "maxSamplesPerClass",
+      "The maximum number of examples of a minority class that are held in memory to search nearest neighbours; "
+      + "larger classes are sampled. Must be greater than 0.", ParamValidators.gt(0))
+
+  def setMaxSamplesPerClass(value:Int): this.type = set(maxSamplesPerClass, value)
+  
+  setDefault(maxSamplesPerClass -> 100000)
   
   def validateSchema(schema:StructType):Unit = {
     
@@ -150,80 +133,96 @@ class SmoteBalancer(override val uid: String) extends Transformer with SmoteBala
   def transform(dataset:Dataset[_]):DataFrame = {
     
     validateSchema(dataset.schema)
-    
-    val sampleset = dataset.select($(labelCol), $(featuresCol))
+    /*
+     * The synthetic examples specify their features as Array[Double] 
+     * and their label as Double; the sample is aligned to these types
+     */
+    val sampleset = dataset.select(
+        col($(labelCol)).cast(DoubleType).as($(labelCol)), 
+        col($(featuresCol)).cast(ArrayType(DoubleType)).as($(featuresCol)))
     /*
      * STEP #1: Determine label distribution within the dataset
      * and determine which labels have to be balanced by SMOTE 
      * algorithm
      */
     val dist = computeLabelDist(sampleset)
-    if (dist.isEmpty) return dataset.toDF
+    if (dist.isEmpty) return sampleset
     /*
-     * STEP #2: Split dataset into major and minor datasets
+     * STEP #2: Restrict the dataset to the minority labels
+     * and partition the result by label
      */
-    val minorLabels = dist.map(_._1).toList
-    val minorFilter = minorFilter_udf(minorLabels)
+    val multipliers = dist.map{case(label, fraction, multiplier) => (label, multiplier)}.toMap
 
-    val majorset = sampleset.filter(minorFilter(col($(labelCol))) === false)
-    val minorset = sampleset.filter(minorFilter(col($(labelCol))) === true)
+    val minorset = sampleset.filter(col($(labelCol)).isin(multipliers.keys.toSeq: _*))
     /*
-     * STEP #4: Feature each minor dataset and apply SMOTE
-     * algorithm to resample with synthetic data rows.
-     * 
-     * The SMOTE algorithm requires a dissembled representation
-     * of the features, which results in additional columns like
-     * f_0, f_1, f_2, ...
+     * STEP #3: Apply the SMOTE algorithm to all minority labels
+     * in a single pass: each group holds the examples of a certain
+     * label, and its synthetic examples are generated from a KD-tree
+     * that is built by the task that processes the group. The groups
+     * are streamed, i.e. a task holds at most the (bounded) sample of
+     * a single label in memory
      */
-    val featurizer = new VectorFeaturizer().setFeaturesCol($(featuresCol))
-    val assembler = new VectorAssembler().setOutputCol($(featuresCol))
+    val k = $(numNearestNeighbors)
+    val maxSamples = $(maxSamplesPerClass)
+
+    val syntheticset = minorset
+      .groupByKey(row => row.getDouble(0))(Encoders.scalaDouble)
+      .flatMapGroups((label, rows) => 
+        SmoteBalancer.synthesize(label, rows, multipliers(label), k, maxSamples))(RowEncoder(sampleset.schema))
 
-    val synthetics = dist.map{case(label, fraction, multiplier) => {
-      /*
-       * Select a subset of the 'minor' dataset that refers to
-       * a certain minor label
-       */
-      val featurized = featurizer.transform(minorset.filter(col($(labelCol)) === label))
-      val featureCols = featurized.schema.fieldNames.filter(fname => fname.startsWith("f_")) 
-      /*
-       * Apply SMOTE algorithm and compute additional synthetic
-       * data records
-       */
-      val smote = Smote(
-          featurized, 
-          $(featuresCol), 
-          featureCols, 
-          Some($(bucketLength)),
-          $(numHashTables),
-          multiplier,
-          $(numNearestNeighbors))(featurized.sparkSession)
-      val synthetic = smote.syntheticSample.withColumn($(labelCol), lit(label))
-      /*
-       * The result of the SMOTE algorithm comprises the label 
-       * and the featureCols
-       */
-      assembler
-        .setInputCols(featureCols)
-        .transform(synthetic)
-        .drop(featureCols: _*)
-    }}
-    /*
-     * The result of the SMOTE algorithm comprises the label 
-     * and the featureCols
-     */
-    val syntheticset = synthetics.reduce(_ union _)
     sampleset.union(syntheticset)
 
   }
   
-  def minorFilter_udf(labels:List[Double]) = udf{label:Double => {
-    if (labels.contains(label)) true else false
-  }}
-  
   override def transformSchema(schema:StructType):StructType = {    
     schema    
   }
 
   override def copy(extra:ParamMap):SmoteBalancer = defaultCopy(extra)
   
-}
\ No newline at end of file
+}
+
+object SmoteBalancer {
+  /**
+   * The synthetic examples of a single minority label; the number of
+   * synthetic examples is the number of examples of the label, multiplied
+   * by the provided multiplier.
+   *
+   * The KD-tree is built from a uniform (reservoir) sample of at most
+   * maxSamples examples; for labels that exceed this bound, the synthetic
+   * examples are interpolated from the sampled examples in turn.
+   */
+  private[smote] def synthesize(label: Double, rows: Iterator[Row], multiplier: Int, 
+      k: Int, maxSamples: Int): Iterator[Row] = {
+
+    implicit val rand: Random = new Random()
+
+    val reservoir = ArrayBuffer.empty[Array[Double]]
+    var seen = 0L
+
+    rows.foreach(row => {
+      if (row.isNullAt(1) == false) {
+
+        val example = row.getSeq[Double](1).toArray
+        if (seen < maxSamples) reservoir += example
+
+        else {
+          val pos = (rand.nextDouble * (seen + 1)).toLong
+          if (pos < maxSamples) reservoir(pos.toInt) = example
+        }
+
+        seen += 1
+
+      }
+    })
+
+    if (seen == 0L) return Iterator.empty
+
+    val index = new KDTree(reservoir.toArray)
+    (0L until seen).iterator
+      .flatMap(base => Smote.synthesize(index, (base % index.size).toInt, k, multiplier))
+      .map(example => Row(label, example))
+
+  }
+
+}
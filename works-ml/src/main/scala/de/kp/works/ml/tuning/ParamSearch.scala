@@ -0,0 +1,204 @@
+package de.kp.works.ml.tuning
+
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ * 
+ */
+
+import java.util.{ArrayList => JArrayList, HashMap => JHashMap, List => JList, Map => JMap}
+import java.util.concurrent.{Callable, Executors}
+
+import scala.collection.JavaConverters._
+import scala.util.Random
+
+/**
+ * [ParamSearch] expands a search space over the (existing) parameters
+ * of a trainer into candidate parameter maps, and trains the candidate
+ * models concurrently.
+ * 
+ * The search space is specified as a semicolon separated list of 
+ * parameter specifications, e.g. 
+ * 
+ * 'maxDepth:3,5,7;numTrees:20,50' (value lists) or
+ * 'maxDepth:3..10;minInfoGain:0.0..0.1' (value ranges)
+ * 
+ * The data type of a parameter is derived from its default value.
+ * Grid search combines all values of all parameters; ranges are not
+ * supported for grids, and grids are restricted to MAX_GRID_SIZE
+ * candidates. Random search samples each parameter uniformly from its
+ * value list or range.
+ */
+object ParamSearch {
+
+  val GRID = "grid"
+  val RANDOM = "random"
+  /*
+   * The maximum number of candidates of a grid; each
+   * candidate trains and evaluates a separate model
+   */
+  val MAX_GRID_SIZE = 100
+  
+  private sealed trait Values
+  private case class ValueList(values:Seq[Object]) extends Values
+  private case class ValueRange(lower:Double, upper:Double) extends Values
+  
+  def candidates(defaults:JMap[String,Object], searchSpace:String, strategy:String, 
+      numCandidates:Int, seed:Long):JList[JMap[String,Object]] = {
+    
+    val space = parse(defaults, searchSpace)
+    val maps = strategy match {
+      case GRID => grid(defaults, space)
+      case RANDOM => random(defaults, space, numCandidates, seed)
+      case _ => throw new IllegalArgumentException(s"Search strategy '$strategy' is not supported.")
+    }
+    
+    new JArrayList[JMap[String,Object]](maps.asJava)
+    
+  }
+  
+  /**
+   * This method executes the provided training tasks with a bounded
+   * thread pool; each task submits its own Spark jobs, and Spark's
+   * scheduler runs the jobs of concurrent tasks in parallel. The 
+   * results are returned in the order of the tasks.
+   */
+  def run[T](tasks:JList[Callable[T]], parallelism:Int):JList[T] = {
+    
+    val executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, tasks.size)))
+    try {
+      
+      val futures = executor.invokeAll(tasks)
+      new JArrayList[T](futures.asScala.map(future => future.get).asJava)
+      
+    } finally {
+      executor.shutdownNow()
+    }
+    
+  }
+  
+  private def parse(defaults:JMap[String,Object], searchSpace:String):Seq[(String, Values)] = {
+    
+    searchSpace.split(";").map(_.trim).filter(_.nonEmpty).map(spec => {
+      
+      val tokens = spec.split(":", 2).map(_.trim)
+      if (tokens.length != 2)
+        throw new IllegalArgumentException(s"Parameter specification '$spec' is invalid.")
+      
+      val name = tokens(0)
+      if (defaults.containsKey(name) == false)
+        throw new IllegalArgumentException(s"Parameter '$name' is not supported by the selected algorithm.")
+      
+      val default = defaults.get(name)
+      val values = if (tokens(1).contains("..")) {
+        
+        if (default.isInstanceOf[String])
+          throw new IllegalArgumentException(s"Parameter '$name' does not support value ranges.")
+        
+        val bounds = tokens(1).split("\\.\\.", -1).map(_.trim)
+        if (bounds.length != 2 || bounds.exists(_.isEmpty))
+          throw new IllegalArgumentException(s"Value range '${tokens(1)}' of parameter '$name' must specify a lower and an upper bound.")
+        
+        val lower = bounds(0).toDouble
+        val upper = bounds(1).toDouble
+        
+        if (lower > upper)
+          throw new IllegalArgumentException(s"The lower bound of parameter '$name' must not exceed its upper bound.")
+        
+        ValueRange(lower, upper)
+        
+      } else {
+        ValueList(tokens(1).split(",").map(_.trim).map(value => cast(default, value)))
+      }
+      
+      (name, values)
+      
+    })
+    
+  }
+
+  private def grid(defaults:JMap[String,Object], space:Seq[(String, Values)]):Seq[JMap[String,Object]] = {
+    /*
+     * The size of the grid is checked before it is expanded
+     */
+    val size = space.map{
+      case(_, ValueList(items)) => BigInt(items.size)
+      case _ => BigInt(1)
+    }.product
+    
+    if (size > MAX_GRID_SIZE)
+      throw new IllegalArgumentException(s"The search grid comprises $size candidates, but at most $MAX_GRID_SIZE are supported. "
+        + "Please reduce the search space or use the random search strategy.")
+    
+    space.foldLeft(Seq(new JHashMap[String,Object](defaults):JMap[String,Object]))((maps, param) => {
+      
+      val (name, values) = param
+      values match {
+        case ValueList(items) => maps.flatMap(map => items.map(item => {
+          
+          val params = new JHashMap[String,Object](map)
+          params.put(name, item)
+          
+          params:JMap[String,Object]
+          
+        }))
+        case _ => throw new IllegalArgumentException(s"Grid search requires a list of values for parameter '$name'.")
+      }
+      
+    })
+    
+  }
+  
+  private def random(defaults:JMap[String,Object], space:Seq[(String, Values)], 
+      numCandidates:Int, seed:Long):Seq[JMap[String,Object]] = {
+    
+    val rand = new Random(seed)
+    (0 until numCandidates).map(_ => {
+      
+      val params = new JHashMap[String,Object](defaults)
+      space.foreach{case(name, values) => {
+        
+        val value = values match {
+          case ValueList(items) => items(rand.nextInt(items.size))
+          case ValueRange(lower, upper) => defaults.get(name) match {
+            case _:java.lang.Integer =>
+              Integer.valueOf(lower.toInt + rand.nextInt(upper.toInt - lower.toInt + 1))
+            case _ =>
+              java.lang.Double.valueOf(lower + rand.nextDouble * (upper - lower))
+          }
+        }
+        
+        params.put(name, value)
+        
+      }}
+      
+      params:JMap[String,Object]
+      
+    })
+    
+  }
+  
+  private def cast(default:Object, value:String):Object = {
+    
+    default match {
+      case _:java.lang.Integer => Integer.valueOf(value)
+      case _:java.lang.Double => java.lang.Double.valueOf(value)
+      case _ => value
+    }
+    
+  }
+  
+}
@@ -23,7 +23,7 @@ object LSHUtil {
   /* Based on https://spark.apache.org/docs/latest/api/scala/#org.apache.spark.ml.feature.BucketedRandomProjectionLSH */
 
   def bucketLength(numRecords: Long, numDimensions: Long): Double = {
-    10 * Math.pow(numRecords, -1 / numDimensions)
+    10 * Math.pow(numRecords, -1.0 / numDimensions)
   }
   
 }
\ No newline at end of file
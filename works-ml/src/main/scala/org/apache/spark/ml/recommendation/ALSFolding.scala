@@ -0,0 +1,213 @@
+package org.apache.spark.ml.recommendation
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import org.apache.spark.ml.recommendation.ALS.{CholeskySolver, LeastSquaresNESolver, NNLSSolver, NormalEquation}
+import org.apache.spark.rdd.RDD
+
+import org.apache.spark.sql._
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+
+import org.apache.spark.storage.StorageLevel
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * [ALSFolding] folds new (or changed) users and items into a trained
+ * ALS model without retraining the factorization.
+ *
+ * The factors of a user are the solution of the least squares problem
+ * (normal equation) of its interactions against the fixed item factors,
+ * and vice versa. This is a single half-step of the alternating least
+ * squares algorithm, restricted to the users and items of the provided
+ * interactions; its cost scales with the number of these interactions,
+ * and not with the whole history.
+ *
+ * Users are solved first against the item factors of the model; items are
+ * solved afterwards against the updated user factors. The normal equations
+ * and their solvers are those of Apache Spark's ALS, with the same handling
+ * of explicit and implicit feedback, regularization and nonnegativity.
+ *
+ * The interactions and the solved factors are persisted, as the factors of
+ * the folded model are evaluated lazily; they must be released by the caller
+ * with [unpersist] after the folded model has been evaluated and tracked.
+ */
+class ALSFolding {
+
+  import ALSFolding._
+
+  private val persisted = ArrayBuffer.empty[RDD[_]]
+
+  /**
+   * @param ratings  The interactions of the users and items to fold in;
+   *                 for a user (item) that is solved, its interactions
+   *                 must be complete, as they define its factors
+   * @param onlyNew  Indicator to determine whether only users and items
+   *                 without factors are solved, or all users and items
+   *                 of the interactions
+   */
+  def foldIn(model: ALSModel, ratings: Dataset[Row], userCol: String, itemCol: String, ratingCol: String,
+      regParam: Double, implicitPrefs: Boolean, alpha: Double, nonnegative: Boolean, onlyNew: Boolean): ALSModel = {
+
+    val session = ratings.sparkSession
+    val rank = model.rank
+
+    val interactions = ratings
+      .select(col(userCol).cast(IntegerType), col(itemCol).cast(IntegerType), col(ratingCol).cast(FloatType)).rdd
+      .filter(row => row.isNullAt(0) == false && row.isNullAt(1) == false && row.isNullAt(2) == false)
+      .map(row => (row.getInt(0), row.getInt(1), row.getFloat(2)))
+
+    persist(interactions)
+
+    val params = FoldParams(rank, regParam, implicitPrefs, alpha, nonnegative)
+    /*
+     * STEP #1: Solve the users against the fixed item factors
+     */
+    val userFactors = solve(
+        interactions.map{case(user, item, rating) => (user, (item, rating))},
+        factors(model.itemFactors), factors(model.userFactors), params, onlyNew)
+
+    persist(userFactors)
+    /*
+     * STEP #2: Solve the items against the updated user factors
+     */
+    val itemFactors = solve(
+        interactions.map{case(user, item, rating) => (item, (user, rating))},
+        userFactors, factors(model.itemFactors), params, onlyNew)
+
+    persist(itemFactors)
+
+    new ALSModel(model.uid, rank, toDF(session, userFactors), toDF(session, itemFactors))
+      .setUserCol(model.getUserCol)
+      .setItemCol(model.getItemCol)
+      .setPredictionCol(model.getPredictionCol)
+
+  }
+
+  /**
+   * Releases the interactions and factors that have been
+   * persisted by the fold-in of this instance
+   */
+  def unpersist(): Unit = {
+
+    persisted.foreach(rdd => rdd.unpersist(blocking = false))
+    persisted.clear()
+
+  }
+
+  private def persist(rdd: RDD[_]): Unit = {
+
+    rdd.persist(StorageLevel.MEMORY_AND_DISK)
+    persisted += rdd
+
+  }
+
+}
+
+object ALSFolding {
+
+  private val ID_COL = "id"
+  private val FEATURES_COL = "features"
+
+  private case class FoldParams(rank: Int, regParam: Double, implicitPrefs: Boolean, alpha: Double, nonnegative: Boolean)
+
+  /*
+   * Solves the destination factors of the provided (destination keyed)
+   * interactions against the fixed source factors; the result comprises
+   * the solved and all remaining destination factors
+   */
+  private def solve(interactions: RDD[(Int, (Int, Float))], srcFactors: RDD[(Int, Array[Float])],
+      dstFactors: RDD[(Int, Array[Float])], params: FoldParams, onlyNew: Boolean): RDD[(Int, Array[Float])] = {
+
+    val rank = params.rank
+    val candidates = if (onlyNew) interactions.subtractByKey(dstFactors) else interactions
+    /*
+     * For implicit feedback, the normal equation of each destination
+     * comprises the Gramian of all source factors
+     */
+    val YtY =
+      if (params.implicitPrefs) {
+        val gramian = srcFactors.aggregate(new NormalEquation(rank))(
+          (ne, factors) => ne.add(factors._2, 0.0), (ne1, ne2) => ne1.merge(ne2))
+        Some(interactions.sparkContext.broadcast(gramian))
+      }
+      else None
+    /*
+     * Build the normal equation of each destination from the
+     * source factors of its interactions; interactions with
+     * sources without factors are ignored
+     */
+    val equations = candidates
+      .map{case(dst, (src, rating)) => (src, (dst, rating))}
+      .join(srcFactors)
+      .map{case(_, ((dst, rating), factors)) => (dst, (factors, rating))}
+      .aggregateByKey((new NormalEquation(rank), 0))(
+        seqOp = {case((ne, numExplicits), (factors, rating)) =>
+
+          if (params.implicitPrefs) {
+            /*
+             * The confidence is a function of the absolute rating;
+             * the preference is 1 for positive ratings, and 0 else
+             */
+            val c1 = params.alpha * math.abs(rating)
+            ne.add(factors, if (rating > 0.0) 1.0 + c1 else 0.0, c1)
+
+            (ne, if (rating > 0.0) numExplicits + 1 else numExplicits)
+
+          } else {
+
+            ne.add(factors, rating)
+            (ne, numExplicits + 1)
+
+          }
+
+        },
+        combOp = {case((ne1, num1), (ne2, num2)) => (ne1.merge(ne2), num1 + num2)})
+
+    val solved = equations.mapPartitions(iter => {
+
+      val solver: LeastSquaresNESolver = if (params.nonnegative) new NNLSSolver else new CholeskySolver
+      iter.map{case(dst, (ne, numExplicits)) =>
+
+        YtY.foreach(gramian => ne.merge(gramian.value))
+        (dst, solver.solve(ne, numExplicits * params.regParam))
+
+      }
+
+    })
+
+    dstFactors.subtractByKey(solved).union(solved)
+
+  }
+
+  private def factors(dataset: DataFrame): RDD[(Int, Array[Float])] =
+    dataset.select(ID_COL, FEATURES_COL).rdd.map(row => (row.getInt(0), row.getSeq[Float](1).toArray))
+
+  private def toDF(session: SparkSession, factors: RDD[(Int, Array[Float])]): DataFrame = {
+
+    val schema = StructType(Array(
+      StructField(ID_COL, IntegerType, nullable = false),
+      StructField(FEATURES_COL, ArrayType(FloatType, containsNull = false), nullable = true)))
+
+    session.createDataFrame(factors.map{case(id, values) => Row(id, values.toSeq)}, schema)
+
+  }
+
+}
@@ -0,0 +1,443 @@
+package org.apache.spark.ml.tree
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import org.apache.spark.broadcast.Broadcast
+
+import org.apache.spark.ml.classification._
+import org.apache.spark.ml.regression._
+
+import org.apache.spark.sql._
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.{Expression, UnaryExpression}
+import org.apache.spark.sql.catalyst.expressions.codegen.CodegenFallback
+import org.apache.spark.sql.catalyst.util.ArrayData
+import org.apache.spark.sql.functions._
+import org.apache.spark.sql.types._
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * The [TreeScorer] compiles a trained decision tree, random forest or
+ * gradient-boosted tree model once into flat primitive arrays, and scores
+ * feature vectors with a tight loop over these arrays.
+ *
+ * The nodes of each tree are laid out contiguously in pre-order; a node
+ * either is a leaf (feature index -1) or a continuous or categorical split.
+ * Scoring operates on Spark's internal vector format, i.e. the features are
+ * read from the (unsafe) values array without deserializing a Vector, and
+ * replicates the arithmetic of the Spark models to produce the very same
+ * predictions.
+ */
+class TreeScorer private (
+  /* The scoring mode, see object TreeScorer */
+  val mode: Int,
+  val numClasses: Int,
+  /* The root node of each tree */
+  roots: Array[Int],
+  treeWeights: Array[Double],
+  /* Node layout */
+  featureIndex: Array[Int],
+  threshold: Array[Double],
+  leftChild: Array[Int],
+  rightChild: Array[Int],
+  /* Categorical splits: index into the category sets, -1 for continuous splits */
+  categorySet: Array[Int],
+  categories: Array[Array[Double]],
+  categoriesLeft: Array[Boolean],
+  /* Leaf values: the prediction and, for classifiers, the class contributions */
+  leafValue: Array[Double],
+  leafVotes: Array[Double],
+  thresholds: Array[Double]) extends Serializable {
+
+  def numTrees: Int = roots.length
+
+  def numNodes: Int = featureIndex.length
+
+  /**
+   * This method adds the prediction column to the provided dataset;
+   * the compiled model is broadcast once per invocation
+   */
+  def transform(dataset: Dataset[Row], featuresCol: String, predictionCol: String): Dataset[Row] = {
+
+    val scorer = dataset.sparkSession.sparkContext.broadcast(this)
+    dataset.withColumn(predictionCol, new Column(TreeScore(col(featuresCol).expr, scorer)))
+
+  }
+
+  /**
+   * The prediction of a feature vector in Spark's internal format,
+   * i.e. a row of type (Byte), size (Int), indices (Array[Int]) and
+   * values (Array[Double])
+   */
+  def predict(vector: InternalRow): Double = {
+
+    val values = vector.getArray(3)
+    /* Dense vectors are identified by type 1 and have no indices */
+    val indices = if (vector.getByte(0) == 1) null else vector.getArray(2)
+
+    mode match {
+      case TreeScorer.DECISION_TREE_REGRESSOR =>
+        leafValue(leaf(roots(0), indices, values))
+
+      case TreeScorer.RANDOM_FOREST_REGRESSOR =>
+        var sum = 0.0
+        var t = 0
+        while (t < roots.length) {
+          sum += leafValue(leaf(roots(t), indices, values))
+          t += 1
+        }
+        sum / roots.length
+
+      case TreeScorer.GRADIENT_BOOSTED_REGRESSOR =>
+        weighted(indices, values)
+
+      case TreeScorer.GRADIENT_BOOSTED_CLASSIFIER =>
+        if (weighted(indices, values) > 0.0) 1.0 else 0.0
+
+      case _ =>
+        /*
+         * Decision tree and random forest classifiers: the class with
+         * the most votes is predicted; with thresholds, the votes are
+         * normalized to probabilities, and the class with the highest
+         * scaled probability is predicted, as Spark does
+         */
+        val votes = new Array[Double](numClasses)
+        var t = 0
+        while (t < roots.length) {
+
+          val offset = leaf(roots(t), indices, values) * numClasses
+          var i = 0
+          while (i < numClasses) {
+            votes(i) += leafVotes(offset + i)
+            i += 1
+          }
+
+          t += 1
+        }
+
+        if (thresholds != null) {
+
+          val sum = votes.sum
+          var i = 0
+          while (i < numClasses) {
+            val probability = if (sum != 0) votes(i) / sum else votes(i)
+            votes(i) = if (thresholds(i) == 0.0) Double.PositiveInfinity else probability / thresholds(i)
+            i += 1
+          }
+
+        }
+
+        argmax(votes)
+
+    }
+
+  }
+
+  /*
+   * The sum of the weighted tree predictions; the summation order
+   * equals the (sequential) dot product of the Spark model
+   */
+  private def weighted(indices: ArrayData, values: ArrayData): Double = {
+
+    var sum = 0.0
+    var t = 0
+    while (t < roots.length) {
+      sum += leafValue(leaf(roots(t), indices, values)) * treeWeights(t)
+      t += 1
+    }
+
+    sum
+
+  }
+
+  private def leaf(root: Int, indices: ArrayData, values: ArrayData): Int = {
+
+    var node = root
+    while (featureIndex(node) >= 0) {
+
+      val value = feature(featureIndex(node), indices, values)
+      val set = categorySet(node)
+
+      val goLeft =
+        if (set < 0) value <= threshold(node)
+        else {
+          val contains = categories(set).contains(value)
+          if (categoriesLeft(set)) contains else contains == false
+        }
+
+      node = if (goLeft) leftChild(node) else rightChild(node)
+
+    }
+
+    node
+
+  }
+
+  private def feature(index: Int, indices: ArrayData, values: ArrayData): Double = {
+
+    if (indices == null) return values.getDouble(index)
+    /* Binary search within the active elements of a sparse vector */
+    var lo = 0
+    var hi = indices.numElements - 1
+
+    while (lo <= hi) {
+
+      val mid = (lo + hi) >>> 1
+      val midIndex = indices.getInt(mid)
+
+      if (midIndex < index) lo = mid + 1
+      else if (midIndex > index) hi = mid - 1
+      else return values.getDouble(mid)
+
+    }
+
+    0.0
+
+  }
+
+  private def argmax(values: Array[Double]): Double = {
+
+    var maxIdx = 0
+    var maxValue = values(0)
+
+    var i = 1
+    while (i < values.length) {
+      if (values(i) > maxValue) {
+        maxIdx = i
+        maxValue = values(i)
+      }
+      i += 1
+    }
+
+    maxIdx.toDouble
+
+  }
+
+}
+
+object TreeScorer {
+
+  val DECISION_TREE_CLASSIFIER = 0
+  val DECISION_TREE_REGRESSOR = 1
+  val RANDOM_FOREST_CLASSIFIER = 2
+  val RANDOM_FOREST_REGRESSOR = 3
+  val GRADIENT_BOOSTED_CLASSIFIER = 4
+  val GRADIENT_BOOSTED_REGRESSOR = 5
+
+  def compile(model: DecisionTreeClassificationModel): TreeScorer =
+    build(DECISION_TREE_CLASSIFIER, Array(model.rootNode), null, model.numClasses, getThresholds(model), normalize = false)
+
+  def compile(model: DecisionTreeRegressionModel): TreeScorer =
+    build(DECISION_TREE_REGRESSOR, Array(model.rootNode), null, 0, null, normalize = false)
+
+  def compile(model: RandomForestClassificationModel): TreeScorer =
+    build(RANDOM_FOREST_CLASSIFIER, model.trees.map(_.rootNode), null, model.numClasses, getThresholds(model), normalize = true)
+
+  def compile(model: RandomForestRegressionModel): TreeScorer =
+    build(RANDOM_FOREST_REGRESSOR, model.trees.map(_.rootNode), null, 0, null, normalize = false)
+
+  def compile(model: GBTClassificationModel): TreeScorer =
+    build(GRADIENT_BOOSTED_CLASSIFIER, model.trees.map(_.rootNode), model.treeWeights, 0, null, normalize = false)
+
+  def compile(model: GBTRegressionModel): TreeScorer =
+    build(GRADIENT_BOOSTED_REGRESSOR, model.trees.map(_.rootNode), model.treeWeights, 0, null, normalize = false)
+
+  private def getThresholds(model: ProbabilisticClassificationModel[_, _]): Array[Double] =
+    if (model.isDefined(model.thresholds)) model.getThresholds else null
+
+  private def build(mode: Int, trees: Array[Node], treeWeights: Array[Double], numClasses: Int,
+      thresholds: Array[Double], normalize: Boolean): TreeScorer = {
+
+    val roots = new Array[Int](trees.length)
+
+    val featureIndex = ArrayBuffer.empty[Int]
+    val threshold = ArrayBuffer.empty[Double]
+    val leftChild = ArrayBuffer.empty[Int]
+    val rightChild = ArrayBuffer.empty[Int]
+
+    val categorySet = ArrayBuffer.empty[Int]
+    val categories = ArrayBuffer.empty[Array[Double]]
+    val categoriesLeft = ArrayBuffer.empty[Boolean]
+
+    val leafValue = ArrayBuffer.empty[Double]
+    val leafVotes = ArrayBuffer.empty[Double]
+
+    /* Appends a node and its subtree in pre-order and returns its position */
+    def append(node: Node): Int = {
+
+      val pos = featureIndex.size
+
+      featureIndex += -1
+      threshold += 0.0
+      leftChild += -1
+      rightChild += -1
+      categorySet += -1
+      leafValue += node.prediction
+
+      if (numClasses > 0) {
+        /*
+         * The class contributions of a leaf: the raw class counts for a single
+         * tree, and the class counts normalized per tree for a random forest
+         */
+        val counts = node.impurityStats.stats
+        val total = counts.sum
+
+        (0 until numClasses).foreach(i =>
+          leafVotes += (if (normalize == false) counts(i) else if (total != 0) counts(i) / total else 0.0))
+
+      }
+
+      node match {
+        case internal: InternalNode =>
+
+          featureIndex(pos) = internal.split.featureIndex
+          internal.split match {
+            case split: ContinuousSplit =>
+              threshold(pos) = split.threshold
+
+            case split: CategoricalSplit =>
+              /*
+               * A categorical split holds the smaller one of its category
+               * sets; this is replicated, as it determines the direction
+               * of values that are not within the known categories
+               */
+              val isLeft = split.leftCategories.length <= split.numCategories / 2
+
+              categorySet(pos) = categories.size
+              categories += (if (isLeft) split.leftCategories else split.rightCategories)
+              categoriesLeft += isLeft
+          }
+
+          leftChild(pos) = append(internal.leftChild)
+          rightChild(pos) = append(internal.rightChild)
+
+        case _ =>
+      }
+
+      pos
+
+    }
+
+    trees.indices.foreach(t => roots(t) = append(trees(t)))
+
+    new TreeScorer(mode, numClasses, roots, treeWeights, featureIndex.toArray, threshold.toArray,
+      leftChild.toArray, rightChild.toArray, categorySet.toArray, categories.toArray, categoriesLeft.toArray,
+      leafValue.toArray, leafVotes.toArray, thresholds)
+
+  }
+
+}
+
+case class TreeScore(child: Expression, scorer: Broadcast[TreeScorer]) extends UnaryExpression with CodegenFallback {
+
+  override def dataType: DataType = DoubleType
+
+  override protected def nullSafeEval(input: Any): Any = {
+    scorer.value.predict(input.asInstanceOf[InternalRow])
+  }
+
+  override def prettyName: String = "tree_score"
+
+}
+
+/**
+ * A throughput benchmark that compares the compiled scorer with
+ * the transformation of the Spark model; it also verifies that both
+ * produce the same predictions.
+ */
+object TreeScorerBenchmark {
+
+  def main(args: Array[String]) {
+
+    val session = SparkSession.builder
+      .appName("TreeScorerBenchmark")
+      .master("local[*]")
+      .getOrCreate()
+
+    import org.apache.spark.ml.linalg.{Vector, Vectors}
+
+    val numRows = if (args.length > 0) args(0).toInt else 1000000
+    val numFeatures = if (args.length > 1) args(1).toInt else 50
+    val numTrees = if (args.length > 2) args(2).toInt else 100
+
+    val features_udf = udf { seed: Long =>
+      val random = new scala.util.Random(seed)
+      Vectors.dense(Array.fill(numFeatures)(random.nextDouble))
+    }
+
+    val label_udf = udf { features: Vector => if (features(0) + features(1) > 1.0) 1.0 else 0.0 }
+
+    val dataset = session.range(numRows)
+      .withColumn("features", features_udf(col("id")))
+      .withColumn("label", label_udf(col("features")))
+      .cache
+
+    dataset.count
+
+    val trainset = dataset.limit(10000)
+
+    val classifier = new RandomForestClassifier().setNumTrees(numTrees).setMaxDepth(8).fit(trainset)
+    val regressor = new GBTRegressor().setMaxIter(numTrees).setMaxDepth(5).fit(trainset)
+
+    def measure(name: String, scored: Dataset[Row]): Unit = {
+
+      val start = System.currentTimeMillis
+      scored.agg(sum(col("_prediction"))).collect
+
+      println(s"$name: ${System.currentTimeMillis - start} ms")
+
+    }
+
+    def verify(name: String, expected: Dataset[Row], actual: Dataset[Row]): Unit = {
+
+      val mismatches = expected.select(col("id"), col("_prediction").as("_expected"))
+        .join(actual.select(col("id"), col("_prediction").as("_actual")), "id")
+        .filter(col("_expected") =!= col("_actual")).count
+
+      println(s"$name: $mismatches mismatches")
+
+    }
+
+    val rfc = TreeScorer.compile(classifier)
+    val gbr = TreeScorer.compile(regressor)
+
+    val rfcSpark = classifier.setPredictionCol("_prediction").transform(dataset)
+    val rfcCompiled = rfc.transform(dataset, "features", "_prediction")
+
+    val gbrSpark = regressor.setPredictionCol("_prediction").transform(dataset)
+    val gbrCompiled = gbr.transform(dataset, "features", "_prediction")
+
+    /* Warm up */
+    rfcCompiled.count
+    gbrCompiled.count
+
+    measure("random forest classifier (spark)", rfcSpark)
+    measure("random forest classifier (compiled)", rfcCompiled)
+
+    measure("gradient boosted regressor (spark)", gbrSpark)
+    measure("gradient boosted regressor (compiled)", gbrCompiled)
+
+    verify("random forest classifier", rfcSpark, rfcCompiled)
+    verify("gradient boosted regressor", gbrSpark, gbrCompiled)
+
+    session.stop
+
+  }
+}
@@ -0,0 +1,422 @@
+package org.apache.spark.mllib.clustering
+/*
+ * Copyright (c) 2019 Dr. Krusche & Partner PartG. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @author Stefan Krusche, Dr. Krusche & Partner PartG
+ *
+ */
+
+import com.github.fommil.netlib.BLAS.{getInstance => blas}
+
+import org.apache.hadoop.fs.Path
+
+import org.apache.spark.ml.clustering.KMeansModel
+import org.apache.spark.ml.linalg.{DenseVector, SparseVector, Vector}
+
+import org.apache.spark.sql._
+import org.apache.spark.sql.types._
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * The [CenterScorer] assigns feature vectors to the nearest center of a
+ * trained KMeans or Bisecting KMeans model, and also provides the distance
+ * to this center, e.g. for anomaly scoring.
+ *
+ * The centers are compiled into a single contiguous matrix with precomputed
+ * squared norms, organized as a tree: the children of a node are the centers
+ * a vector is assigned to in a single step. A KMeans model is a tree with
+ * a single level, a Bisecting KMeans model is its (binary) bisecting tree,
+ * where each vector descends to the closer child, as Spark does.
+ *
+ * The squared distances are computed as |x|^2 - 2 x.c + |c|^2:
+ *
+ * (1) Dense vectors are scored in blocks of rows; the inner products of a
+ *     block with all centers are computed with a single matrix product
+ *     (native BLAS).
+ *
+ * (2) Sparse vectors are scored row by row; centers are skipped, if the
+ *     triangle inequality (with the pairwise center distances) or the norm
+ *     difference proves that they cannot be closer than the current best.
+ *     The pairwise center distances are computed on the first sparse vector,
+ *     i.e. never for dense input.
+ */
+class CenterScorer private (
+  val dim: Int,
+  /* The centers of all nodes, each center is contiguous */
+  centers: Array[Double],
+  norms: Array[Double],
+  /* The children of each node; node 0 is the root */
+  childStart: Array[Int],
+  childCount: Array[Int],
+  children: Array[Int],
+  /* The cluster index of leaf nodes, -1 for internal nodes */
+  leafIndex: Array[Int]) extends Serializable {
+
+  def numNodes: Int = leafIndex.length
+  /*
+   * The start of the pairwise half distances of the children
+   * of each node, or -1, if the number of children is too large
+   */
+  @transient private lazy val pairStart: Array[Int] = {
+
+    val starts = Array.fill(numNodes)(-1)
+
+    var offset = 0
+    var node = 0
+    while (node < numNodes) {
+
+      val count = childCount(node)
+      if (count > 1 && count <= CenterScorer.MAX_PAIRS) {
+        starts(node) = offset
+        offset += count * count
+      }
+
+      node += 1
+    }
+
+    starts
+
+  }
+
+  @transient private lazy val halfDistances: Array[Double] = {
+
+    val size = (0 until numNodes).filter(node => pairStart(node) >= 0).map(node => childCount(node) * childCount(node)).sum
+    val distances = new Array[Double](size)
+
+    var node = 0
+    while (node < numNodes) {
+
+      val start = pairStart(node)
+      if (start >= 0) {
+
+        val count = childCount(node)
+        var a = 0
+        while (a < count) {
+
+          val baseA = children(childStart(node) + a) * dim
+          var b = 0
+          while (b < count) {
+
+            val baseB = children(childStart(node) + b) * dim
+
+            var sum = 0.0
+            var i = 0
+            while (i < dim) {
+              val diff = centers(baseA + i) - centers(baseB + i)
+              sum += diff * diff
+              i += 1
+            }
+
+            distances(start + a * count + b) = 0.5 * Math.sqrt(sum)
+            b += 1
+          }
+
+          a += 1
+        }
+
+      }
+
+      node += 1
+    }
+
+    distances
+
+  }
+
+  /**
+   * This method adds the prediction (cluster index) and distance column to
+   * the provided dataset; the compiled model is broadcast once per invocation
+   */
+  def transform(dataset: Dataset[Row], featuresCol: String, predictionCol: String, distanceCol: String): DataFrame = {
+
+    val scorer = dataset.sparkSession.sparkContext.broadcast(this)
+
+    val index = dataset.schema.fieldIndex(featuresCol)
+    val schema = dataset.schema
+      .add(StructField(predictionCol, DoubleType, nullable = false))
+      .add(StructField(distanceCol, DoubleType, nullable = false))
+
+    val rows = dataset.rdd.mapPartitions(iter => {
+
+      val model = scorer.value
+      iter.grouped(CenterScorer.BLOCK_SIZE).flatMap(block => model.score(block, index))
+
+    })
+
+    dataset.sparkSession.createDataFrame(rows, schema)
+
+  }
+
+  private def score(block: Seq[Row], index: Int): Seq[Row] = {
+
+    val vectors = block.map(row => row.getAs[Vector](index))
+    /*
+     * STEP #1: Compute the inner products of the dense
+     * vectors of this block with all centers at once
+     */
+    val dense = vectors.indices.filter(i => vectors(i).isInstanceOf[DenseVector]).toArray
+    val offsets = new Array[Int](vectors.length)
+
+    val dots =
+      if (dense.isEmpty) null
+      else {
+
+        val matrix = new Array[Double](dense.length * dim)
+        var i = 0
+        while (i < dense.length) {
+
+          val values = vectors(dense(i)).asInstanceOf[DenseVector].values
+          System.arraycopy(values, 0, matrix, i * dim, dim)
+
+          offsets(dense(i)) = i * numNodes
+          i += 1
+
+        }
+        /*
+         * dots (nodes x rows) = centers^T (nodes x dim) * matrix (dim x rows)
+         */
+        val result = new Array[Double](numNodes * dense.length)
+        blas.dgemm("T", "N", numNodes, dense.length, dim, 1.0, centers, dim, matrix, dim, 0.0, result, numNodes)
+
+        result
+
+      }
+    /*
+     * STEP #2: Descend from the root to the nearest leaf
+     */
+    block.indices.map(i => {
+
+      val vector = vectors(i)
+      val isDense = vector.isInstanceOf[DenseVector]
+
+      val (leaf, distance) = descend(vector, if (isDense) dots else null, offsets(i))
+      Row.fromSeq(block(i).toSeq :+ leafIndex(leaf).toDouble :+ Math.sqrt(distance))
+
+    })
+
+  }
+
+  /*
+   * Returns the nearest leaf node and its squared distance; the inner
+   * products are either provided (dense) or computed on demand (sparse)
+   */
+  private def descend(vector: Vector, dots: Array[Double], offset: Int): (Int, Double) = {
+
+    val norm2 = squaredNorm(vector)
+    val norm = Math.sqrt(norm2)
+
+    var node = 0
+    var distance = 0.0
+
+    while (leafIndex(node) < 0) {
+
+      val start = childStart(node)
+      val count = childCount(node)
+
+      var best = 0
+      var bestNode = children(start)
+      var bestDistance = squaredDistance(vector, norm2, bestNode, dots, offset)
+
+      var j = 1
+      while (j < count) {
+
+        val child = children(start + j)
+        /*
+         * Triangle inequality: if the distance between the centers
+         * is at least twice the current best distance, the child
+         * cannot be closer; the norm difference is a lower bound of
+         * the distance. Both bounds only apply to computed distances
+         */
+        val pruned = dots == null && {
+
+          val pairs = pairStart(node)
+          val half = if (pairs < 0) 0.0 else halfDistances(pairs + best * count + j)
+          val lower = norm - Math.sqrt(norms(child))
+
+          half * half >= bestDistance || lower * lower >= bestDistance
+
+        }
+
+        if (pruned == false) {
+
+          val candidate = squaredDistance(vector, norm2, child, dots, offset)
+          if (candidate < bestDistance) {
+            best = j
+            bestNode = child
+            bestDistance = candidate
+          }
+
+        }
+
+        j += 1
+      }
+
+      node = bestNode
+      distance = bestDistance
+
+    }
+
+    (node, distance)
+
+  }
+
+  private def squaredDistance(vector: Vector, norm2: Double, node: Int, dots: Array[Double], offset: Int): Double = {
+
+    val dot = if (dots != null) dots(offset + node) else this.dot(vector, node)
+    Math.max(0.0, norm2 - 2.0 * dot + norms(node))
+
+  }
+
+  private def dot(vector: Vector, node: Int): Double = {
+
+    val base = node * dim
+    var sum = 0.0
+
+    vector match {
+      case sparse: SparseVector =>
+        val indices = sparse.indices
+        val values = sparse.values
+
+        var i = 0
+        while (i < indices.length) {
+          sum += values(i) * centers(base + indices(i))
+          i += 1
+        }
+
+      case _ =>
+        val values = vector.toArray
+
+        var i = 0
+        while (i < dim) {
+          sum += values(i) * centers(base + i)
+          i += 1
+        }
+    }
+
+    sum
+
+  }
+
+  private def squaredNorm(vector: Vector): Double = {
+
+    val values = vector match {
+      case sparse: SparseVector => sparse.values
+      case dense: DenseVector => dense.values
+      case _ => vector.toArray
+    }
+
+    var sum = 0.0
+    var i = 0
+    while (i < values.length) {
+      sum += values(i) * values(i)
+      i += 1
+    }
+
+    sum
+
+  }
+
+}
+
+object CenterScorer {
+  /*
+   * The number of rows of a block; the inner products of
+   * a block with all centers are computed at once
+   */
+  val BLOCK_SIZE = 256
+  /*
+   * The maximum number of children of a node, for which the
+   * pairwise center distances are computed
+   */
+  val MAX_PAIRS = 256
+
+  /**
+   * A KMeans model is compiled into a root with the
+   * cluster centers as its (leaf) children
+   */
+  def compile(model: KMeansModel): CenterScorer = {
+
+    val centers = model.clusterCenters
+    val k = centers.length
+
+    val nodes = Array.fill[Array[Double]](1)(new Array[Double](centers.head.size)) ++ centers.map(_.toArray)
+    val leafIndex = Array(-1) ++ (0 until k)
+
+    build(nodes, Array(Array.range(1, k + 1)) ++ Array.fill(k)(Array.empty[Int]), leafIndex.toArray)
+
+  }
+
+  /**
+   * A Bisecting KMeans model is compiled from its bisecting tree; the tree is
+   * read from the persisted model, i.e. from the data of the underlying model
+   */
+  def compileBisecting(modelPath: String): CenterScorer = {
+
+    val session = SparkSession.builder.getOrCreate
+    val model = BisectingKMeansModel.load(session.sparkContext, new Path(modelPath, "data").toString)
+    /*
+     * Assign node identifiers in breadth-first order,
+     * starting with the root node
+     */
+    val treeNodes = ArrayBuffer(model.root)
+
+    var i = 0
+    while (i < treeNodes.length) {
+      treeNodes ++= treeNodes(i).children
+      i += 1
+    }
+
+    val ids = treeNodes.zipWithIndex.map{case(node, id) => (node, id)}.toMap
+
+    val nodes = treeNodes.map(node => node.center.toArray).toArray
+    val children = treeNodes.map(node => node.children.map(child => ids(child))).toArray
+
+    val leafIndex = treeNodes.map(node => if (node.isLeaf) node.index else -1).toArray
+    build(nodes, children, leafIndex)
+
+  }
+
+  private def build(nodes: Array[Array[Double]], children: Array[Array[Int]], leafIndex: Array[Int]): CenterScorer = {
+
+    val numNodes = nodes.length
+    val dim = nodes.head.length
+
+    val centers = new Array[Double](numNodes * dim)
+    val norms = new Array[Double](numNodes)
+
+    nodes.indices.foreach(n => {
+      System.arraycopy(nodes(n), 0, centers, n * dim, dim)
+      norms(n) = nodes(n).map(v => v * v).sum
+    })
+
+    val childStart = new Array[Int](numNodes)
+    val childCount = new Array[Int](numNodes)
+
+    var offset = 0
+    nodes.indices.foreach(n => {
+
+      childStart(n) = offset
+      childCount(n) = children(n).length
+
+      offset += children(n).length
+
+    })
+
+    new CenterScorer(dim, centers, norms, childStart, childCount, children.flatten, leafIndex)
+
+  }
+
+}
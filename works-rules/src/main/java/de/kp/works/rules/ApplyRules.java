@@ -104,21 +104,24 @@ public class ApplyRules extends SparkCompute<StructuredRecord, StructuredRecord>
 	public JavaRDD<StructuredRecord> transform(SparkExecutionPluginContext context, JavaRDD<StructuredRecord> input)
 			throws Exception {
 		/*
-		 * This is an initial step, that checks whether the input
-		 * is empty, and, if this is the case returns the input
-		 */
-		if (input.isEmpty()) {
-			return input;
-		}
-		/*
-		 * Next, we need a schema to compute the incoming dataset;
-		 * the schema can either be explicitly provided or is derived
-		 * from the first incoming data record
+		 * We need a schema to validate the incoming dataset; the schema
+		 * can either be explicitly provided or is derived from the first
+		 * incoming data record. An empty input is not checked upfront:
+		 * with a known schema, it results in an empty output
 		 */
 		Schema inputSchema = context.getInputSchema();
 
 		if (inputSchema == null) {
-			inputSchema = input.first().getSchema();
+			/*
+			 * The emptiness check and the schema resolution share
+			 * a single job that peeks the first record
+			 */
+			List<StructuredRecord> first = input.take(1);
+			if (first.isEmpty()) {
+				return input;
+			}
+
+			inputSchema = first.get(0).getSchema();
 		}
 		/*
 		 * In order to apply a SQL statement to the incoming data records
@@ -95,21 +95,18 @@ public class ApplySQL extends SparkCompute<StructuredRecord, StructuredRecord> {
 	public JavaRDD<StructuredRecord> transform(SparkExecutionPluginContext context, JavaRDD<StructuredRecord> input)
 			throws Exception {
 		/*
-		 * This is an initial step, that checks whether the input
-		 * is empty, and, if this is the case returns the input
+		 * We need a schema to compute the incoming dataset; the schema
+		 * can either be explicitly provided or is derived from the first
+		 * incoming data record. An empty input is not checked upfront:
+		 * with a known schema, it results in an empty output
 		 */
-		if (input.isEmpty()) {
-			return input;
-		}
+		Schema inputSchema = SessionHelper.getInputSchema(context, input);
 		/*
-		 * Next, we need a schema to compute the incoming dataset;
-		 * the schema can either be explicitly provided or is derived
-		 * from the first incoming data record
+		 * No schema is available and the input is empty; in this
+		 * case the input is returned
 		 */
-		Schema inputSchema = context.getInputSchema();
-
 		if (inputSchema == null) {
-			inputSchema = input.first().getSchema();
+			return input;
 		}
 		/*
 		 * In order to apply a SQL statement to the incoming data records
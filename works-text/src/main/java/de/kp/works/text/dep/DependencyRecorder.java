@@ -41,7 +41,7 @@ public class DependencyRecorder extends TextRecorder {
 		 * Leverage Apache Spark mechanism to read the DependencyParser model
 		 * from a model specific file set
 		 */
-		return (DependencyParserModel)DependencyParserModel.load(modelPath);
+		return loadModel(modelPath, () -> (DependencyParserModel)DependencyParserModel.load(modelPath));
 		
 	}
 
@@ -47,7 +47,7 @@ public class Word2VecRecorder extends TextRecorder {
 		 * Leverage Apache Spark mechanism to read the Word2Vec model
 		 * from a model specific file set
 		 */
-		return Word2VecModel.load(modelPath);
+		return loadModel(modelPath, () -> Word2VecModel.load(modelPath));
 
 	}
 	
@@ -61,7 +61,7 @@ public class Word2VecRecorder extends TextRecorder {
 		 * Leverage Apache Spark mechanism to read the Word2Vec model
 		 * from a model specific file set
 		 */
-		return Word2VecModel.load(modelPath);
+		return loadModel(modelPath, () -> Word2VecModel.load(modelPath));
 	}
 
 	public void track(SparkExecutionPluginContext context, String modelName, String modelStage, String modelParams, String modelMetrics,
@@ -42,7 +42,7 @@ public class LemmatizerRecorder extends TextRecorder {
 		 * Leverage Apache Spark mechanism to read the Lemmatizer model
 		 * from a model specific file set
 		 */
-		return (LemmatizerModel)LemmatizerModel.load(modelPath);
+		return loadModel(modelPath, () -> (LemmatizerModel)LemmatizerModel.load(modelPath));
 		
 	}
 
@@ -42,7 +42,7 @@ public class NERRecorder extends TextRecorder {
 		 * Leverage Apache Spark mechanism to read the NER model
 		 * from a model specific file set
 		 */
-		return (NerCrfModel)NerCrfModel.load(modelPath);
+		return loadModel(modelPath, () -> (NerCrfModel)NerCrfModel.load(modelPath));
 		
 	}
 
@@ -42,7 +42,7 @@ public class POSRecorder extends TextRecorder {
 		 * Leverage Apache Spark mechanism to read the PerceptronModel model
 		 * from a model specific file set
 		 */
-		return (PerceptronModel)PerceptronModel.load(modelPath);
+		return loadModel(modelPath, () -> (PerceptronModel)PerceptronModel.load(modelPath));
 		
 	}
 
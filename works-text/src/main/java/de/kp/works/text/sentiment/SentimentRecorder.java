@@ -43,7 +43,7 @@ public class SentimentRecorder extends TextRecorder {
 		 * Leverage Apache Spark mechanism to read the Sentiment Analysis model from a
 		 * model specific file set
 		 */
-		return (ViveknSentimentModel) ViveknSentimentModel.load(modelPath);
+		return loadModel(modelPath, () -> (ViveknSentimentModel) ViveknSentimentModel.load(modelPath));
 
 	}
 
@@ -42,7 +42,7 @@ public class SpellRecorder extends TextRecorder {
 		 * Leverage Apache Spark mechanism to read the NorvigSweeting model
 		 * from a model specific file set
 		 */
-		return (NorvigSweetingModel)NorvigSweetingModel.load(modelPath);
+		return loadModel(modelPath, () -> (NorvigSweetingModel)NorvigSweetingModel.load(modelPath));
 		
 	}
 
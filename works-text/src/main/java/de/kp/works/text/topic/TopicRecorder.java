@@ -42,7 +42,7 @@ public class TopicRecorder extends TextRecorder {
 		 * Leverage Apache Spark mechanism to read the LDATopic model
 		 * from a model specific file set
 		 */
-		return LDATopicModel.load(modelPath);
+		return loadModel(modelPath, () -> LDATopicModel.load(modelPath));
 		
 	}
 
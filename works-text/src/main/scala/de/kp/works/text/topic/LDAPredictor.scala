@@ -26,6 +26,7 @@ import org.apache.spark.ml.linalg.Vector
 import org.apache.spark.sql._
 import org.apache.spark.sql.functions._
 
+import de.kp.works.core.ml.MLUtils
 import de.kp.works.text.AnnotationBase
 import de.kp.works.text.embeddings.Word2VecModel
 
@@ -113,11 +114,7 @@ class LDAPredictor(model:LDAModel, word2vec:Word2VecModel) extends AnnotationBas
      * The dataset contains an Apache Spark Vector and must be transformed
      * into an Array of Double value (to CDAP Structured Record)
      */
-    val devector_udf = udf {vector:Vector => {
-      vector.toArray
-    }}
-
-    dataset.withColumn(featureCol, devector_udf(col(vectorCol)))
+    MLUtils.devectorize(dataset, vectorCol, featureCol)
     
   }
  
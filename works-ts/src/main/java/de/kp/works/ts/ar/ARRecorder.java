@@ -45,7 +45,7 @@ public class ARRecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the AutoRegression model
 		 * from a model specific file set
 		 */
-		return AutoRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> AutoRegressionModel.load(modelPath));
 		
 	}
 	
@@ -59,7 +59,7 @@ public class ARRecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the AutoAR model
 		 * from a model specific file set
 		 */
-		return AutoARModel.load(modelPath);
+		return loadModel(modelPath, () -> AutoARModel.load(modelPath));
 		
 	}
 	
@@ -73,7 +73,7 @@ public class ARRecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the DiffAutoRegression model
 		 * from a model specific file set
 		 */
-		return DiffAutoRegressionModel.load(modelPath);
+		return loadModel(modelPath, () -> DiffAutoRegressionModel.load(modelPath));
 		
 	}
 	
@@ -87,7 +87,7 @@ public class ARRecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the ARYuleWalker model
 		 * from a model specific file set
 		 */
-		return ARYuleWalkerModel.load(modelPath);
+		return loadModel(modelPath, () -> ARYuleWalkerModel.load(modelPath));
 		
 	}
 
@@ -43,7 +43,7 @@ public class ARIMARecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the ARIMA model
 		 * from a model specific file set
 		 */
-		return ARIMAModel.load(modelPath);
+		return loadModel(modelPath, () -> ARIMAModel.load(modelPath));
 		
 	}
 	
@@ -57,7 +57,7 @@ public class ARIMARecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the AutoARIMA model
 		 * from a model specific file set
 		 */
-		return AutoARIMAModel.load(modelPath);
+		return loadModel(modelPath, () -> AutoARIMAModel.load(modelPath));
 		
 	}
 
@@ -43,7 +43,7 @@ public class ARMARecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the ARMA model
 		 * from a model specific file set
 		 */
-		return ARMAModel.load(modelPath);
+		return loadModel(modelPath, () -> ARMAModel.load(modelPath));
 		
 	}
 	
@@ -57,7 +57,7 @@ public class ARMARecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the AutoARMA model
 		 * from a model specific file set
 		 */
-		return AutoARMAModel.load(modelPath);
+		return loadModel(modelPath, () -> AutoARMAModel.load(modelPath));
 		
 	}
 
@@ -43,7 +43,7 @@ public class MARecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the MovingAverage model
 		 * from a model specific file set
 		 */
-		return MovingAverageModel.load(modelPath);
+		return loadModel(modelPath, () -> MovingAverageModel.load(modelPath));
 		
 	}
 	
@@ -57,7 +57,7 @@ public class MARecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the AutoMA model
 		 * from a model specific file set
 		 */
-		return AutoMAModel.load(modelPath);
+		return loadModel(modelPath, () -> AutoMAModel.load(modelPath));
 		
 	}
 
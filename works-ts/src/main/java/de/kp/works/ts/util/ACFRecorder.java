@@ -37,7 +37,7 @@ public class ACFRecorder extends TimeRecorder {
 		 * Leverage Apache Spark mechanism to read the AutoCorrelation model
 		 * from a model specific file set
 		 */
-		return AutoCorrelationModel.load(modelPath);
+		return loadModel(modelPath, () -> AutoCorrelationModel.load(modelPath));
 		
 	}
 